@@ -0,0 +1,123 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and comparing charter atom ids, which happens for every charter read from the database and for every saved
+ * or bookmarked charter of a user. {@link #internConcurrently()} parses and interns from several threads, to show
+ * whether the threads contend for the pool of interned ids.
+ * <p>
+ * The retained size of parsed ids with and without interning is reported by the main method, measured with JOL as the
+ * size of all objects reachable from the list of ids, e.g. {@code java -cp target/benchmarks.jar
+ * eu.icarus.momca.momcapi.benchmarks.AtomIdBenchmark [ids] [distinctIds]}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+public class AtomIdBenchmark {
+
+    private CharterAtomId atomId;
+    private String atomIdString;
+    private String encodedAtomIdString;
+    private CharterAtomId equalAtomId;
+
+    public static void main(String[] args) {
+
+        int ids = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int distinctIds = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        System.out.printf("%d ids, %d of them distinct, like the saved charters of many users%n%n", ids, distinctIds);
+        System.out.printf("%-12s %16s %16s%n", "", "retained bytes", "bytes/id");
+        report("parsed", parseIds(ids, distinctIds, false));
+        report("interned", parseIds(ids, distinctIds, true));
+
+    }
+
+    @NotNull
+    private static List<CharterAtomId> parseIds(int ids, int distinctIds, boolean intern) {
+
+        List<CharterAtomId> atomIds = new ArrayList<>(ids);
+
+        for (int i = 0; i < ids; i++) {
+            // every id is parsed from a string of its own, as if read from a document
+            CharterAtomId atomId = new CharterAtomId(new String(CorpusGenerator.createAtomId(i % distinctIds).getAtomId()));
+            atomIds.add(intern ? atomId.intern() : atomId);
+        }
+
+        return atomIds;
+
+    }
+
+    private static void report(@NotNull String name, @NotNull List<CharterAtomId> atomIds) {
+        long retained = GraphLayout.parseInstance(atomIds).totalSize();
+        System.out.printf("%-12s %16d %16d%n", name, retained, retained / atomIds.size());
+    }
+
+    @Benchmark
+    public CharterAtomId createFromParts() {
+        return new CharterAtomId("ARCHIVE-0000", "Fond_00", "Charter_0000001");
+    }
+
+    @Benchmark
+    public boolean equalsEqualAtomId() {
+        return atomId.equals(equalAtomId);
+    }
+
+    @Benchmark
+    public int hashCodeOfAtomId() {
+        return atomId.hashCode();
+    }
+
+    @Benchmark
+    public CharterAtomId intern() {
+        return new CharterAtomId(atomIdString).intern();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CharterAtomId internConcurrently() {
+        return new CharterAtomId(atomIdString).intern();
+    }
+
+    @Benchmark
+    public CharterAtomId parse() {
+        return new CharterAtomId(atomIdString);
+    }
+
+    @Benchmark
+    public CharterAtomId parseEncoded() {
+        return new CharterAtomId(encodedAtomIdString);
+    }
+
+    @Setup
+    public void setUp() {
+
+        atomIdString = CorpusGenerator.createAtomId(1).getAtomId();
+        encodedAtomIdString = "tag:www.monasterium.net,2011:/charter/AT-HHStA/SbgE/AUR_1002_XII_20%2Bvor";
+        atomId = new CharterAtomId(atomIdString);
+        equalAtomId = new CharterAtomId(atomIdString);
+
+    }
+
+}
@@ -0,0 +1,228 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.CharterSummary;
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.EmbeddedExist;
+import eu.icarus.momca.momcapi.MetricsRecorder;
+import eu.icarus.momca.momcapi.MomCA;
+import eu.icarus.momca.momcapi.Namespace;
+import eu.icarus.momca.momcapi.Page;
+import eu.icarus.momca.momcapi.PageRequest;
+import eu.icarus.momca.momcapi.SyntheticCorpus;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import nu.xom.Document;
+import nu.xom.XPathContext;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listing a page of a fond's charters with the idno and date of every charter, once by loading the charters and
+ * reading the fields from their XOM documents, once as {@link CharterSummary summaries} evaluated by the database.
+ * Run with {@code -prof gc} to compare the allocations per page.
+ * <p>
+ * The serialized size of the query results and the retained size of the loaded objects per result are reported by the
+ * main method, e.g. {@code java -cp target/benchmarks.jar eu.icarus.momca.momcapi.benchmarks.CharterSummaryBenchmark
+ * [charterCount] [paragraphs]}. The serialized size is the UTF-8 length of the result strings momcapi reads; it runs
+ * against an embedded database, so nothing crosses a wire and protocol overhead isn't included. The retained size is
+ * measured by JOL as the size of all objects reachable from the loaded results, including objects they share with
+ * other results such as interned atom ids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class CharterSummaryBenchmark {
+
+    private static final XPathContext CEI = new XPathContext("cei", Namespace.CEI.getUri());
+    private static final String FOND = "ARCHIVE-0000/Fond_00";
+    private static final int LOAD_PAGE_SIZE = 500;
+    @Param({"1000"})
+    private int charterCount;
+    private EmbeddedExist exist;
+    private MomCA momCA;
+    @Param({"100"})
+    private int pageSize;
+    @Param({"1", "10", "100"})
+    private int paragraphs;
+
+    public static void main(String[] args) throws Exception {
+
+        int charterCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int paragraphs = args.length > 1 ? Integer.parseInt(args[1]) : SyntheticCorpus.DEFAULT_PARAGRAPHS;
+
+        try (EmbeddedExist exist = EmbeddedExist.start()) {
+
+            exist.load(new SyntheticCorpus(charterCount, Math.max(10, charterCount / 100), paragraphs, CorpusGenerator.DEFAULT_SEED));
+            MomCA momCA = exist.connect();
+            ResultSizeCounter resultSizeCounter = new ResultSizeCounter();
+            momCA.setMetricsRecorder(resultSizeCounter);
+
+            try {
+
+                System.out.printf("%d charters with %d paragraphs, all charters of %s%n%n", charterCount, paragraphs, FOND);
+                System.out.printf("%-10s %10s %20s %20s%n", "", "results", "serialized/result", "retained/result");
+
+                // each variant runs twice, so the second run is measured with warmed up code and interned atom ids
+                for (int run = 0; run < 2; run++) {
+                    report("charters", run, resultSizeCounter, () -> loadCharters(momCA));
+                    report("summaries", run, resultSizeCounter, () -> loadSummaries(momCA));
+                }
+
+            } finally {
+                momCA.closeConnection();
+            }
+
+        }
+
+    }
+
+    @NotNull
+    private static List<String> getFields(@NotNull Charter charter) {
+
+        Document document = charter.getXmlAsDocument();
+
+        List<String> fields = new ArrayList<>(2);
+        fields.add(document.query("//cei:body/cei:idno", CEI).get(0).getValue());
+        fields.add(document.query("//cei:issued/cei:date/@value", CEI).get(0).getValue());
+        return fields;
+
+    }
+
+    /**
+     * Loads the charters and reads their fields, so their documents are parsed.
+     */
+    @NotNull
+    private static List<Charter> loadCharters(@NotNull MomCA momCA) throws Exception {
+
+        List<Charter> charters = new ArrayList<>();
+        Page<Charter> page = momCA.listCharters(CharterStatus.PUBLIC, FOND, PageRequest.first(LOAD_PAGE_SIZE));
+        charters.addAll(page.getItems());
+
+        while (page.hasNext()) {
+            page = momCA.listCharters(CharterStatus.PUBLIC, FOND, PageRequest.after(page.getNextCursor().get(), LOAD_PAGE_SIZE));
+            charters.addAll(page.getItems());
+        }
+
+        charters.forEach(CharterSummaryBenchmark::getFields);
+        return charters;
+
+    }
+
+    @NotNull
+    private static List<CharterSummary> loadSummaries(@NotNull MomCA momCA) throws Exception {
+
+        List<CharterSummary> summaries = new ArrayList<>();
+        Page<CharterSummary> page = momCA.listCharterSummaries(CharterStatus.PUBLIC, FOND, CharterSummary.DEFAULT_FIELDS, PageRequest.first(LOAD_PAGE_SIZE));
+        summaries.addAll(page.getItems());
+
+        while (page.hasNext()) {
+            page = momCA.listCharterSummaries(CharterStatus.PUBLIC, FOND, CharterSummary.DEFAULT_FIELDS, PageRequest.after(page.getNextCursor().get(), LOAD_PAGE_SIZE));
+            summaries.addAll(page.getItems());
+        }
+
+        return summaries;
+
+    }
+
+    private static void report(@NotNull String name, int run, @NotNull ResultSizeCounter resultSizeCounter, @NotNull Load load) throws Exception {
+
+        resultSizeCounter.bytes.reset();
+
+        List<?> results = load.run();
+        if (results.isEmpty()) {
+            throw new IllegalStateException(String.format("No %s loaded.", name));
+        }
+
+        long serialized = resultSizeCounter.bytes.sum();
+        long retained = GraphLayout.parseInstance(results).totalSize();
+
+        if (run > 0) {
+            System.out.printf("%-10s %10d %20d %20d%n", name, results.size(), serialized / results.size(), retained / results.size());
+        }
+
+    }
+
+    @Benchmark
+    public void listCharters(Blackhole blackhole) throws Exception {
+        for (Charter charter : momCA.listCharters(CharterStatus.PUBLIC, FOND, PageRequest.first(pageSize)).getItems()) {
+            blackhole.consume(charter.getAtomId());
+            blackhole.consume(getFields(charter));
+        }
+    }
+
+    @Benchmark
+    public void listCharterSummaries(Blackhole blackhole) throws Exception {
+        for (CharterSummary summary : momCA.listCharterSummaries(CharterStatus.PUBLIC, FOND, CharterSummary.DEFAULT_FIELDS, PageRequest.first(pageSize)).getItems()) {
+            blackhole.consume(summary.getAtomId());
+            blackhole.consume(summary.getField(CharterSummary.Field.IDNO));
+            blackhole.consume(summary.getField(CharterSummary.Field.DATE));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        exist = EmbeddedExist.start();
+        exist.load(new SyntheticCorpus(charterCount, Math.max(10, charterCount / 100), paragraphs, CorpusGenerator.DEFAULT_SEED));
+        momCA = exist.connect();
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        momCA.closeConnection();
+        exist.close();
+    }
+
+    @FunctionalInterface
+    private interface Load {
+
+        @NotNull
+        List<?> run() throws Exception;
+
+    }
+
+    /**
+     * Sums the UTF-8 length of the result strings read by the calls.
+     */
+    private static final class ResultSizeCounter implements MetricsRecorder {
+
+        @NotNull
+        private final LongAdder bytes = new LongAdder();
+
+        @Override
+        public void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed) {
+        }
+
+        @Override
+        public void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed) {
+            if (stage == Stage.CONTENT_TRANSFER) {
+                this.bytes.add(bytes);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import nu.xom.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serializing the content of resources of different sizes. With 1, 10 and 100 paragraphs the charters
+ * have about 1.5, 3 and 17 KB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+public class ExistResourceBenchmark {
+
+    private static final String NAME = "Charter_0000001.cei.xml";
+    private static final String PARENT_URI = "/db/mom-data/metadata.charter.public/ARCHIVE-0000/Fond_00";
+    private String content;
+    @Param({"1", "10", "100"})
+    private int paragraphs;
+    private ExistResource parsedResource;
+
+    @Benchmark
+    public ExistResource createLazily() {
+        return ExistResource.createLazily(NAME, PARENT_URI, content);
+    }
+
+    @Benchmark
+    public ExistResource parse() throws ParsingException, IOException {
+        return new ExistResource(NAME, PARENT_URI, content);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return parsedResource.getXmlAsString();
+    }
+
+    @Setup
+    public void setUp() throws ParsingException, IOException {
+
+        CharterAtomId atomId = CorpusGenerator.createAtomId(1);
+        content = new CorpusGenerator(CorpusGenerator.DEFAULT_SEED).createCharter(atomId, paragraphs);
+        parsedResource = new ExistResource(NAME, PARENT_URI, content);
+
+    }
+
+}
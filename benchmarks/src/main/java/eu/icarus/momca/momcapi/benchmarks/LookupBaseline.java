@@ -0,0 +1,96 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import org.jetbrains.annotations.NotNull;
+import org.xmldb.api.DatabaseManager;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.ResourceIterator;
+import org.xmldb.api.base.ResourceSet;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.XMLResource;
+import org.xmldb.api.modules.XQueryService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The lookup of published charters as momcapi did it before the documents were returned with the query: the URIs of
+ * the matches are queried, then the collection of every match is opened and the document is fetched from it.
+ * <p>
+ * The database driver has to be registered, e.g. by connecting a {@link eu.icarus.momca.momcapi.MomCA} first.
+ */
+final class LookupBaseline {
+
+    private static final String QUERY_URIS_OF_CHARTER =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    " declare variable $charter-id as xs:string external;" +
+                    " for $node in collection($path)//atom:entry[.//cei:idno/@id=$charter-id]" +
+                    " return concat(util:collection-name($node), '/', util:document-name($node))";
+    @NotNull
+    private final String dbRootUri;
+    @NotNull
+    private final String password;
+    @NotNull
+    private final Collection rootCollection;
+    @NotNull
+    private final String user;
+
+    LookupBaseline(@NotNull String dbRootUri, @NotNull String user, @NotNull String password) throws XMLDBException {
+
+        this.dbRootUri = dbRootUri;
+        this.user = user;
+        this.password = password;
+        this.rootCollection = DatabaseManager.getCollection(dbRootUri + "/db", user, password);
+
+    }
+
+    @NotNull
+    private static String getSearchPath(@NotNull CharterAtomId atomId) {
+        return atomId.isPartOfArchiveFond()
+                ? String.join("/", "/db/mom-data/metadata.charter.public", atomId.getArchiveId().get(), atomId.getFondId().get())
+                : String.join("/", "/db/mom-data/metadata.charter.public", atomId.getCollectionId().get());
+    }
+
+    void close() throws XMLDBException {
+        rootCollection.close();
+    }
+
+    @NotNull
+    List<Charter> getPublishedCharters(@NotNull CharterAtomId atomId) throws Exception {
+
+        XQueryService queryService = (XQueryService) rootCollection.getService("XQueryService", "1.0");
+        queryService.declareVariable("path", getSearchPath(atomId));
+        queryService.declareVariable("charter-id", atomId.getCharterId());
+
+        List<String> uris = new ArrayList<>(1);
+        ResourceSet resultSet = queryService.query(QUERY_URIS_OF_CHARTER);
+        ResourceIterator iterator = resultSet.getIterator();
+        while (iterator.hasMoreResources()) {
+            uris.add(iterator.nextResource().getContent().toString());
+        }
+
+        List<Charter> charters = new ArrayList<>(uris.size());
+        for (String uri : uris) {
+
+            String parentUri = uri.substring(0, uri.lastIndexOf('/'));
+            String name = uri.substring(uri.lastIndexOf('/') + 1);
+            Collection collection = DatabaseManager.getCollection(dbRootUri + parentUri, user, password);
+
+            try {
+                XMLResource resource = (XMLResource) collection.getResource(name);
+                charters.add(new Charter(new ExistResource(name, parentUri, (String) resource.getContent())));
+            } finally {
+                collection.close();
+            }
+
+        }
+
+        return charters;
+
+    }
+
+}
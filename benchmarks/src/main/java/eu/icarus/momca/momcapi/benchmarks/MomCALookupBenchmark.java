@@ -0,0 +1,184 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.EmbeddedExist;
+import eu.icarus.momca.momcapi.MomCA;
+import eu.icarus.momca.momcapi.SyntheticCorpus;
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.User;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end lookups through {@link MomCA} against an {@link EmbeddedExist} loaded with a {@link SyntheticCorpus}. The
+ * corpus is loaded once per trial; the lookups pick random charters and users of the corpus.
+ * <p>
+ * The XML-RPC requests per charter lookup, compared against the lookup by URI it replaced, are reported by the main
+ * method. It runs against a server holding the {@link SyntheticCorpus} of the given size and counts the requests at an
+ * {@link RpcCountingProxy} in front of it, e.g. {@code java -cp target/benchmarks.jar
+ * eu.icarus.momca.momcapi.benchmarks.MomCALookupBenchmark xmldb:exist://localhost:8080/exist/xmlrpc admin secret
+ * [charterCount] [lookups]}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class MomCALookupBenchmark {
+
+    private static final int PARAGRAPHS = 10;
+    private static final int USER_COUNT = 100;
+    private LookupBaseline baseline;
+    @Param({"1000", "10000"})
+    private int charterCount;
+    private SyntheticCorpus corpus;
+    private EmbeddedExist exist;
+    private MomCA momCA;
+    @Param({"100"})
+    private int userCount;
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 3) {
+            System.err.println("Usage: MomCALookupBenchmark <xmldb uri> <user> <password> [charterCount] [lookups]");
+            System.exit(1);
+        }
+
+        URI serverUri = URI.create(args[0].substring("xmldb:".length()));
+        int charterCount = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        int lookups = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+        SyntheticCorpus corpus = new SyntheticCorpus(charterCount, USER_COUNT, PARAGRAPHS, CorpusGenerator.DEFAULT_SEED);
+
+        try (RpcCountingProxy proxy = RpcCountingProxy.start(serverUri.getHost(), serverUri.getPort())) {
+
+            String proxiedUri = String.format("xmldb:%s://127.0.0.1:%d%s", serverUri.getScheme(), proxy.getPort(), serverUri.getRawPath());
+            MomCA momCA = new MomCA(proxiedUri, args[1], args[2]);
+            LookupBaseline baseline = new LookupBaseline(proxiedUri, args[1], args[2]);
+
+            try {
+
+                System.out.printf("%d charters, %d lookups of published charters%n%n", charterCount, lookups);
+                System.out.printf("%-10s %14s %14s   %s%n", "", "requests", "micros", "requests by method");
+
+                // each variant runs twice, so the second run is measured with warmed up code and connections
+                for (int run = 0; run < 2; run++) {
+                    report("query", run, lookups, proxy, momCA::getPublishedCharters, corpus, charterCount);
+                    report("by uri", run, lookups, proxy, baseline::getPublishedCharters, corpus, charterCount);
+                }
+
+            } finally {
+                baseline.close();
+                momCA.closeConnection();
+            }
+
+        }
+
+    }
+
+    private static void report(@NotNull String name, int run, int lookups, @NotNull RpcCountingProxy proxy, @NotNull Lookup lookup,
+                               @NotNull SyntheticCorpus corpus, int charterCount) throws Exception {
+
+        proxy.reset();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < lookups; i++) {
+            CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, ThreadLocalRandom.current().nextInt(charterCount));
+            if (lookup.run(atomId).isEmpty()) {
+                throw new IllegalStateException(String.format("Charter '%s' not found.", atomId));
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+
+        if (run > 0) {
+            System.out.printf("%-10s %14.1f %14.1f   %s%n", name, (double) proxy.getRequestCount() / lookups,
+                    elapsedNanos / 1000.0 / lookups, proxy.getRequestsByMethod());
+        }
+
+    }
+
+    @Benchmark
+    public List<Charter> getPublishedCharters() throws Exception {
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, ThreadLocalRandom.current().nextInt(charterCount));
+        return momCA.getPublishedCharters(atomId);
+    }
+
+    /**
+     * The lookup {@link #getPublishedCharters()} replaced: the URIs are queried and every charter is fetched by a
+     * request of its own.
+     */
+    @Benchmark
+    public List<Charter> getPublishedChartersByUri() throws Exception {
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, ThreadLocalRandom.current().nextInt(charterCount));
+        return baseline.getPublishedCharters(atomId);
+    }
+
+    @Benchmark
+    public Optional<User> getUser() throws Exception {
+        return momCA.getUser(corpus.getUserId(ThreadLocalRandom.current().nextInt(userCount)));
+    }
+
+    /**
+     * Without the user directory's cache, so every call reads the user from the database.
+     */
+    @Benchmark
+    public Optional<User> getUserUncached() throws Exception {
+        String userId = corpus.getUserId(ThreadLocalRandom.current().nextInt(userCount));
+        momCA.getUserDirectory().invalidate(userId);
+        return momCA.getUser(userId);
+    }
+
+    @Benchmark
+    public List<String> listUsers() throws Exception {
+        return momCA.listUsers();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        corpus = new SyntheticCorpus(charterCount, userCount, PARAGRAPHS, CorpusGenerator.DEFAULT_SEED);
+
+        exist = EmbeddedExist.start();
+        exist.load(corpus);
+        momCA = exist.connect();
+        baseline = new LookupBaseline(EmbeddedExist.DB_ROOT_URI, EmbeddedExist.ADMIN, EmbeddedExist.PASSWORD);
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        baseline.close();
+        momCA.closeConnection();
+        exist.close();
+    }
+
+    @FunctionalInterface
+    private interface Lookup {
+
+        @NotNull
+        List<Charter> run(@NotNull CharterAtomId atomId) throws Exception;
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import eu.icarus.momca.momcapi.resource.User;
+import nu.xom.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating charters and users from the content transferred from the database, including the parsing. Compares the
+ * constructor of {@link Charter} with {@link Charter#createFromHeader(ExistResource)}, which reads only the atom id.
+ * <p>
+ * The largest charters have a few hundred KB, like charters with long transcriptions, so the cost of parsing the whole
+ * document shows against reading the header only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+public class ResourceConstructionBenchmark {
+
+    private static final String CHARTER_NAME = "Charter_0000001.cei.xml";
+    private static final String CHARTER_PARENT_URI = "/db/mom-data/metadata.charter.public/ARCHIVE-0000/Fond_00";
+    private static final String USER_PARENT_URI = "/db/mom-data/xrx.user";
+    private String charterContent;
+    @Param({"1", "10", "100", "1000", "5000"})
+    private int paragraphs;
+    private String userContent;
+    private String userName;
+
+    @Benchmark
+    public Charter charterConstructor() throws ParsingException, IOException {
+        return new Charter(new ExistResource(CHARTER_NAME, CHARTER_PARENT_URI, charterContent));
+    }
+
+    @Benchmark
+    public Charter charterFromHeader() {
+        return Charter.createFromHeader(ExistResource.createLazily(CHARTER_NAME, CHARTER_PARENT_URI, charterContent));
+    }
+
+    @Setup
+    public void setUp() {
+
+        CorpusGenerator generator = new CorpusGenerator(CorpusGenerator.DEFAULT_SEED);
+        charterContent = generator.createCharter(CorpusGenerator.createAtomId(1), paragraphs);
+
+        // the number of saved charters grows with the size, like the charters
+        List<CharterAtomId> savedCharters = new ArrayList<>(paragraphs);
+        for (int i = 0; i < paragraphs; i++) {
+            savedCharters.add(CorpusGenerator.createAtomId(i));
+        }
+
+        String userId = CorpusGenerator.createUserId(1);
+        userName = userId + ".xml";
+        userContent = generator.createUser(userId, CorpusGenerator.createUserId(0), savedCharters, savedCharters);
+
+    }
+
+    @Benchmark
+    public User userConstructor() throws ParsingException, IOException {
+        return new User(new ExistResource(userName, USER_PARENT_URI, userContent));
+    }
+
+}
@@ -0,0 +1,270 @@
+package eu.icarus.momca.momcapi.benchmarks;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local HTTP proxy in front of an eXist XML-RPC endpoint that counts the requests passing through it, so the round
+ * trips of a client are counted on the wire instead of being estimated by the client itself. Every request is counted
+ * by the name of its XML-RPC method.
+ * <p>
+ * The client connects to {@link #getPort()} on the loopback interface instead of the server. Requests are parsed only
+ * as far as needed to find their end, the bytes are forwarded unchanged.
+ */
+final class RpcCountingProxy implements Closeable {
+
+    private static final Pattern METHOD_NAME = Pattern.compile("<methodName>\\s*([^<\\s]+)\\s*</methodName>");
+    private static final String UNKNOWN_METHOD = "?";
+    @NotNull
+    private final Map<String, LongAdder> requestsByMethod = new ConcurrentHashMap<>();
+    @NotNull
+    private final ServerSocket serverSocket;
+    @NotNull
+    private final String targetHost;
+    private final int targetPort;
+
+    private RpcCountingProxy(@NotNull ServerSocket serverSocket, @NotNull String targetHost, int targetPort) {
+        this.serverSocket = serverSocket;
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+    }
+
+    /**
+     * Starts a proxy forwarding to the server on an ephemeral local port.
+     */
+    @NotNull
+    static RpcCountingProxy start(@NotNull String targetHost, int targetPort) throws IOException {
+
+        RpcCountingProxy proxy = new RpcCountingProxy(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()), targetHost, targetPort);
+        startDaemon("rpc-proxy-accept", proxy::accept);
+        return proxy;
+
+    }
+
+    private static void closeQuietly(@NotNull Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // the socket is discarded anyway
+        }
+    }
+
+    private static void copy(@NotNull InputStream in, @NotNull OutputStream out) {
+
+        byte[] buffer = new byte[8192];
+
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // the other side closed the connection
+        }
+
+    }
+
+    private static void copyBytes(@NotNull InputStream in, @NotNull OutputStream out, long length, @NotNull ByteArrayOutputStream head) throws IOException {
+
+        byte[] buffer = new byte[8192];
+
+        while (length > 0) {
+
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new EOFException("The connection closed within a request body.");
+            }
+
+            out.write(buffer, 0, read);
+            // the method name is at the start of the body, so only the first bytes are kept
+            if (head.size() < 1024) {
+                head.write(buffer, 0, Math.min(read, 1024 - head.size()));
+            }
+            length -= read;
+
+        }
+
+    }
+
+    /**
+     * Reads a line including its CRLF and forwards it.
+     *
+     * @return The line without CRLF or {@code null} at the end of the stream.
+     */
+    private static String forwardLine(@NotNull InputStream in, @NotNull OutputStream out) throws IOException {
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+
+        int b;
+        while ((b = in.read()) >= 0) {
+            out.write(b);
+            if (b == '\n') {
+                break;
+            }
+            line.write(b);
+        }
+
+        if (b < 0 && line.size() == 0) {
+            return null;
+        }
+
+        return line.toString(StandardCharsets.ISO_8859_1.name()).trim();
+
+    }
+
+    private static void startDaemon(@NotNull String name, @NotNull Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return The number of requests by XML-RPC method, sorted by method name.
+     */
+    @NotNull
+    Map<String, Long> getRequestsByMethod() {
+        Map<String, Long> requests = new TreeMap<>();
+        requestsByMethod.forEach((method, count) -> requests.put(method, count.sum()));
+        return requests;
+    }
+
+    long getRequestCount() {
+        return requestsByMethod.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    void reset() {
+        requestsByMethod.clear();
+    }
+
+    private void accept() {
+
+        while (!serverSocket.isClosed()) {
+
+            try {
+
+                Socket client = serverSocket.accept();
+
+                Socket server;
+                try {
+                    server = new Socket(targetHost, targetPort);
+                } catch (IOException e) {
+                    closeQuietly(client);
+                    continue;
+                }
+
+                startDaemon("rpc-proxy-response", () -> {
+                    try {
+                        copy(server.getInputStream(), client.getOutputStream());
+                    } catch (IOException ignored) {
+                        // the connection failed, the client sees the error
+                    } finally {
+                        closeQuietly(client);
+                        closeQuietly(server);
+                    }
+                });
+
+                startDaemon("rpc-proxy-request", () -> {
+                    try {
+                        forwardRequests(new BufferedInputStream(client.getInputStream()), new BufferedOutputStream(server.getOutputStream()));
+                    } catch (IOException ignored) {
+                        // the connection failed, the client sees the error
+                    } finally {
+                        closeQuietly(client);
+                        closeQuietly(server);
+                    }
+                });
+
+            } catch (IOException ignored) {
+                // the proxy was closed
+            }
+
+        }
+
+    }
+
+    /**
+     * Forwards the requests of a keep-alive connection, counting each one when its body was forwarded.
+     */
+    private void forwardRequests(@NotNull InputStream in, @NotNull OutputStream out) throws IOException {
+
+        String requestLine;
+        while ((requestLine = forwardLine(in, out)) != null) {
+
+            if (requestLine.isEmpty()) {
+                continue;
+            }
+
+            long contentLength = 0;
+            boolean chunked = false;
+
+            String header;
+            while ((header = forwardLine(in, out)) != null && !header.isEmpty()) {
+                String lowerCaseHeader = header.toLowerCase(Locale.ENGLISH);
+                if (lowerCaseHeader.startsWith("content-length:")) {
+                    contentLength = Long.parseLong(header.substring("content-length:".length()).trim());
+                } else if (lowerCaseHeader.startsWith("transfer-encoding:") && lowerCaseHeader.contains("chunked")) {
+                    chunked = true;
+                }
+            }
+
+            ByteArrayOutputStream head = new ByteArrayOutputStream(1024);
+
+            if (chunked) {
+                long chunkSize;
+                do {
+                    String sizeLine = forwardLine(in, out);
+                    if (sizeLine == null) {
+                        throw new EOFException("The connection closed within a chunked request body.");
+                    }
+                    chunkSize = Long.parseLong(sizeLine.split(";")[0].trim(), 16);
+                    copyBytes(in, out, chunkSize, head);
+                    // the CRLF after the chunk or the trailers after the last chunk
+                    String line;
+                    do {
+                        line = forwardLine(in, out);
+                    } while (chunkSize == 0 && line != null && !line.isEmpty());
+                } while (chunkSize > 0);
+            } else {
+                copyBytes(in, out, contentLength, head);
+            }
+
+            out.flush();
+
+            Matcher methodName = METHOD_NAME.matcher(head.toString(StandardCharsets.UTF_8.name()));
+            String method = methodName.find() ? methodName.group(1) : UNKNOWN_METHOD;
+            requestsByMethod.computeIfAbsent(method, key -> new LongAdder()).increment();
+
+        }
+
+    }
+
+}
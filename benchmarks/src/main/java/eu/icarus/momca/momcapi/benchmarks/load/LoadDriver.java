@@ -0,0 +1,269 @@
+package eu.icarus.momca.momcapi.benchmarks.load;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import eu.icarus.momca.momcapi.EmbeddedExist;
+import eu.icarus.momca.momcapi.MomCA;
+import eu.icarus.momca.momcapi.SyntheticCorpus;
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Calls a mix of {@link MomCA}'s lookups from several threads sharing one client, to find the throughput a client and
+ * database sustain and the latencies at that throughput.
+ * <p>
+ * The target database has to hold the {@link SyntheticCorpus} of the given size, as the calls look up its documents.
+ * Without {@code --uri} an {@link EmbeddedExist} is started and loaded with the corpus.
+ * <p>
+ * With {@code --rate} the threads start calls at a fixed total rate, each thread on its own schedule. The response
+ * time of a call is measured from its scheduled start, so calls delayed by slow earlier calls count the delay, as
+ * they would for independent users. Without a rate, each thread starts the next call when the last one returned;
+ * {@code --expected-interval} then corrects the response times for the calls a slow call held back.
+ * <p>
+ * Usage: {@code LoadDriver [--option=value]...}
+ * <ul>
+ * <li>{@code --uri}, {@code --user}, {@code --password}: the target database, default an embedded database</li>
+ * <li>{@code --charters}: the size of the corpus, default {@value #DEFAULT_CHARTERS}</li>
+ * <li>{@code --threads}: default {@value #DEFAULT_THREADS}</li>
+ * <li>{@code --warmup}, {@code --duration}: in seconds, default {@value #DEFAULT_WARMUP} and
+ * {@value #DEFAULT_DURATION}</li>
+ * <li>{@code --rate}: calls per second of all threads, default closed loop</li>
+ * <li>{@code --expected-interval}: in microseconds, for closed loop only</li>
+ * <li>{@code --mix}: default {@value WorkloadMix#DEFAULT}</li>
+ * </ul>
+ */
+public final class LoadDriver {
+
+    private static final int DEFAULT_CHARTERS = 10000;
+    private static final int DEFAULT_DURATION = 60;
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_WARMUP = 10;
+    @NotNull
+    private final SyntheticCorpus corpus;
+    private final long durationNanos;
+    private final long expectedIntervalNanos;
+    @NotNull
+    private final WorkloadMix mix;
+    @NotNull
+    private final MomCA momCA;
+    private final double rate;
+    private final int threadCount;
+    private final long warmupNanos;
+
+    /**
+     * @param rate                  The calls per second of all threads, {@code 0} for a closed loop.
+     * @param expectedIntervalNanos The expected time between two calls of a thread in a closed loop, {@code 0} to not
+     *                              correct the response times.
+     */
+    LoadDriver(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull WorkloadMix mix, int threadCount,
+               long warmupNanos, long durationNanos, double rate, long expectedIntervalNanos) {
+
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The load test needs at least one thread.");
+        }
+
+        this.momCA = momCA;
+        this.corpus = corpus;
+        this.mix = mix;
+        this.threadCount = threadCount;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.rate = rate;
+        this.expectedIntervalNanos = expectedIntervalNanos;
+
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> options = parseOptions(args);
+
+        SyntheticCorpus corpus = new SyntheticCorpus(Integer.parseInt(options.getOrDefault("charters", String.valueOf(DEFAULT_CHARTERS))));
+        WorkloadMix mix = WorkloadMix.parse(options.getOrDefault("mix", WorkloadMix.DEFAULT));
+        int threadCount = Integer.parseInt(options.getOrDefault("threads", String.valueOf(DEFAULT_THREADS)));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", String.valueOf(DEFAULT_WARMUP))));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", String.valueOf(DEFAULT_DURATION))));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        long expectedIntervalNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.getOrDefault("expected-interval", "0")));
+
+        EmbeddedExist exist = null;
+        String uri = options.get("uri");
+
+        try {
+
+            MomCA momCA;
+
+            if (uri == null) {
+                System.out.printf("Loading %s into an embedded database...%n", corpus);
+                exist = EmbeddedExist.start();
+                exist.load(corpus);
+                momCA = exist.connect();
+            } else {
+                momCA = new MomCA(uri, options.getOrDefault("user", "admin"), options.getOrDefault("password", ""));
+            }
+
+            System.out.printf("Running %s on %d threads, %s, for %d s after %d s warm-up%n", mix, threadCount,
+                    rate > 0 ? String.format("%.1f calls/s", rate) : "closed loop",
+                    TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+
+            try {
+                new LoadDriver(momCA, corpus, mix, threadCount, warmupNanos, durationNanos, rate, expectedIntervalNanos)
+                        .run()
+                        .print(System.out, durationNanos);
+            } finally {
+                momCA.closeConnection();
+            }
+
+        } finally {
+            if (exist != null) {
+                exist.close();
+            }
+        }
+
+    }
+
+    private static void consume(@Nullable Object result) {
+        if (result == null) {
+            throw new IllegalStateException("Call returned no result.");
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+        }
+
+    }
+
+    @NotNull
+    private static Map<String, String> parseOptions(@NotNull String[] args) {
+
+        Map<String, String> options = new HashMap<>();
+
+        for (String arg : args) {
+
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("'%s' is not of the form '--option=value'.", arg));
+            }
+
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+
+        }
+
+        return options;
+
+    }
+
+    /**
+     * Runs the warm-up and the measurement.
+     *
+     * @return The latencies of the calls started during the measurement.
+     */
+    @NotNull
+    LoadReport run() throws InterruptedException {
+
+        LoadReport report = new LoadReport(mix.getWeights().keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measurementStart = start + warmupNanos;
+        long end = measurementStart + durationNanos;
+        long interval = rate > 0 ? (long) (threadCount * 1e9 / rate) : 0;
+
+        List<Future<Void>> workers = new ArrayList<>(threadCount);
+
+        try {
+
+            for (int i = 0; i < threadCount; i++) {
+
+                Random random = new Random(CorpusGenerator.DEFAULT_SEED + i);
+                // spreads the schedules of the threads evenly over the interval
+                long firstStart = start + interval * i / threadCount;
+
+                workers.add(executor.submit(() -> {
+                    ready.countDown();
+                    runWorker(report, random, firstStart, interval, measurementStart, end);
+                    return null;
+                }));
+
+            }
+
+            ready.await();
+
+            for (Future<Void> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Load test worker failed.", e.getCause());
+                }
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return report;
+
+    }
+
+    private void runWorker(@NotNull LoadReport report, @NotNull Random random, long firstStart, long interval,
+                           long measurementStart, long end) {
+
+        long scheduledStart = firstStart;
+        parkUntil(scheduledStart);
+
+        while (scheduledStart < end && !Thread.currentThread().isInterrupted()) {
+
+            Operation operation = mix.next(random);
+            long actualStart = System.nanoTime();
+
+            boolean failed = false;
+            try {
+                consume(operation.call(momCA, corpus, random));
+            } catch (MomCAException | RuntimeException e) {
+                failed = true;
+            }
+
+            long finish = System.nanoTime();
+
+            if (interval > 0) {
+
+                if (scheduledStart >= measurementStart) {
+                    report.record(operation, finish - scheduledStart, finish - actualStart, 0, failed);
+                }
+
+                // a thread falling behind its schedule starts the next calls at once, without skipping them
+                scheduledStart += interval;
+                parkUntil(scheduledStart);
+
+            } else {
+
+                if (actualStart >= measurementStart) {
+                    report.record(operation, finish - actualStart, finish - actualStart, expectedIntervalNanos, failed);
+                }
+
+                scheduledStart = finish;
+
+            }
+
+        }
+
+    }
+
+}
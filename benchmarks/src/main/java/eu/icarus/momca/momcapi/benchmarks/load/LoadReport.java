@@ -0,0 +1,141 @@
+package eu.icarus.momca.momcapi.benchmarks.load;
+
+import eu.icarus.momca.momcapi.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies of the calls of a load test, per operation.
+ * <p>
+ * Two latencies are recorded for every call: the response time, measured from the time the call was due to start,
+ * and the service time, measured from the time it actually started. The response time includes the time the call
+ * waited for earlier calls, which a slow database imposes on its clients, so it is corrected for coordinated
+ * omission. The service time isn't, it is reported for comparison only.
+ */
+final class LoadReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int TICKS_PER_HALF_DISTANCE = 2;
+    @NotNull
+    private final Map<Operation, OperationLatencies> latencies = new EnumMap<>(Operation.class);
+
+    LoadReport(@NotNull Iterable<Operation> operations) {
+        operations.forEach(operation -> latencies.put(operation, new OperationLatencies()));
+    }
+
+    /**
+     * @param expectedInterval The expected time between two calls of a thread, used to correct the response times of a
+     *                         closed-loop test; {@code 0} if the response time is measured from the intended start.
+     */
+    void record(@NotNull Operation operation, long responseTime, long serviceTime, long expectedInterval, boolean failed) {
+
+        OperationLatencies operationLatencies = latencies.get(operation);
+
+        operationLatencies.responseTimes.recordCorrected(responseTime, expectedInterval);
+        operationLatencies.serviceTimes.record(serviceTime);
+
+        if (failed) {
+            operationLatencies.errorCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * Prints a percentile distribution of the response times of each operation and of all operations in the format
+     * of HdrHistogram, which can be plotted with its tools.
+     *
+     * @param measuredNanos The duration of the measurement, to calculate the throughput.
+     */
+    void print(@NotNull PrintStream out, long measuredNanos) {
+
+        LatencyHistogram allResponseTimes = new LatencyHistogram();
+        LatencyHistogram allServiceTimes = new LatencyHistogram();
+        long allErrors = 0;
+
+        for (Map.Entry<Operation, OperationLatencies> entry : latencies.entrySet()) {
+
+            OperationLatencies operationLatencies = entry.getValue();
+            long errorCount = operationLatencies.errorCount.get();
+
+            print(out, entry.getKey().getMethodName(), operationLatencies.responseTimes, operationLatencies.serviceTimes, errorCount, measuredNanos);
+
+            allResponseTimes.add(operationLatencies.responseTimes);
+            allServiceTimes.add(operationLatencies.serviceTimes);
+            allErrors += errorCount;
+
+        }
+
+        print(out, "all operations", allResponseTimes, allServiceTimes, allErrors, measuredNanos);
+
+    }
+
+    private static void print(@NotNull PrintStream out, @NotNull String title, @NotNull LatencyHistogram responseTimes,
+                              @NotNull LatencyHistogram serviceTimes, long errorCount, long measuredNanos) {
+
+        long callCount = serviceTimes.getCount();
+
+        out.println();
+        out.printf("%s: %d calls, %d errors, %.1f calls/s%n", title, callCount, errorCount, callCount / (measuredNanos / 1e9));
+        out.println();
+        out.printf("%15s %14s %12s %18s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+
+        long responseCount = responseTimes.getCount();
+
+        if (responseCount > 0) {
+
+            // halves the distance to 100 % between the levels, like the percentile iteration of HdrHistogram
+            double percentile = 0;
+            int level = 0;
+            int tick = 0;
+
+            while (1 / (1 - percentile / 100) <= responseCount) {
+
+                printPercentile(out, responseTimes, percentile, responseCount);
+
+                tick++;
+                if (tick == TICKS_PER_HALF_DISTANCE) {
+                    tick = 0;
+                    level++;
+                }
+
+                double levelStart = 100 - 100 / Math.pow(2, level);
+                percentile = levelStart + (100 - levelStart) / 2 * tick / TICKS_PER_HALF_DISTANCE;
+
+            }
+
+            out.printf("%15.3f %1.12f %12d%n", responseTimes.getMax() / NANOS_PER_MILLI, 1.0, responseCount);
+
+        }
+
+        out.printf("#[Mean    = %12.3f, Max     = %12.3f]%n", responseTimes.getMean() / NANOS_PER_MILLI, responseTimes.getMax() / NANOS_PER_MILLI);
+        out.printf("#[Service time p50 = %.3f, p99 = %.3f, p99.9 = %.3f, max = %.3f]%n",
+                serviceTimes.getValueAtPercentile(50) / NANOS_PER_MILLI, serviceTimes.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                serviceTimes.getValueAtPercentile(99.9) / NANOS_PER_MILLI, serviceTimes.getMax() / NANOS_PER_MILLI);
+        out.println("#[Values in milliseconds, response times corrected for coordinated omission]");
+
+    }
+
+    private static void printPercentile(@NotNull PrintStream out, @NotNull LatencyHistogram histogram, double percentile, long count) {
+
+        long totalCount = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        out.printf("%15.3f %1.12f %12d %18.2f%n", histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI,
+                percentile / 100, totalCount, 1 / (1 - percentile / 100));
+
+    }
+
+    private static final class OperationLatencies {
+
+        @NotNull
+        private final AtomicLong errorCount = new AtomicLong();
+        @NotNull
+        private final LatencyHistogram responseTimes = new LatencyHistogram();
+        @NotNull
+        private final LatencyHistogram serviceTimes = new LatencyHistogram();
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package eu.icarus.momca.momcapi.benchmarks.load;
+
+import eu.icarus.momca.momcapi.MomCA;
+import eu.icarus.momca.momcapi.SyntheticCorpus;
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * The calls of the load test. Each call looks up a random document of the {@link SyntheticCorpus} stored in the target
+ * database.
+ */
+enum Operation {
+
+    GET_PUBLISHED_CHARTERS("getPublishedCharters") {
+        @Override
+        Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException {
+            return momCA.getPublishedCharters(corpus.getAtomId(CharterStatus.PUBLIC, random.nextInt(corpus.getCharterCount(CharterStatus.PUBLIC))));
+        }
+    },
+    GET_SAVED_CHARTERS("getSavedCharters") {
+        @Override
+        Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException {
+            return momCA.getSavedCharters(corpus.getAtomId(CharterStatus.SAVED, random.nextInt(corpus.getCharterCount(CharterStatus.SAVED))));
+        }
+    },
+    GET_PRIVATE_CHARTERS("getPrivateCharters") {
+        @Override
+        Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException {
+            int index = random.nextInt(corpus.getCharterCount(CharterStatus.PRIVATE));
+            return momCA.getPrivateCharters(corpus.getAtomId(CharterStatus.PRIVATE, index), corpus.getPrivateCharterOwner(index));
+        }
+    },
+    GET_USER("getUser") {
+        @Override
+        Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException {
+            return momCA.getUser(corpus.getUserId(random.nextInt(corpus.getUserCount())));
+        }
+    },
+    LIST_USERS("listUsers") {
+        @Override
+        Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException {
+            return momCA.listUsers();
+        }
+    };
+
+    @NotNull
+    private final String methodName;
+
+    Operation(@NotNull String methodName) {
+        this.methodName = methodName;
+    }
+
+    @NotNull
+    static Operation fromMethodName(@NotNull String methodName) {
+
+        for (Operation operation : values()) {
+            if (operation.methodName.equals(methodName)) {
+                return operation;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("'%s' is not an operation of the load test.", methodName));
+
+    }
+
+    @NotNull
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return The result of the call, so it can't be optimized away.
+     */
+    abstract Object call(@NotNull MomCA momCA, @NotNull SyntheticCorpus corpus, @NotNull Random random) throws MomCAException;
+
+}
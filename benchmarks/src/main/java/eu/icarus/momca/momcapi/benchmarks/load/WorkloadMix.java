@@ -0,0 +1,106 @@
+package eu.icarus.momca.momcapi.benchmarks.load;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The share of each operation in the calls of the load test, e.g.
+ * {@code getPublishedCharters:40,getSavedCharters:15,getPrivateCharters:15,getUser:25,listUsers:5}.
+ */
+final class WorkloadMix {
+
+    static final String DEFAULT = "getPublishedCharters:40,getSavedCharters:15,getPrivateCharters:15,getUser:25,listUsers:5";
+    @NotNull
+    private final int[] cumulativeWeights;
+    @NotNull
+    private final Operation[] operations;
+    @NotNull
+    private final Map<Operation, Integer> weights;
+
+    private WorkloadMix(@NotNull Map<Operation, Integer> weights) {
+
+        this.weights = Collections.unmodifiableMap(weights);
+        this.operations = weights.keySet().toArray(new Operation[weights.size()]);
+        this.cumulativeWeights = new int[operations.length];
+
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+
+    }
+
+    /**
+     * @param mix Comma-separated pairs of method name and weight. Operations left out aren't called.
+     */
+    @NotNull
+    static WorkloadMix parse(@NotNull String mix) {
+
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        for (String entry : mix.split(",")) {
+
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(String.format("'%s' is not of the form 'operation:weight'.", entry));
+            }
+
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException(String.format("Weight of '%s' is negative.", parts[0]));
+            }
+
+            if (weight > 0) {
+                weights.merge(Operation.fromMethodName(parts[0].trim()), weight, Integer::sum);
+            }
+
+        }
+
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException(String.format("Mix '%s' doesn't call any operation.", mix));
+        }
+
+        return new WorkloadMix(weights);
+
+    }
+
+    @NotNull
+    Map<Operation, Integer> getWeights() {
+        return weights;
+    }
+
+    @NotNull
+    Operation next(@NotNull Random random) {
+
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        int i = 0;
+        while (value >= cumulativeWeights[i]) {
+            i++;
+        }
+
+        return operations[i];
+
+    }
+
+    @Override
+    public String toString() {
+
+        StringBuilder mix = new StringBuilder();
+        weights.forEach((operation, weight) -> {
+            if (mix.length() > 0) {
+                mix.append(',');
+            }
+            mix.append(operation.getMethodName()).append(':').append(weight);
+        });
+
+        return mix.toString();
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package eu.icarus.momca.momcapi.resource;
+
+import eu.icarus.momca.momcapi.CorpusGenerator;
+import nu.xom.ParsingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating every {@link XpathQuery} on a parsed resource. The charter queries run on a charter, all others on a
+ * user. Lives in the package of {@link ExistResource} to call the package-private
+ * {@link ExistResource#queryContentXml(XpathQuery)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+public class QueryContentXmlBenchmark {
+
+    private ExistResource evaluatedResource;
+    private ExistResource memoizedResource;
+    @Param({"QUERY_ATOM_ID", "QUERY_NAME", "QUERY_XRX_BOOKMARK", "QUERY_XRX_EMAIL", "QUERY_XRX_MODERATOR",
+            "QUERY_XRX_NAME", "QUERY_XRX_SAVED"})
+    private XpathQuery query;
+
+    /**
+     * The document was handed out, so the results aren't memoized and the query is evaluated every time.
+     */
+    @Benchmark
+    public List<String> evaluate() {
+        return evaluatedResource.queryContentXml(query);
+    }
+
+    @Benchmark
+    public List<String> memoized() {
+        return memoizedResource.queryContentXml(query);
+    }
+
+    @Setup
+    public void setUp() throws ParsingException, IOException {
+
+        CorpusGenerator generator = new CorpusGenerator(CorpusGenerator.DEFAULT_SEED);
+
+        String name;
+        String parentUri;
+        String content;
+
+        if (query == XpathQuery.QUERY_ATOM_ID) {
+            name = "Charter_0000001.cei.xml";
+            parentUri = "/db/mom-data/metadata.charter.public/ARCHIVE-0000/Fond_00";
+            content = generator.createCharter(CorpusGenerator.createAtomId(1), 10);
+        } else {
+            name = CorpusGenerator.createUserId(1) + ".xml";
+            parentUri = "/db/mom-data/xrx.user";
+            content = generator.createUser(CorpusGenerator.createUserId(1), CorpusGenerator.createUserId(0),
+                    Arrays.asList(CorpusGenerator.createAtomId(1), CorpusGenerator.createAtomId(2)),
+                    Arrays.asList(CorpusGenerator.createAtomId(3), CorpusGenerator.createAtomId(4)));
+        }
+
+        evaluatedResource = new ExistResource(name, parentUri, content);
+        evaluatedResource.getXmlAsDocument();
+
+        memoizedResource = new ExistResource(name, parentUri, content);
+
+    }
+
+}
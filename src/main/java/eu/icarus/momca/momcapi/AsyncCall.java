@@ -0,0 +1,95 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A call of {@link MomCAAsync} running on an executor. Unlike a plain {@link CompletableFuture}, cancelling the call
+ * with {@code mayInterruptIfRunning} interrupts the thread running it.
+ */
+final class AsyncCall<T> extends CompletableFuture<T> {
+
+    @NotNull
+    private final Action<T> action;
+    @Nullable
+    private Thread runner;
+
+    private AsyncCall(@NotNull Action<T> action) {
+        this.action = action;
+    }
+
+    /**
+     * @return The call, completed exceptionally with a {@link RejectedExecutionException} if the executor doesn't
+     * accept it.
+     */
+    @NotNull
+    static <T> AsyncCall<T> submit(@NotNull Executor executor, @NotNull Action<T> action) {
+
+        AsyncCall<T> call = new AsyncCall<>(action);
+
+        try {
+            executor.execute(call::run);
+        } catch (RejectedExecutionException e) {
+            call.completeExceptionally(e);
+        }
+
+        return call;
+
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+        if (cancelled && mayInterruptIfRunning) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+
+        return cancelled;
+
+    }
+
+    private void run() {
+
+        synchronized (this) {
+            // cancelled before the executor got to it
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+
+        try {
+            complete(action.run());
+        } catch (Throwable e) {
+            completeExceptionally(e);
+        } finally {
+
+            synchronized (this) {
+                runner = null;
+            }
+
+            // an interrupt meant for this call mustn't hit the next task of a pooled thread
+            Thread.interrupted();
+
+        }
+
+    }
+
+    @FunctionalInterface
+    interface Action<T> {
+
+        T run() throws Exception;
+
+    }
+
+}
@@ -0,0 +1,498 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent index mapping charter atom ids to the uris of the documents in the database, so charters can be fetched
+ * directly instead of being searched by a query.
+ * <p>
+ * The index file is memory-mapped and never loaded into the heap. It contains a table of record offsets followed by the
+ * records sorted by the UTF-8 bytes of their atom ids, so a lookup is a binary search over the mapped file. An atom id
+ * can map to several documents, e.g. to the imported and the published version of a charter.
+ * <p>
+ * Changes are kept in memory until {@link #flush()} rewrites the file. The index is a hint: documents it points to are
+ * checked after fetching them, and {@link MomCA} falls back to a query if the index misses or turns out to be stale.
+ * <p>
+ * Lookups don't lock. Writers are serialized; a flush publishes the new file together with empty pending changes, so
+ * a lookup sees either the old file and its changes or the new file.
+ * <p>
+ * A closed index rejects all lookups and changes with an {@link IllegalStateException}; pending changes that weren't
+ * flushed before are discarded.
+ */
+public class AtomIdIndex implements Closeable {
+
+    private static final int HEADER_SIZE = 12;
+    private static final int MAGIC = 0x4d494458;
+    private static final int MAX_VALUE_LENGTH = 0xFFFF;
+    private static final int VERSION = 1;
+    @NotNull
+    private final Path file;
+    @NotNull
+    private volatile Generation generation;
+
+    private AtomIdIndex(@NotNull Path file, @NotNull MappedFile mappedFile) {
+        this.file = file;
+        this.generation = new Generation(mappedFile);
+    }
+
+    /**
+     * Opens the index stored in the file. If the file doesn't exist yet, the index is empty and the file is created by
+     * the first {@link #flush()}.
+     *
+     * @throws IOException if the file can't be read or isn't an atom id index.
+     */
+    @NotNull
+    public static AtomIdIndex open(@NotNull Path file) throws IOException {
+        return new AtomIdIndex(file, Files.exists(file) ? MappedFile.map(file) : MappedFile.EMPTY);
+    }
+
+    /**
+     * Writes an index file containing the locations, replacing an existing file.
+     */
+    public static void write(@NotNull Path file, @NotNull Collection<Location> locations) throws IOException {
+
+        List<Record> records = new ArrayList<>(locations.size());
+        locations.forEach(location -> records.add(new Record(location)));
+        records.sort((record1, record2) -> compare(record1.key, record2.key));
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(records.size());
+
+                long offset = HEADER_SIZE + 4L * records.size();
+                for (Record record : records) {
+                    if (offset > Integer.MAX_VALUE) {
+                        throw new IOException("The atom id index exceeds the maximum size of 2 GB.");
+                    }
+                    out.writeInt((int) offset);
+                    offset += record.size();
+                }
+
+                for (Record record : records) {
+                    out.writeShort(record.key.length);
+                    out.write(record.key);
+                    out.writeByte(record.status.ordinal());
+                    out.writeShort(record.uri.length);
+                    out.write(record.uri);
+                }
+
+            }
+
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+    }
+
+    private static int compare(@NotNull byte[] bytes1, @NotNull byte[] bytes2) {
+
+        int length = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return bytes1.length - bytes2.length;
+
+    }
+
+    @Override
+    public synchronized void close() {
+        // the mapping is released when the buffer is garbage collected, there's no way to unmap it explicitly
+        generation = Generation.CLOSED;
+    }
+
+    /**
+     * Writes the pending changes to the index file and maps the new file.
+     */
+    public synchronized void flush() throws IOException {
+
+        Generation current = currentGeneration();
+
+        if (current.changesByUri.isEmpty() && Files.exists(file)) {
+            return;
+        }
+
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < current.mappedFile.size; i++) {
+            Location location = current.mappedFile.read(i);
+            if (!current.changesByUri.containsKey(location.getUri())) {
+                locations.add(location);
+            }
+        }
+        current.changesByUri.values().forEach(change -> change.ifPresent(locations::add));
+
+        write(file, locations);
+        generation = new Generation(MappedFile.map(file));
+
+    }
+
+    @NotNull
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return The number of added, replaced or removed uris not yet written to the file.
+     */
+    public int getPendingChangeCount() {
+        return currentGeneration().changesByUri.size();
+    }
+
+    /**
+     * @return The locations of all documents with the atom id.
+     */
+    @NotNull
+    public List<Location> lookup(@NotNull CharterAtomId atomId) {
+
+        String key = atomId.getAtomId();
+        Generation current = currentGeneration();
+
+        List<Location> indexedLocations = current.mappedFile.find(key);
+        Set<String> addedUris = current.urisByAtomId.getOrDefault(key, Collections.emptySet());
+        List<Location> locations = new ArrayList<>(indexedLocations.size() + addedUris.size());
+
+        // every uri is decided by a single read of its change, so a concurrent change is seen completely or not at all
+        for (Location location : indexedLocations) {
+            Optional<Location> change = current.changesByUri.get(location.getUri());
+            if (change == null) {
+                locations.add(location);
+            } else {
+                change.filter(changed -> changed.getAtomId().equals(key)).ifPresent(locations::add);
+            }
+        }
+
+        for (String uri : addedUris) {
+            Optional<Location> change = current.changesByUri.get(uri);
+            if (change != null && indexedLocations.stream().noneMatch(location -> location.getUri().equals(uri))) {
+                change.filter(changed -> changed.getAtomId().equals(key)).ifPresent(locations::add);
+            }
+        }
+
+        return locations;
+
+    }
+
+    /**
+     * Maps the atom id to the document, replacing the former mapping of the document's uri.
+     */
+    public synchronized void put(@NotNull CharterAtomId atomId, @NotNull CharterStatus status, @NotNull String uri) {
+
+        Location location = new Location(atomId.getAtomId(), status, uri);
+        Generation current = currentGeneration();
+
+        // the uri is registered for the atom id first, so lookups find the change as soon as it is published
+        current.urisByAtomId.computeIfAbsent(location.getAtomId(), key -> ConcurrentHashMap.newKeySet()).add(uri);
+        current.changesByUri.put(uri, Optional.of(location));
+
+    }
+
+    /**
+     * Removes the mapping of the document, e.g. because it was deleted.
+     */
+    public synchronized void remove(@NotNull String uri) {
+        currentGeneration().changesByUri.put(uri, Optional.empty());
+    }
+
+    /**
+     * @return The number of mappings in the index file, not counting pending changes.
+     */
+    public int size() {
+        return currentGeneration().mappedFile.size;
+    }
+
+    @Override
+    public String toString() {
+
+        Generation current = generation;
+        if (current == Generation.CLOSED) {
+            return "AtomIdIndex{" +
+                    "file=" + file +
+                    ", closed" +
+                    '}';
+        }
+
+        return "AtomIdIndex{" +
+                "file=" + file +
+                ", size=" + current.mappedFile.size +
+                ", pendingChangeCount=" + current.changesByUri.size() +
+                '}';
+
+    }
+
+    /**
+     * @throws IllegalStateException if the index is closed.
+     */
+    @NotNull
+    private Generation currentGeneration() {
+
+        Generation current = generation;
+        if (current == Generation.CLOSED) {
+            throw new IllegalStateException(String.format("The atom id index '%s' is closed.", file));
+        }
+
+        return current;
+
+    }
+
+    /**
+     * The location of a document with a specific atom id.
+     */
+    public static final class Location {
+
+        @NotNull
+        private final String atomId;
+        @NotNull
+        private final CharterStatus status;
+        @NotNull
+        private final String uri;
+
+        public Location(@NotNull String atomId, @NotNull CharterStatus status, @NotNull String uri) {
+            this.atomId = atomId;
+            this.status = status;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Location location = (Location) o;
+            return atomId.equals(location.atomId) && status == location.status && uri.equals(location.uri);
+        }
+
+        @NotNull
+        public String getAtomId() {
+            return atomId;
+        }
+
+        @NotNull
+        public CharterStatus getStatus() {
+            return status;
+        }
+
+        @NotNull
+        public String getUri() {
+            return uri;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(atomId, status, uri);
+        }
+
+        @Override
+        public String toString() {
+            return "Location{" +
+                    "atomId='" + atomId + '\'' +
+                    ", status=" + status +
+                    ", uri='" + uri + '\'' +
+                    '}';
+        }
+
+    }
+
+    /**
+     * The index file and the changes made since it was written. Lookups read the file and the changes of the same
+     * generation, a flush replaces both at once.
+     */
+    private static final class Generation {
+
+        /**
+         * The generation of a closed index.
+         */
+        private static final Generation CLOSED = new Generation(MappedFile.EMPTY);
+        /**
+         * The new location of every changed uri, nothing if the uri was removed.
+         */
+        @NotNull
+        private final Map<String, Optional<Location>> changesByUri;
+        @NotNull
+        private final MappedFile mappedFile;
+        /**
+         * The uris ever put for an atom id since the file was written. A uri may be mapped to another atom id by now,
+         * so lookups check its current change.
+         */
+        @NotNull
+        private final Map<String, Set<String>> urisByAtomId;
+
+        private Generation(@NotNull MappedFile mappedFile) {
+            this.changesByUri = new ConcurrentHashMap<>();
+            this.mappedFile = mappedFile;
+            this.urisByAtomId = new ConcurrentHashMap<>();
+        }
+
+    }
+
+    private static final class MappedFile {
+
+        private static final MappedFile EMPTY = new MappedFile(ByteBuffer.allocate(HEADER_SIZE), 0);
+        private static final CharterStatus[] STATUSES = CharterStatus.values();
+        @NotNull
+        private final ByteBuffer buffer;
+        private final int size;
+
+        private MappedFile(@NotNull ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        @NotNull
+        static MappedFile map(@NotNull Path file) throws IOException {
+
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(String.format("'%s' is not an atom id index.", file));
+            }
+
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(String.format("The atom id index '%s' has the unsupported version %d.", file, buffer.getInt(4)));
+            }
+
+            return new MappedFile(buffer, buffer.getInt(8));
+
+        }
+
+        /**
+         * Finds all records of the key by a binary search for the first one. Only absolute reads are used, so the
+         * buffer is safely shared by all threads.
+         */
+        @NotNull
+        List<Location> find(@NotNull String atomId) {
+
+            byte[] key = atomId.getBytes(StandardCharsets.UTF_8);
+
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareKey(middle, key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            List<Location> locations = new ArrayList<>(1);
+            for (int i = low; i < size && compareKey(i, key) == 0; i++) {
+                locations.add(read(i));
+            }
+
+            return locations;
+
+        }
+
+        @NotNull
+        Location read(int index) {
+
+            int position = recordPosition(index);
+            int keyLength = buffer.getShort(position) & MAX_VALUE_LENGTH;
+            String atomId = readString(position + 2, keyLength);
+
+            position += 2 + keyLength;
+            CharterStatus status = STATUSES[buffer.get(position)];
+            int uriLength = buffer.getShort(position + 1) & MAX_VALUE_LENGTH;
+            String uri = readString(position + 3, uriLength);
+
+            return new Location(atomId, status, uri);
+
+        }
+
+        private int compareKey(int index, @NotNull byte[] key) {
+
+            int position = recordPosition(index);
+            int keyLength = buffer.getShort(position) & MAX_VALUE_LENGTH;
+
+            int length = Math.min(keyLength, key.length);
+            for (int i = 0; i < length; i++) {
+                int difference = (buffer.get(position + 2 + i) & 0xFF) - (key[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+
+            return keyLength - key.length;
+
+        }
+
+        @NotNull
+        private String readString(int position, int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int recordPosition(int index) {
+            return buffer.getInt(HEADER_SIZE + 4 * index);
+        }
+
+    }
+
+    private static final class Record {
+
+        @NotNull
+        private final byte[] key;
+        @NotNull
+        private final CharterStatus status;
+        @NotNull
+        private final byte[] uri;
+
+        private Record(@NotNull Location location) {
+
+            this.key = location.getAtomId().getBytes(StandardCharsets.UTF_8);
+            this.status = location.getStatus();
+            this.uri = location.getUri().getBytes(StandardCharsets.UTF_8);
+
+            if (key.length > MAX_VALUE_LENGTH || uri.length > MAX_VALUE_LENGTH) {
+                throw new IllegalArgumentException(String.format("%s is too long to be indexed.", location));
+            }
+
+        }
+
+        private int size() {
+            return 2 + key.length + 1 + 2 + uri.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores resources grouped by their target collection. Missing collections are created once before their resources
+ * are stored. The resources of a collection are split into batches, which are stored in parallel, so the round trips
+ * of several batches overlap instead of being paid one after the other.
+ */
+final class BatchWriter {
+
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final int DEFAULT_PARALLELISM = 4;
+    private final int batchSize;
+    private final int parallelism;
+    @NotNull
+    private final StoreTarget target;
+
+    BatchWriter(@NotNull StoreTarget target, int batchSize, int parallelism) {
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size has to be positive.");
+        }
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism of the batch writer has to be positive.");
+        }
+
+        this.target = target;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+
+    }
+
+    /**
+     * @param resourcesByCollection The resources to store keyed by the path of their target collection.
+     */
+    @NotNull
+    StoreReport write(@NotNull Map<String, List<ExistResource>> resourcesByCollection) throws MomCAException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, createThreadFactory());
+
+        try {
+
+            List<Future<StoreReport.Batch>> batches = new ArrayList<>();
+
+            for (Map.Entry<String, List<ExistResource>> entry : resourcesByCollection.entrySet()) {
+
+                String collectionPath = entry.getKey();
+                List<ExistResource> resources = entry.getValue();
+
+                MomCAException collectionFailure = null;
+                try {
+                    target.ensureCollection(collectionPath);
+                } catch (MomCAException e) {
+                    collectionFailure = e;
+                }
+
+                for (int start = 0; start < resources.size(); start += batchSize) {
+
+                    List<ExistResource> batch = resources.subList(start, Math.min(start + batchSize, resources.size()));
+
+                    if (collectionFailure == null) {
+                        batches.add(executor.submit(() -> storeBatch(collectionPath, batch)));
+                    } else {
+                        batches.add(CompletableFuture.completedFuture(failBatch(collectionPath, batch, collectionFailure)));
+                    }
+
+                }
+
+            }
+
+            List<StoreReport.Batch> results = new ArrayList<>(batches.size());
+            for (Future<StoreReport.Batch> batch : batches) {
+                results.add(batch.get());
+            }
+
+            return new StoreReport(results);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MomCAException("Storing the resources was interrupted.");
+        } catch (ExecutionException e) {
+            // failures of single resources are caught while storing a batch, so only errors end up here
+            throw new IllegalStateException("Failed to store a batch of resources.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @NotNull
+    private static ThreadFactory createThreadFactory() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "momca-store-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+    }
+
+    @NotNull
+    private StoreReport.Batch failBatch(@NotNull String collectionPath, @NotNull List<ExistResource> batch, @NotNull MomCAException cause) {
+
+        Map<String, MomCAException> failures = new LinkedHashMap<>();
+        batch.forEach(resource -> failures.put(collectionPath + "/" + resource.getName(), cause));
+        return new StoreReport.Batch(collectionPath, batch.size(), failures, 0);
+
+    }
+
+    @NotNull
+    private StoreReport.Batch storeBatch(@NotNull String collectionPath, @NotNull List<ExistResource> batch) {
+
+        long start = System.nanoTime();
+        Map<String, MomCAException> failures = new LinkedHashMap<>();
+
+        for (ExistResource resource : batch) {
+
+            String uri = collectionPath + "/" + resource.getName();
+
+            try {
+                target.store(collectionPath, resource.getName(), resource.getXmlAsString());
+            } catch (MomCAException e) {
+                failures.put(uri, e);
+            } catch (RuntimeException e) {
+                failures.put(uri, new MomCAException(String.format("Failed to serialize resource '%s'.", uri), e));
+            }
+
+        }
+
+        return new StoreReport.Batch(collectionPath, batch.size(), failures, System.nanoTime() - start);
+
+    }
+
+    /**
+     * Creates collections and stores resources in the database.
+     */
+    interface StoreTarget {
+
+        /**
+         * Creates the collection including its missing ancestors, if it doesn't exist yet.
+         */
+        void ensureCollection(@NotNull String collectionPath) throws MomCAException;
+
+        /**
+         * Stores the content, replacing an existing resource of the same name. Called concurrently.
+         */
+        void store(@NotNull String collectionPath, @NotNull String resourceName, @NotNull String content) throws MomCAException;
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A document that was created, modified or removed, as reported by a {@link ChangeFeed}.
+ */
+public class Change {
+
+    private static final String PATH_USER = "/db/mom-data/xrx.user";
+    @NotNull
+    private final Kind kind;
+    @Nullable
+    private final Instant lastModified;
+    @NotNull
+    private final String uri;
+
+    Change(@NotNull Kind kind, @NotNull String uri, @Nullable Instant lastModified) {
+        this.kind = kind;
+        this.uri = uri;
+        this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Change change = (Change) o;
+        return kind == change.kind && uri.equals(change.uri) && Objects.equals(lastModified, change.lastModified);
+    }
+
+    /**
+     * @return The status of the charter or nothing, if the document isn't a charter.
+     */
+    @NotNull
+    public Optional<CharterStatus> getCharterStatus() {
+
+        CharterStatus status = null;
+
+        if (uri.startsWith(PATH_USER + "/")) {
+            if (uri.contains("/metadata.charter/")) {
+                status = CharterStatus.PRIVATE;
+            }
+        } else {
+            for (CharterStatus candidate : CharterStatus.values()) {
+                if (uri.contains("/" + candidate.getParentCollection() + "/")) {
+                    status = candidate;
+                    break;
+                }
+            }
+        }
+
+        return Optional.ofNullable(status);
+
+    }
+
+    @NotNull
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The modification time of the document or nothing, if it was removed.
+     */
+    @NotNull
+    public Optional<Instant> getLastModified() {
+        return Optional.ofNullable(lastModified);
+    }
+
+    @NotNull
+    public String getUri() {
+        return uri;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, uri, lastModified);
+    }
+
+    /**
+     * @return {@code true} if the document is a user, i.e. a resource of the user collection itself.
+     */
+    public boolean isUser() {
+        return uri.startsWith(PATH_USER + "/") && uri.indexOf('/', PATH_USER.length() + 1) == -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Change{" +
+                "kind=" + kind +
+                ", uri='" + uri + '\'' +
+                ", lastModified=" + lastModified +
+                '}';
+    }
+
+    public enum Kind {
+        CREATED, MODIFIED, REMOVED
+    }
+
+}
@@ -0,0 +1,478 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Reports the documents created, modified or removed in a set of collections since the last poll, so caches and search
+ * indexes can be refreshed in proportion to the number of changes instead of the size of the database.
+ * <p>
+ * For every collection the feed keeps a high-water mark, the latest modification time seen so far, and the uris of the
+ * known documents. A poll asks the server for the documents modified since the high-water mark, for the number of
+ * documents in the collection and for a checksum of their uris, the sum of {@link #uriChecksum(String)} of every uri.
+ * Documents aren't transferred, only their uris. Removals are detected by comparing the number and the checksum of the
+ * known documents plus the created ones with the current ones. Only if these differ are all uris of the collection
+ * listed to find out which documents were removed. The checksum catches a removal that coincides with a creation the
+ * modification times don't reveal, e.g. a document restored from a backup, which keeps the number of documents.
+ * <p>
+ * The transferred data grows with the number of changes, but the server still visits every document of a tracked
+ * collection on every poll to count it, sum the checksum and compare its modification time. Polling is therefore
+ * O(documents) on the server, which is why the tracked collections should be as narrow as the consumer allows.
+ * <p>
+ * The state is saved to a checkpoint file after every poll that found changes. The known uris are appended to a
+ * journal next to the checkpoint file, so a poll writes only the changes. If the process dies during a poll, changes
+ * can be reported again by the next poll, but they are never lost. The first poll reports all documents as created.
+ */
+public class ChangeFeed {
+
+    private static final String JOURNAL_SUFFIX = ".uris";
+    private static final int MIN_COMPACTION_LINES = 1024;
+    private static final String PROPERTY_HIGH_WATER_MARK = ".highWaterMark";
+    private static final String PROPERTY_URIS_AT_HIGH_WATER_MARK = ".urisAtHighWaterMark";
+    @NotNull
+    private final Path checkpointFile;
+    @NotNull
+    private final Map<String, CollectionState> collections = new LinkedHashMap<>();
+    @NotNull
+    private final Path journalFile;
+    @NotNull
+    private final ChangeSource source;
+    private int journalLineCount = 0;
+    private long pollCount = 0;
+
+    /**
+     * @param collectionPaths The paths of the tracked collections. The collections include their child collections, so
+     *                        they must not be nested.
+     */
+    ChangeFeed(@NotNull ChangeSource source, @NotNull Path checkpointFile, @NotNull List<String> collectionPaths) throws MomCAException {
+
+        this.source = source;
+        this.checkpointFile = checkpointFile;
+        this.journalFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + JOURNAL_SUFFIX);
+
+        collectionPaths.forEach(path -> collections.put(path, new CollectionState()));
+
+        try {
+            loadCheckpoint();
+        } catch (IOException | RuntimeException e) {
+            throw new MomCAException(String.format("Failed to read the checkpoint '%s'.", checkpointFile), e);
+        }
+
+    }
+
+    /**
+     * @return The first four bytes of the MD5 hash of the uri's UTF-8 encoding as an unsigned number, the same value
+     * as {@code util:base-to-integer(substring(util:hash($uri, 'md5'), 1, 8), 16)} on the server.
+     */
+    static long uriChecksum(@NotNull String uri) {
+
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("MD5").digest(uri.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 isn't supported.", e);
+        }
+
+        return ((hash[0] & 0xFFL) << 24) | ((hash[1] & 0xFFL) << 16) | ((hash[2] & 0xFFL) << 8) | (hash[3] & 0xFFL);
+
+    }
+
+    @NotNull
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * @return The latest modification time seen in the collection or nothing, if the collection wasn't polled yet.
+     */
+    @NotNull
+    public synchronized Optional<Instant> getHighWaterMark(@NotNull String collectionPath) {
+        CollectionState state = collections.get(collectionPath);
+        return state == null || state.highWaterMark == 0 ? Optional.empty() : Optional.of(Instant.ofEpochMilli(state.highWaterMark));
+    }
+
+    /**
+     * @return The number of known documents in all tracked collections.
+     */
+    public synchronized int getKnownDocumentCount() {
+        return collections.values().stream().mapToInt(state -> state.knownUris.size()).sum();
+    }
+
+    public synchronized long getPollCount() {
+        return pollCount;
+    }
+
+    /**
+     * Queries all tracked collections and saves the checkpoint before the changes are returned. If a query or saving
+     * the checkpoint fails, no changes are consumed and the next poll reports them again.
+     *
+     * @return The changes since the last poll, ordered by collection. Created and modified documents of a collection
+     * are ordered by modification time.
+     */
+    @NotNull
+    public synchronized List<Change> poll() throws MomCAException {
+
+        pollCount++;
+
+        List<CollectionUpdate> updates = new ArrayList<>(collections.size());
+        for (Map.Entry<String, CollectionState> entry : collections.entrySet()) {
+            updates.add(queryCollection(entry.getKey(), entry.getValue()));
+        }
+
+        List<Change> changes = new ArrayList<>();
+        updates.forEach(update -> changes.addAll(update.changes));
+
+        if (!changes.isEmpty()) {
+
+            try {
+                saveCheckpoint(updates);
+            } catch (IOException e) {
+                throw new MomCAException(String.format("Failed to write the checkpoint '%s'.", checkpointFile), e);
+            }
+
+            updates.forEach(CollectionUpdate::apply);
+
+        }
+
+        return changes;
+
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ChangeFeed{" +
+                "checkpointFile=" + checkpointFile +
+                ", collections=" + collections.keySet() +
+                ", knownDocumentCount=" + getKnownDocumentCount() +
+                ", pollCount=" + pollCount +
+                '}';
+    }
+
+    @NotNull
+    private CollectionState findCollection(@NotNull String uri) {
+
+        for (Map.Entry<String, CollectionState> entry : collections.entrySet()) {
+            if (uri.startsWith(entry.getKey() + "/")) {
+                return entry.getValue();
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("'%s' isn't part of a tracked collection.", uri));
+
+    }
+
+    private void loadCheckpoint() throws IOException {
+
+        if (Files.exists(checkpointFile)) {
+
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+
+            for (Map.Entry<String, CollectionState> entry : collections.entrySet()) {
+
+                String highWaterMark = properties.getProperty(entry.getKey() + PROPERTY_HIGH_WATER_MARK, "0");
+                String urisAtHighWaterMark = properties.getProperty(entry.getKey() + PROPERTY_URIS_AT_HIGH_WATER_MARK, "");
+
+                entry.getValue().highWaterMark = Long.parseLong(highWaterMark);
+                if (!urisAtHighWaterMark.isEmpty()) {
+                    Collections.addAll(entry.getValue().urisAtHighWaterMark, urisAtHighWaterMark.split("\t"));
+                }
+
+            }
+
+        }
+
+        if (Files.exists(journalFile)) {
+
+            for (String line : Files.readAllLines(journalFile, StandardCharsets.UTF_8)) {
+
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                String uri = line.substring(1);
+                if (line.charAt(0) == '+') {
+                    findCollection(uri).addKnownUri(uri);
+                } else {
+                    findCollection(uri).removeKnownUri(uri);
+                }
+
+                journalLineCount++;
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Determines the changes of a collection without modifying its state.
+     */
+    @NotNull
+    private CollectionUpdate queryCollection(@NotNull String path, @NotNull CollectionState state) throws MomCAException {
+
+        ModifiedDocuments modified = source.listModifiedSince(path, state.highWaterMark);
+        CollectionUpdate update = new CollectionUpdate(path, state);
+
+        List<Map.Entry<String, Long>> modifiedDocuments = new ArrayList<>(modified.getLastModifiedByUri().entrySet());
+        modifiedDocuments.sort(Map.Entry.comparingByValue());
+
+        for (Map.Entry<String, Long> document : modifiedDocuments) {
+
+            String uri = document.getKey();
+            long lastModified = document.getValue();
+
+            // documents modified at the high-water mark are listed again, as they might have been missed at the last poll
+            if (lastModified == state.highWaterMark && state.urisAtHighWaterMark.contains(uri)) {
+                continue;
+            }
+
+            if (state.knownUris.contains(uri)) {
+                update.changes.add(new Change(Change.Kind.MODIFIED, uri, Instant.ofEpochMilli(lastModified)));
+            } else {
+                update.createdUris.add(uri);
+                update.changes.add(new Change(Change.Kind.CREATED, uri, Instant.ofEpochMilli(lastModified)));
+            }
+
+            if (lastModified > update.highWaterMark) {
+                update.highWaterMark = lastModified;
+                update.urisAtHighWaterMark.clear();
+            }
+            if (lastModified == update.highWaterMark) {
+                update.urisAtHighWaterMark.add(uri);
+            }
+
+        }
+
+        // without removals the collection contains exactly the known and the created documents
+        long expectedChecksum = state.uriChecksum + update.createdUris.stream().mapToLong(ChangeFeed::uriChecksum).sum();
+        if (modified.getDocumentCount() != state.knownUris.size() + update.createdUris.size() || modified.getUriChecksum() != expectedChecksum) {
+
+            Set<String> currentUris = source.listUris(path);
+
+            for (String uri : state.knownUris) {
+                if (!currentUris.contains(uri)) {
+                    update.removedUris.add(uri);
+                    update.urisAtHighWaterMark.remove(uri);
+                    update.changes.add(new Change(Change.Kind.REMOVED, uri, null));
+                }
+            }
+
+            // documents created with an outdated modification time, e.g. restored from a backup
+            for (String uri : currentUris) {
+                if (!state.knownUris.contains(uri) && update.createdUris.add(uri)) {
+                    update.changes.add(new Change(Change.Kind.CREATED, uri, null));
+                }
+            }
+
+        }
+
+        return update;
+
+    }
+
+    private void saveCheckpoint(@NotNull List<CollectionUpdate> updates) throws IOException {
+
+        // the journal is written first, so a checkpoint never refers to uris missing in the journal
+        writeJournal(updates);
+
+        Properties properties = new Properties();
+        for (CollectionUpdate update : updates) {
+            properties.setProperty(update.path + PROPERTY_HIGH_WATER_MARK, Long.toString(update.highWaterMark));
+            properties.setProperty(update.path + PROPERTY_URIS_AT_HIGH_WATER_MARK, String.join("\t", update.urisAtHighWaterMark));
+        }
+
+        Path tempFile = Files.createTempFile(checkpointFile.toAbsolutePath().getParent(), checkpointFile.getFileName().toString(), ".tmp");
+        try {
+
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                properties.store(writer, "MomCA change feed checkpoint");
+            }
+
+            Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+    }
+
+    private void writeJournal(@NotNull List<CollectionUpdate> updates) throws IOException {
+
+        int newLineCount = updates.stream().mapToInt(update -> update.createdUris.size() + update.removedUris.size()).sum();
+        int knownDocumentCount = updates.stream().mapToInt(update -> update.state.knownUris.size() + update.createdUris.size() - update.removedUris.size()).sum();
+
+        if (journalLineCount + newLineCount > Math.max(2 * knownDocumentCount, MIN_COMPACTION_LINES)) {
+
+            // the journal is rewritten as soon as it is mostly made up of outdated lines
+            Path tempFile = Files.createTempFile(journalFile.toAbsolutePath().getParent(), journalFile.getFileName().toString(), ".tmp");
+            try {
+
+                try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    for (CollectionUpdate update : updates) {
+                        for (String uri : update.state.knownUris) {
+                            if (!update.removedUris.contains(uri)) {
+                                writer.write('+' + uri + '\n');
+                            }
+                        }
+                        for (String uri : update.createdUris) {
+                            writer.write('+' + uri + '\n');
+                        }
+                    }
+                }
+
+                Files.move(tempFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                journalLineCount = knownDocumentCount;
+
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+
+        } else if (newLineCount > 0) {
+
+            try (BufferedWriter writer = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (CollectionUpdate update : updates) {
+                    for (String uri : update.createdUris) {
+                        writer.write('+' + uri + '\n');
+                    }
+                    for (String uri : update.removedUris) {
+                        writer.write('-' + uri + '\n');
+                    }
+                }
+            }
+
+            journalLineCount += newLineCount;
+
+        }
+
+    }
+
+    /**
+     * Queries the database for changed documents.
+     */
+    interface ChangeSource {
+
+        /**
+         * @return The uris of all documents in the collection and its child collections.
+         */
+        @NotNull
+        Set<String> listUris(@NotNull String collectionPath) throws MomCAException;
+
+        /**
+         * @param since A modification time in milliseconds. Documents modified exactly at this time are included.
+         */
+        @NotNull
+        ModifiedDocuments listModifiedSince(@NotNull String collectionPath, long since) throws MomCAException;
+
+    }
+
+    /**
+     * The documents modified in a collection, the number of all documents in it and the sum of the
+     * {@link #uriChecksum(String) checksums} of their uris, as evaluated by the same query.
+     */
+    static final class ModifiedDocuments {
+
+        private final int documentCount;
+        @NotNull
+        private final Map<String, Long> lastModifiedByUri;
+        private final long uriChecksum;
+
+        ModifiedDocuments(int documentCount, long uriChecksum, @NotNull Map<String, Long> lastModifiedByUri) {
+            this.documentCount = documentCount;
+            this.uriChecksum = uriChecksum;
+            this.lastModifiedByUri = lastModifiedByUri;
+        }
+
+        int getDocumentCount() {
+            return documentCount;
+        }
+
+        @NotNull
+        Map<String, Long> getLastModifiedByUri() {
+            return lastModifiedByUri;
+        }
+
+        long getUriChecksum() {
+            return uriChecksum;
+        }
+
+    }
+
+    private static final class CollectionUpdate {
+
+        private final List<Change> changes = new ArrayList<>();
+        private final Set<String> createdUris = new HashSet<>();
+        @NotNull
+        private final String path;
+        private final Set<String> removedUris = new HashSet<>();
+        @NotNull
+        private final CollectionState state;
+        private final Set<String> urisAtHighWaterMark;
+        private long highWaterMark;
+
+        private CollectionUpdate(@NotNull String path, @NotNull CollectionState state) {
+            this.path = path;
+            this.state = state;
+            this.highWaterMark = state.highWaterMark;
+            this.urisAtHighWaterMark = new HashSet<>(state.urisAtHighWaterMark);
+        }
+
+        private void apply() {
+            createdUris.forEach(state::addKnownUri);
+            removedUris.forEach(state::removeKnownUri);
+            state.highWaterMark = highWaterMark;
+            state.urisAtHighWaterMark.clear();
+            state.urisAtHighWaterMark.addAll(urisAtHighWaterMark);
+        }
+
+    }
+
+    private static final class CollectionState {
+
+        private final Set<String> knownUris = new HashSet<>();
+        private final Set<String> urisAtHighWaterMark = new HashSet<>();
+        private long highWaterMark = 0;
+        /**
+         * The sum of the checksums of the known uris, kept up to date so a poll doesn't hash all of them.
+         */
+        private long uriChecksum = 0;
+
+        private void addKnownUri(@NotNull String uri) {
+            if (knownUris.add(uri)) {
+                uriChecksum += uriChecksum(uri);
+            }
+        }
+
+        private void removeKnownUri(@NotNull String uri) {
+            if (knownUris.remove(uri)) {
+                uriChecksum -= uriChecksum(uri);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,309 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports all charters below a set of collections into a zip archive. The collection tree is walked by the calling
+ * thread, while the documents are fetched by a fixed number of worker threads. The walk blocks as soon as a few
+ * documents per worker are waiting to be written, so a slow archive never piles up documents in memory.
+ * <p>
+ * Besides the documents the archive contains the entry {@value #MANIFEST_ENTRY}, listing the atom id and the entry name
+ * of every exported charter separated by a tab.
+ */
+final class CharterExporter {
+
+    static final int DEFAULT_PARALLELISM = 4;
+    static final String MANIFEST_ENTRY = "manifest.txt";
+    private static final int DOCUMENTS_IN_FLIGHT_PER_THREAD = 2;
+    @NotNull
+    private final ExportListener listener;
+    private final int parallelism;
+    @NotNull
+    private final ExportSource source;
+
+    CharterExporter(@NotNull ExportSource source, int parallelism, @NotNull ExportListener listener) {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism of the export has to be positive.");
+        }
+
+        this.source = source;
+        this.parallelism = parallelism;
+        this.listener = listener;
+
+    }
+
+    /**
+     * @param rootPaths The paths of the collections to export including all their child collections.
+     * @param basePath  The path the entry names in the archive are relative to.
+     * @param archive   The zip file to create. An existing file is replaced.
+     */
+    @NotNull
+    ExportResult export(@NotNull List<String> rootPaths, @NotNull String basePath, @NotNull Path archive) throws MomCAException {
+
+        long start = System.nanoTime();
+        int maxDocumentsInFlight = parallelism * DOCUMENTS_IN_FLIGHT_PER_THREAD;
+        Semaphore permits = new Semaphore(maxDocumentsInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, createThreadFactory());
+
+        try (ArchiveWriter writer = new ArchiveWriter(archive, basePath, start)) {
+
+            Deque<String> pendingCollections = new ArrayDeque<>(rootPaths);
+
+            while (!pendingCollections.isEmpty() && !writer.isAborted()) {
+
+                String collectionPath = pendingCollections.pop();
+
+                for (String resourceName : source.listResources(collectionPath)) {
+
+                    permits.acquire();
+
+                    if (writer.isAborted()) {
+                        permits.release();
+                        break;
+                    }
+
+                    executor.execute(() -> {
+                        try {
+                            writer.export(collectionPath, resourceName);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+
+                }
+
+                for (String childName : source.listChildCollections(collectionPath)) {
+                    pendingCollections.push(collectionPath + "/" + childName);
+                }
+
+            }
+
+            // all permits are back as soon as the last document is written
+            permits.acquire(maxDocumentsInFlight);
+            writer.finish();
+
+            return new ExportResult(archive, writer.getExportedCount(), writer.getFailedUris(), System.nanoTime() - start);
+
+        } catch (IOException e) {
+            throw new MomCAException(String.format("Failed to write archive '%s'.", archive), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MomCAException(String.format("The export to '%s' was interrupted.", archive));
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @NotNull
+    private static ThreadFactory createThreadFactory() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "momca-export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+    }
+
+    /**
+     * Lists and reads the resources to export.
+     */
+    interface ExportSource {
+
+        /**
+         * @return The names of the child collections or an empty list, if the collection doesn't exist.
+         */
+        @NotNull
+        List<String> listChildCollections(@NotNull String collectionPath) throws MomCAException;
+
+        /**
+         * @return The names of the resources or an empty list, if the collection doesn't exist.
+         */
+        @NotNull
+        List<String> listResources(@NotNull String collectionPath) throws MomCAException;
+
+        /**
+         * @return The content of the resource or nothing, if it was removed in the meantime. Called concurrently.
+         */
+        @NotNull
+        Optional<String> getContent(@NotNull String collectionPath, @NotNull String resourceName) throws MomCAException;
+
+    }
+
+    private final class ArchiveWriter implements Closeable {
+
+        @NotNull
+        private final String basePath;
+        private final List<String> failedUris = new ArrayList<>();
+        @NotNull
+        private final BufferedWriter manifest;
+        @NotNull
+        private final Path manifestFile;
+        private final long start;
+        @NotNull
+        private final ZipOutputStream zip;
+        private volatile boolean closed = false;
+        private long exportedCount = 0;
+        @Nullable
+        private volatile IOException writeFailure;
+
+        private ArchiveWriter(@NotNull Path archive, @NotNull String basePath, long start) throws IOException {
+
+            this.basePath = basePath;
+            this.start = start;
+
+            // the manifest is buffered on disk, as it would take up hundreds of megabytes for the whole database
+            this.manifestFile = Files.createTempFile("momca-export-", ".manifest");
+            this.manifest = Files.newBufferedWriter(manifestFile, StandardCharsets.UTF_8);
+            this.zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)), StandardCharsets.UTF_8);
+
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+
+            if (!closed) {
+
+                closed = true;
+
+                try {
+                    zip.close();
+                } finally {
+                    manifest.close();
+                    Files.deleteIfExists(manifestFile);
+                }
+
+            }
+
+        }
+
+        /**
+         * Fetches a document and writes it to the archive. Failures to read the document are recorded, failures to
+         * write the archive abort the export.
+         */
+        void export(@NotNull String collectionPath, @NotNull String resourceName) {
+
+            String uri = collectionPath + "/" + resourceName;
+
+            if (isAborted()) {
+                return;
+            }
+
+            try {
+
+                Optional<String> content = source.getContent(collectionPath, resourceName);
+
+                if (content.isPresent()) {
+                    Charter charter = Charter.createFromHeader(ExistResource.createLazily(resourceName, collectionPath, content.get()));
+                    write(toEntryName(uri), content.get().getBytes(StandardCharsets.UTF_8), charter.getAtomId().getAtomId());
+                } else {
+                    recordFailure(uri);
+                }
+
+            } catch (MomCAException | RuntimeException e) {
+                // invalid charters throw an IllegalArgumentException; any document missing in the archive is reported
+                recordFailure(uri);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+
+        }
+
+        /**
+         * Adds the manifest to the archive.
+         *
+         * @throws IOException if writing a document failed before.
+         */
+        synchronized void finish() throws IOException {
+
+            IOException failure = writeFailure;
+            if (failure != null) {
+                throw failure;
+            }
+
+            manifest.flush();
+            zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            Files.copy(manifestFile, zip);
+            zip.closeEntry();
+
+        }
+
+        synchronized long getExportedCount() {
+            return exportedCount;
+        }
+
+        @NotNull
+        synchronized List<String> getFailedUris() {
+            return new ArrayList<>(failedUris);
+        }
+
+        boolean isAborted() {
+            return closed || writeFailure != null;
+        }
+
+        private double getDocumentsPerSecond() {
+            long elapsedNanos = System.nanoTime() - start;
+            return elapsedNanos == 0 ? 0.0 : exportedCount * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        private synchronized void recordFailure(@NotNull String uri) {
+            failedUris.add(uri);
+            listener.onProgress(exportedCount, failedUris.size(), getDocumentsPerSecond());
+        }
+
+        @NotNull
+        private String toEntryName(@NotNull String uri) {
+            return uri.startsWith(basePath + "/") ? uri.substring(basePath.length() + 1) : uri;
+        }
+
+        private synchronized void write(@NotNull String entryName, @NotNull byte[] content, @NotNull String atomId) throws IOException {
+
+            if (closed) {
+                return;
+            }
+
+            zip.putNextEntry(new ZipEntry(entryName));
+            zip.write(content);
+            zip.closeEntry();
+
+            manifest.write(atomId);
+            manifest.write('\t');
+            manifest.write(entryName);
+            manifest.write('\n');
+
+            exportedCount++;
+            listener.onProgress(exportedCount, failedUris.size(), getDocumentsPerSecond());
+
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The few fields of a charter that listings show, evaluated by the database, so neither the document is transferred
+ * nor a XOM document is built on the client. Archive, fond and collection are part of the atom id.
+ *
+ * @see MomCA#streamCharterSummaries(CharterStatus, String, Set)
+ */
+public final class CharterSummary {
+
+    /**
+     * The fields most listings need: idno and date.
+     */
+    public static final Set<Field> DEFAULT_FIELDS = Collections.unmodifiableSet(EnumSet.of(Field.DATE, Field.IDNO));
+    /**
+     * Separates the fields of a summary in the query result. The fields are whitespace-normalized on the server, so it
+     * can't occur in their values.
+     */
+    static final char FIELD_SEPARATOR = '\t';
+    private static final Field[] FIELDS = Field.values();
+    @NotNull
+    private final CharterAtomId atomId;
+    /**
+     * The values by ordinal of their field, {@code null} if the field wasn't requested or is empty.
+     */
+    @NotNull
+    private final String[] fieldValues;
+    @NotNull
+    private final CharterStatus status;
+    @NotNull
+    private final String uri;
+
+    CharterSummary(@NotNull String uri, @NotNull CharterAtomId atomId, @NotNull CharterStatus status, @NotNull String[] fieldValues) {
+        this.uri = uri;
+        this.atomId = atomId;
+        this.status = status;
+        this.fieldValues = fieldValues;
+    }
+
+    /**
+     * Reads a summary from its query result: the URI, the atom id and the values of the requested fields in the order
+     * of {@link Field}, separated by {@link #FIELD_SEPARATOR}.
+     *
+     * @throws IllegalArgumentException if the result doesn't match the fields or the atom id isn't a charter's.
+     */
+    @NotNull
+    static CharterSummary parse(@NotNull String result, @NotNull CharterStatus status, @NotNull Set<Field> fields) {
+
+        String[] parts = result.split(String.valueOf(FIELD_SEPARATOR), -1);
+        if (parts.length != fields.size() + 2) {
+            throw new IllegalArgumentException(String.format("Summary '%s' doesn't have the %d requested fields.", result, fields.size()));
+        }
+
+        String[] fieldValues = new String[FIELDS.length];
+        int index = 2;
+        for (Field field : FIELDS) {
+            if (fields.contains(field)) {
+                String value = parts[index++];
+                fieldValues[field.ordinal()] = value.isEmpty() ? null : value;
+            }
+        }
+
+        // the atom ids of a listing repeat archive and fond, so the interned instance saves their strings
+        return new CharterSummary(parts[0], new CharterAtomId(parts[1]).intern(), status, fieldValues);
+
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CharterSummary that = (CharterSummary) o;
+        return uri.equals(that.uri) && atomId.equals(that.atomId) && status == that.status && Arrays.equals(fieldValues, that.fieldValues);
+    }
+
+    @NotNull
+    public CharterAtomId getAtomId() {
+        return atomId;
+    }
+
+    /**
+     * @return The value of the field or nothing, if the charter doesn't have it or it wasn't requested.
+     */
+    @NotNull
+    public Optional<String> getField(@NotNull Field field) {
+        return Optional.ofNullable(fieldValues[field.ordinal()]);
+    }
+
+    @NotNull
+    public CharterStatus getStatus() {
+        return status;
+    }
+
+    @NotNull
+    public String getUri() {
+        return uri;
+    }
+
+    @Override
+    public int hashCode() {
+        return uri.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CharterSummary{" +
+                "uri='" + uri + '\'' +
+                ", atomId=" + atomId +
+                ", status=" + status +
+                ", fieldValues=" + Arrays.toString(fieldValues) +
+                '}';
+    }
+
+    /**
+     * The fields a summary can hold besides URI and atom id, with the XPath evaluating them relative to the
+     * {@code atom:entry} of the charter. Only the first match of a path is used.
+     */
+    public enum Field {
+
+        /**
+         * The abstract, which is by far the largest field.
+         */
+        ABSTRACT(".//cei:body/cei:chDesc/cei:abstract"),
+        /**
+         * The normalized date, e.g. {@code 12970312}, or the start of the date range.
+         */
+        DATE(".//cei:issued/cei:date/@value | .//cei:issued/cei:dateRange/@from"),
+        IDNO(".//cei:body/cei:idno"),
+        PLACE(".//cei:issued/cei:placeName");
+
+        @NotNull
+        private final String path;
+
+        Field(@NotNull String path) {
+            this.path = path;
+        }
+
+        @NotNull
+        String getPath() {
+            return path;
+        }
+
+    }
+
+}
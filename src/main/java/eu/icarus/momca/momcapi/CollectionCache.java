@@ -0,0 +1,280 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.XMLDBException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe cache of open collection handles, keyed by collection path. The least recently used handle
+ * is evicted when the capacity is exceeded.
+ * <p>
+ * Handles are shared by all threads and handed out as {@link Lease}s. Every lease has to be closed after use; a
+ * handle that is evicted or invalidated is closed as soon as its last lease is closed, or right away if it isn't
+ * leased.
+ */
+public class CollectionCache {
+
+    static final int DEFAULT_CAPACITY = 64;
+    private final int capacity;
+    @NotNull
+    private final LinkedHashMap<String, Entry> collections;
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    @NotNull
+    private final CollectionLoader loader;
+    private final AtomicLong missCount = new AtomicLong();
+
+    CollectionCache(int capacity, @NotNull CollectionLoader loader) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the collection cache has to be positive.");
+        }
+
+        this.capacity = capacity;
+        this.loader = loader;
+        this.collections = new LinkedHashMap<>(16, 0.75f, true);
+
+    }
+
+    private static void closeQuietly(@NotNull List<Collection> handles) {
+
+        for (Collection handle : handles) {
+            try {
+                handle.close();
+            } catch (XMLDBException ignored) {
+                // the handle is discarded anyway, there is nothing left to clean up
+            }
+        }
+
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Removes the handle of the collection as well as the handles of all its child collections. Handles still leased
+     * are closed when their last lease is closed.
+     *
+     * @param path The path of the collection, e.g. {@code /db/mom-data/xrx.user}.
+     */
+    public void invalidate(@NotNull String path) {
+
+        List<Collection> closable = new ArrayList<>(0);
+
+        synchronized (collections) {
+            Iterator<Entry> iterator = collections.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.path.equals(path) || entry.path.startsWith(path + "/")) {
+                    iterator.remove();
+                    entry.remove(closable);
+                }
+            }
+        }
+
+        closeQuietly(closable);
+
+    }
+
+    /**
+     * Removes all cached handles. Handles still leased are closed when their last lease is closed.
+     */
+    public void invalidateAll() {
+
+        List<Collection> closable = new ArrayList<>(0);
+
+        synchronized (collections) {
+            collections.values().forEach(entry -> entry.remove(closable));
+            collections.clear();
+        }
+
+        closeQuietly(closable);
+
+    }
+
+    public int size() {
+        synchronized (collections) {
+            return collections.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CollectionCache{" +
+                "capacity=" + capacity +
+                ", size=" + size() +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+
+    /**
+     * Leases the handle of the collection, opening it if it isn't cached.
+     *
+     * @return The lease, which has to be closed after use, or nothing if the collection doesn't exist.
+     */
+    @NotNull
+    Optional<Lease> get(@NotNull String path) throws XMLDBException {
+
+        synchronized (collections) {
+            Entry cached = collections.get(path);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                return Optional.of(cached.lease());
+            }
+        }
+
+        missCount.incrementAndGet();
+
+        // the handle is opened outside the lock so slow connections don't block lookups of other collections
+        Collection loaded = loader.load(path);
+        if (loaded == null) {
+            return Optional.empty();
+        }
+
+        Lease lease;
+        List<Collection> closable = new ArrayList<>(0);
+
+        synchronized (collections) {
+
+            Entry concurrent = collections.get(path);
+            if (concurrent == null) {
+                Entry entry = new Entry(path, loaded);
+                collections.put(path, entry);
+                lease = entry.lease();
+            } else {
+                // another thread cached the collection meanwhile, the handle loaded here was never handed out
+                closable.add(loaded);
+                lease = concurrent.lease();
+            }
+
+            Iterator<Entry> iterator = collections.values().iterator();
+            while (collections.size() > capacity && iterator.hasNext()) {
+                Entry evicted = iterator.next();
+                iterator.remove();
+                evicted.remove(closable);
+                evictionCount.incrementAndGet();
+            }
+
+        }
+
+        closeQuietly(closable);
+        return Optional.of(lease);
+
+    }
+
+    private void release(@NotNull Entry entry) {
+
+        List<Collection> closable = new ArrayList<>(0);
+
+        synchronized (collections) {
+            entry.leaseCount--;
+            if (entry.removed && entry.leaseCount == 0) {
+                closable.add(entry.collection);
+            }
+        }
+
+        closeQuietly(closable);
+
+    }
+
+    @FunctionalInterface
+    interface CollectionLoader {
+        Collection load(@NotNull String path) throws XMLDBException;
+    }
+
+    /**
+     * A collection handle in use. Closing the lease releases the handle, it doesn't close it.
+     */
+    final class Lease implements AutoCloseable {
+
+        @NotNull
+        private final Entry entry;
+        private boolean released = false;
+
+        private Lease(@NotNull Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+
+            if (!released) {
+                released = true;
+                release(entry);
+            }
+
+        }
+
+        @NotNull
+        Collection getCollection() {
+
+            if (released) {
+                throw new IllegalStateException(String.format("The lease of collection '%s' was closed.", entry.path));
+            }
+
+            return entry.collection;
+
+        }
+
+    }
+
+    /**
+     * A cached handle and the number of its open leases. The fields are guarded by the cache's lock.
+     */
+    private final class Entry {
+
+        @NotNull
+        private final Collection collection;
+        private int leaseCount = 0;
+        @NotNull
+        private final String path;
+        private boolean removed = false;
+
+        private Entry(@NotNull String path, @NotNull Collection collection) {
+            this.path = path;
+            this.collection = collection;
+        }
+
+        @NotNull
+        private Lease lease() {
+            leaseCount++;
+            return new Lease(this);
+        }
+
+        /**
+         * Marks the entry as removed from the cache and adds its handle to the closable handles if it isn't leased.
+         */
+        private void remove(@NotNull List<Collection> closable) {
+
+            removed = true;
+            if (leaseCount == 0) {
+                closable.add(collection);
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.xmldb.api.base.CompiledExpression;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.XQueryService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the compiled expressions of query templates, so each template is compiled only once. The number of templates
+ * is fixed by {@link ExistQueryFactory}, so the cache is not bounded.
+ */
+public class CompiledQueryCache {
+
+    private final AtomicLong compileCount = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+    @NotNull
+    private final Map<String, CompiledExpression> expressions = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+
+    CompiledQueryCache() {
+    }
+
+    /**
+     * @return The average time it took to compile a template in nanoseconds.
+     */
+    public long getAverageCompileNanos() {
+        long compiled = compileCount.get();
+        return compiled == 0 ? 0 : compileNanos.get() / compiled;
+    }
+
+    public long getCompileCount() {
+        return compileCount.get();
+    }
+
+    public long getCompileNanos() {
+        return compileNanos.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The estimated compile time saved by reusing compiled expressions in nanoseconds, i.e. the number of hits
+     * multiplied with the average compile time.
+     */
+    public long getSavedNanos() {
+        return hitCount.get() * getAverageCompileNanos();
+    }
+
+    public void invalidateAll() {
+        expressions.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledQueryCache{" +
+                "compileCount=" + compileCount +
+                ", hitCount=" + hitCount +
+                ", averageCompileNanos=" + getAverageCompileNanos() +
+                ", savedNanos=" + getSavedNanos() +
+                '}';
+    }
+
+    @NotNull
+    CompiledExpression get(@NotNull String template, @NotNull XQueryService queryService) throws XMLDBException {
+
+        CompiledExpression expression = expressions.get(template);
+
+        if (expression != null) {
+            hitCount.incrementAndGet();
+            return expression;
+        }
+
+        long start = System.nanoTime();
+        expression = queryService.compile(template);
+        compileNanos.addAndGet(System.nanoTime() - start);
+        compileCount.incrementAndGet();
+
+        CompiledExpression concurrent = expressions.putIfAbsent(template, expression);
+        return concurrent == null ? expression : concurrent;
+
+    }
+
+}
@@ -0,0 +1,405 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link ResourceCache} storing the content gzip-compressed in a directory, so it survives restarts. Every resource
+ * is stored in its own file, named by the SHA-256 hash of its uri. The file starts with the uri and the last-modified
+ * timestamp of the cached version, followed by the content.
+ * <p>
+ * The cache is bounded by the size of its files. If the bound is exceeded, the least recently used files are deleted.
+ * The recency is restored from the file modification times when the cache is opened again.
+ */
+public class DiskResourceCache implements ResourceCache {
+
+    private static final String FILE_SUFFIX = ".xml.gz";
+    @NotNull
+    private final AtomicLong bytesSaved = new AtomicLong();
+    @NotNull
+    private final Path directory;
+    @NotNull
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    @NotNull
+    private final AtomicLong evictionCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong hitCount = new AtomicLong();
+    private final long maxSizeInBytes;
+    @NotNull
+    private final AtomicLong missCount = new AtomicLong();
+    @NotNull
+    private final AtomicLong staleCount = new AtomicLong();
+    private long sizeInBytes = 0;
+
+    /**
+     * Opens the cache in the directory, reusing the files of a former cache in the same directory.
+     *
+     * @param maxSizeInBytes The maximum size of all cache files.
+     * @throws IOException if the directory can't be created or read.
+     */
+    public DiskResourceCache(@NotNull Path directory, long maxSizeInBytes) throws IOException {
+
+        if (maxSizeInBytes < 1) {
+            throw new IllegalArgumentException("The maximum size of the resource cache has to be positive.");
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.maxSizeInBytes = maxSizeInBytes;
+
+        loadEntries();
+
+    }
+
+    @NotNull
+    @Override
+    public Optional<String> get(@NotNull String uri, long lastModified) {
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(uri);
+        }
+
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (entry.lastModified != lastModified) {
+            staleCount.incrementAndGet();
+            missCount.incrementAndGet();
+            remove(uri, entry);
+            return Optional.empty();
+        }
+
+        try (DataInputStream in = openFile(entry.file)) {
+
+            in.readUTF();
+            in.readLong();
+            byte[] content = readAll(in);
+
+            hitCount.incrementAndGet();
+            bytesSaved.addAndGet(content.length);
+            touch(entry.file);
+
+            return Optional.of(new String(content, StandardCharsets.UTF_8));
+
+        } catch (IOException e) {
+            // the file was deleted or damaged by someone else, the entry is useless then
+            missCount.incrementAndGet();
+            remove(uri, entry);
+            return Optional.empty();
+        }
+
+    }
+
+    /**
+     * @return The number of content bytes read from the cache instead of being transferred from the database.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    @NotNull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * @return The number of lookups that found no entry, including the stale ones.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The size of all cache files.
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return The number of lookups that found an entry of an outdated version of the resource.
+     */
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    @Override
+    public void invalidate(@NotNull String uri) {
+
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(uri);
+        }
+
+        if (entry != null) {
+            remove(uri, entry);
+        }
+
+    }
+
+    /**
+     * Deletes all cache files.
+     */
+    public void invalidateAll() {
+
+        List<Map.Entry<String, Entry>> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(entries.entrySet());
+        }
+
+        removed.forEach(entry -> remove(entry.getKey(), entry.getValue()));
+
+    }
+
+    @Override
+    public void put(@NotNull String uri, long lastModified, @NotNull String content) {
+
+        Path file = directory.resolve(hash(uri) + FILE_SUFFIX);
+
+        try {
+
+            // written to a temporary file first, so readers never see a partially written file
+            Path tempFile = Files.createTempFile(directory, "resource-", ".tmp");
+            try {
+
+                try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+                    out.writeUTF(uri);
+                    out.writeLong(lastModified);
+                    out.write(content.getBytes(StandardCharsets.UTF_8));
+                }
+
+                synchronized (this) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    addEntry(uri, new Entry(file, lastModified, Files.size(file)));
+                    evict();
+                }
+
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+
+        } catch (IOException e) {
+            // caching is an optimization only, a resource that can't be cached is read from the database next time
+            invalidate(uri);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return "DiskResourceCache{" +
+                "directory=" + directory +
+                ", entryCount=" + getEntryCount() +
+                ", sizeInBytes=" + getSizeInBytes() +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", bytesSaved=" + bytesSaved +
+                '}';
+    }
+
+    @NotNull
+    private static String hash(@NotNull String uri) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+
+        StringBuilder hash = new StringBuilder(64);
+        for (byte b : digest.digest(uri.getBytes(StandardCharsets.UTF_8))) {
+            hash.append(String.format("%02x", b));
+        }
+
+        return hash.toString();
+
+    }
+
+    @NotNull
+    private static DataInputStream openFile(@NotNull Path file) throws IOException {
+        return new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))));
+    }
+
+    @NotNull
+    private static byte[] readAll(@NotNull InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+
+    }
+
+    private static void touch(@NotNull Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // only used to restore the recency after a restart
+        }
+    }
+
+    private void addEntry(@NotNull String uri, @NotNull Entry entry) {
+
+        Entry previous = entries.put(uri, entry);
+
+        if (previous != null) {
+            sizeInBytes -= previous.size;
+        }
+
+        sizeInBytes += entry.size;
+
+    }
+
+    private void evict() {
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            sizeInBytes -= eldest.size;
+            evictionCount.incrementAndGet();
+            deleteQuietly(eldest.file);
+
+        }
+
+    }
+
+    private void deleteQuietly(@NotNull Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // the file is overwritten when the resource is cached again
+        }
+    }
+
+    private void loadEntries() throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX)).collect(Collectors.toList());
+        }
+
+        List<Loaded> loaded = new ArrayList<>(files.size());
+        for (Path file : files) {
+
+            try (DataInputStream in = openFile(file)) {
+                String uri = in.readUTF();
+                long lastModified = in.readLong();
+                loaded.add(new Loaded(uri, new Entry(file, lastModified, Files.size(file)), Files.getLastModifiedTime(file).toMillis()));
+            } catch (IOException e) {
+                deleteQuietly(file);
+            }
+
+        }
+
+        // the least recently used entries are inserted first, so they are evicted first
+        loaded.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+
+        synchronized (this) {
+            loaded.forEach(entry -> addEntry(entry.uri, entry.entry));
+            evict();
+        }
+
+    }
+
+    private void remove(@NotNull String uri, @Nullable Entry entry) {
+
+        synchronized (this) {
+
+            if (entry == null || !entries.remove(uri, entry)) {
+                return;
+            }
+
+            sizeInBytes -= entry.size;
+
+        }
+
+        deleteQuietly(entry.file);
+
+    }
+
+    private static final class Entry {
+
+        @NotNull
+        private final Path file;
+        private final long lastModified;
+        private final long size;
+
+        private Entry(@NotNull Path file, long lastModified, long size) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+    }
+
+    private static final class Loaded {
+
+        @NotNull
+        private final Entry entry;
+        private final long lastUsed;
+        @NotNull
+        private final String uri;
+
+        private Loaded(@NotNull String uri, @NotNull Entry entry, long lastUsed) {
+            this.uri = uri;
+            this.entry = entry;
+            this.lastUsed = lastUsed;
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An XQuery consisting of a constant template and the values of its external variables. The values are bound when
+ * the query is executed, so all queries of one template share a single compiled expression.
+ * <p>
+ * The query also names the collection it searches and the range indexes it needs there to avoid a full scan.
+ */
+public class ExistQuery {
+
+    @NotNull
+    private final Set<IndexDefinition> requiredIndexes;
+    @NotNull
+    private final String searchPath;
+    @NotNull
+    private final String template;
+    @NotNull
+    private final Map<String, Object> variables;
+
+    ExistQuery(@NotNull String template, @NotNull Map<String, Object> variables, @NotNull String searchPath, @NotNull Set<IndexDefinition> requiredIndexes) {
+        this.template = template;
+        this.variables = Collections.unmodifiableMap(new LinkedHashMap<>(variables));
+        this.searchPath = searchPath;
+        this.requiredIndexes = Collections.unmodifiableSet(requiredIndexes.isEmpty() ? EnumSet.noneOf(IndexDefinition.class) : EnumSet.copyOf(requiredIndexes));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ExistQuery that = (ExistQuery) o;
+
+        if (!template.equals(that.template)) return false;
+        return variables.equals(that.variables);
+
+    }
+
+    @NotNull
+    public Set<IndexDefinition> getRequiredIndexes() {
+        return requiredIndexes;
+    }
+
+    /**
+     * @return The path of the collection the query searches, including its child collections.
+     */
+    @NotNull
+    public String getSearchPath() {
+        return searchPath;
+    }
+
+    @NotNull
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return The values of the external variables declared in the template, keyed by variable name.
+     */
+    @NotNull
+    public Map<String, Object> getVariables() {
+        return variables;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = template.hashCode();
+        result = 31 * result + variables.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ExistQuery{" +
+                "template='" + template + '\'' +
+                ", variables=" + variables +
+                '}';
+    }
+
+}
@@ -2,34 +2,287 @@ package eu.icarus.momca.momcapi;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Created by Daniel on 07.03.2015.
  */
 public class ExistQueryFactory {
 
+    private static final String DECLARE_PAGE_VARIABLES =
+            " declare variable $after as xs:string external;" +
+                    " declare variable $length as xs:integer external;" +
+                    " declare variable $with-total as xs:boolean external;";
+    private static final String PATH_ROOT = "/db/mom-data";
+    private static final String PATH_USER = "/db/mom-data/xrx.user";
+    private static final String RESULT_CHARTER =
+            "(concat(util:collection-name($node), '/', util:document-name($node)), util:serialize(root($node), ()))";
+    private static final String TEMPLATE_ATOM_IDS =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare variable $path as xs:string external;" +
+                    " for $id in collection($path)/atom:entry/atom:id" +
+                    " return (concat(util:collection-name($id), '/', util:document-name($id)), string($id))";
+    private static final String TEMPLATE_CHARTERS =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    " declare variable $charter-id as xs:string external;" +
+                    " let $nodes := (collection($path)//atom:entry[.//cei:idno/@id=$charter-id])" +
+                    " for $node in $nodes" +
+                    " return " + RESULT_CHARTER;
+    private static final String TEMPLATE_CHARTER_SUMMARIES =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    " for $node in collection($path)/atom:entry" +
+                    " return ";
+    private static final String TEMPLATE_CHARTER_SUMMARY_PAGE =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    DECLARE_PAGE_VARIABLES +
+                    " let $nodes := collection($path)/atom:entry";
+    private static final String TEMPLATE_CHARTER_PAGE =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare variable $path as xs:string external;" +
+                    DECLARE_PAGE_VARIABLES +
+                    " let $nodes := collection($path)/atom:entry" +
+                    pageResult(RESULT_CHARTER);
+    private static final String TEMPLATE_CHARTER_PAGE_OF_CHARTER =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    " declare variable $charter-id as xs:string external;" +
+                    DECLARE_PAGE_VARIABLES +
+                    " let $nodes := collection($path)//atom:entry[.//cei:idno/@id=$charter-id]" +
+                    pageResult(RESULT_CHARTER);
+    private static final String TEMPLATE_ALL_USERS =
+            "declare namespace xrx='http://www.monasterium.net/NS/xrx';" +
+                    " for $user in collection('" + PATH_USER + "')/xrx:user[util:collection-name(.) = '" + PATH_USER + "']" +
+                    " let $name := util:document-name($user)" +
+                    " return ($name, string(xmldb:last-modified('" + PATH_USER + "', $name)), util:serialize(root($user), ()))";
+    private static final String TEMPLATE_DOCUMENT_URIS =
+            "declare variable $path as xs:string external;" +
+                    " for $document in collection($path)" +
+                    " return concat(util:collection-name($document), '/', util:document-name($document))";
+    private static final String TEMPLATE_INDEXED_PATHS =
+            "declare namespace config = 'http://exist-db.org/collection-config/1.0';" +
+                    " declare variable $path as xs:string external;" +
+                    " let $steps := tokenize(substring-after($path, '/db'), '/')[. != '']" +
+                    " let $configs := for $i in reverse(0 to count($steps))" +
+                    "   let $config := concat(string-join(('/db/system/config/db', subsequence($steps, 1, $i)), '/'), '/collection.xconf')" +
+                    "   return if (doc-available($config)) then $config else ()" +
+                    " for $create in doc($configs[1])//config:create[not(config:field)]" +
+                    " return if ($create/@path) then string($create/@path) else" +
+                    "   let $name := replace($create/@qname, '^@', '')" +
+                    "   let $uri := string(namespace-uri-for-prefix(substring-before($name, ':'), $create))" +
+                    "   return if (not(contains($name, ':')) or $uri = '') then string($create/@qname)" +
+                    "     else concat(if (starts-with($create/@qname, '@')) then '@' else '', '{', $uri, '}', substring-after($name, ':'))";
+    private static final String TEMPLATE_MODIFIED_SINCE =
+            "declare variable $path as xs:string external;" +
+                    " declare variable $since as xs:string external;" +
+                    " let $documents := collection($path)" +
+                    " return (string(count($documents))," +
+                    "   string(sum(for $document in $documents" +
+                    "     let $uri := concat(util:collection-name($document), '/', util:document-name($document))" +
+                    "     return util:base-to-integer(substring(util:hash($uri, 'md5'), 1, 8), 16)))," +
+                    "   for $document in xmldb:find-last-modified-since($documents, xs:dateTime($since))" +
+                    "   let $collection := util:collection-name($document)" +
+                    "   let $name := util:document-name($document)" +
+                    "   return (concat($collection, '/', $name), string(xmldb:last-modified($collection, $name))))";
+    private static final String TEMPLATE_PRIVATE_CHARTERS_OF_ALL_USERS =
+            "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
+                    " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
+                    " declare variable $path as xs:string external;" +
+                    " declare variable $charter-id as xs:string external;" +
+                    " let $nodes := for $user in xmldb:get-child-collections($path)" +
+                    "   let $charters := concat($path, '/', $user, '/metadata.charter')" +
+                    "   where xmldb:collection-available($charters)" +
+                    "   return collection($charters)//atom:entry[.//cei:idno/@id=$charter-id]" +
+                    " for $node in $nodes" +
+                    " return " + RESULT_CHARTER;
+    private static final String TEMPLATE_USER_MODERATOR =
+            "declare namespace xrx='http://www.monasterium.net/NS/xrx';" +
+                    " declare variable $user-name as xs:string external;" +
+                    " collection('" + PATH_USER + "')/xrx:user[.//xrx:email=$user-name]/xrx:moderator/text()";
+
     public ExistQueryFactory() {
     }
 
+    /**
+     * Returns every user of the user collection as three consecutive items: the resource name, the last-modified
+     * timestamp as {@code xs:dateTime} and the serialized document.
+     */
+    @NotNull
+    public ExistQuery queryAllUsers() {
+        return new ExistQuery(TEMPLATE_ALL_USERS, variables(), PATH_USER, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the URI and the atom id of every atom entry below the path as two consecutive items.
+     */
+    @NotNull
+    public ExistQuery queryAtomIds(@NotNull String path) {
+        return new ExistQuery(TEMPLATE_ATOM_IDS, variables("path", path), path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the URI and the full document of every charter with the specified id in one result set. Each match is
+     * represented by two consecutive items: first the URI of the document, then the serialized document. Both are
+     * strings, so they are transferred with the query result instead of being retrieved one by one.
+     */
+    @NotNull
+    public ExistQuery queryCharters(@NotNull String path, @NotNull String charterId) {
+        return new ExistQuery(TEMPLATE_CHARTERS, variables("path", path, "charter-id", charterId), path, EnumSet.of(IndexDefinition.CEI_IDNO_ID));
+    }
+
+    /**
+     * Returns a page of the charters below the path, ordered by URI. Only the charters of the page are serialized and
+     * transferred, the rest of the matches is skipped on the server. The first item is the number of all charters
+     * below the path or {@code -1}, if it isn't requested, the second item is {@code true} if there are more charters
+     * after the page. Every charter of the page follows as two consecutive items like in
+     * {@link #queryCharters(String, String)}.
+     * <p>
+     * The page starts after a URI instead of at a position, so charters stored or deleted meanwhile don't shift the
+     * following pages: no charter is skipped or returned twice, charters added before the page are left out.
+     *
+     * @param after     The URI of the last charter of the previous page, an empty string for the first page. URIs are
+     *                  compared by codepoints.
+     * @param length    The maximum number of charters of the page.
+     * @param withTotal Whether to count all charters below the path.
+     */
+    @NotNull
+    public ExistQuery queryCharterPage(@NotNull String path, @NotNull String after, int length, boolean withTotal) {
+        return new ExistQuery(TEMPLATE_CHARTER_PAGE, variables("path", path, "after", after, "length", length, "with-total", withTotal),
+                path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns a page of the charters with the specified id below the path, in the same form as
+     * {@link #queryCharterPage(String, String, int, boolean)}.
+     */
+    @NotNull
+    public ExistQuery queryCharterPage(@NotNull String path, @NotNull String charterId, @NotNull String after, int length, boolean withTotal) {
+        return new ExistQuery(TEMPLATE_CHARTER_PAGE_OF_CHARTER, variables("path", path, "charter-id", charterId, "after", after,
+                "length", length, "with-total", withTotal), path, EnumSet.of(IndexDefinition.CEI_IDNO_ID));
+    }
+
+    /**
+     * Returns a summary of every charter below the path as a single item: the URI, the atom id and the values of the
+     * fields in the order of {@link CharterSummary.Field}, separated by {@link CharterSummary#FIELD_SEPARATOR}. The
+     * fields are evaluated and whitespace-normalized on the server, so the documents are neither serialized nor
+     * transferred.
+     * <p>
+     * Every set of fields has a template of its own.
+     */
+    @NotNull
+    public ExistQuery queryCharterSummaries(@NotNull String path, @NotNull Set<CharterSummary.Field> fields) {
+        return new ExistQuery(TEMPLATE_CHARTER_SUMMARIES + summaryResult(fields), variables("path", path), path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns a page of the summaries of the charters below the path, ordered by URI. The first two items are the
+     * total count and whether there are more charters like for {@link #queryCharterPage(String, String, int, boolean)},
+     * followed by a summary like for {@link #queryCharterSummaries(String, Set)} for every charter of the page.
+     */
+    @NotNull
+    public ExistQuery queryCharterSummaryPage(@NotNull String path, @NotNull Set<CharterSummary.Field> fields, @NotNull String after, int length,
+                                              boolean withTotal) {
+        return new ExistQuery(TEMPLATE_CHARTER_SUMMARY_PAGE + pageResult(summaryResult(fields)),
+                variables("path", path, "after", after, "length", length, "with-total", withTotal), path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the URIs of all documents below the path.
+     */
+    @NotNull
+    public ExistQuery queryDocumentUris(@NotNull String path) {
+        return new ExistQuery(TEMPLATE_DOCUMENT_URIS, variables("path", path), path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the range indexes that are configured for the collection, i.e. the indexes defined by the
+     * {@code collection.xconf} of the collection or of its nearest configured ancestor. Path-based indexes are returned
+     * as their path, qname-based ones of either range index module as their qname in the form described for
+     * {@link IndexDefinition#getQName()}. Indexes on fields only are left out.
+     */
+    @NotNull
+    public ExistQuery queryIndexedPaths(@NotNull String path) {
+        return new ExistQuery(TEMPLATE_INDEXED_PATHS, variables("path", path), "/db/system/config", EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the number of documents below the path and the checksum of their URIs as described for {@link ChangeFeed},
+     * followed by the URI and the last-modified timestamp as {@code xs:dateTime} of every document modified after the
+     * specified time. Only the document metadata is read, the documents themselves are neither loaded nor transferred,
+     * but every document below the path is visited.
+     *
+     * @param since An {@code xs:dateTime}. Documents modified exactly at this time aren't included.
+     */
+    @NotNull
+    public ExistQuery queryModifiedSince(@NotNull String path, @NotNull String since) {
+        return new ExistQuery(TEMPLATE_MODIFIED_SINCE, variables("path", path, "since", since), path, EnumSet.noneOf(IndexDefinition.class));
+    }
+
+    /**
+     * Returns the private charters with the specified id of all users, in the same form as
+     * {@link #queryCharters(String, String)}. Only the {@code metadata.charter} collection of every user is searched,
+     * not the rest of the user collection.
+     */
+    @NotNull
+    public ExistQuery queryPrivateChartersOfAllUsers(@NotNull String charterId) {
+        return new ExistQuery(TEMPLATE_PRIVATE_CHARTERS_OF_ALL_USERS, variables("path", PATH_USER, "charter-id", charterId), PATH_USER, EnumSet.of(IndexDefinition.CEI_IDNO_ID));
+    }
+
+    @NotNull
+    public ExistQuery queryUserModerator(@NotNull String userName) {
+        return new ExistQuery(TEMPLATE_USER_MODERATOR, variables("user-name", userName), PATH_USER, EnumSet.of(IndexDefinition.XRX_EMAIL));
+    }
+
+    /**
+     * Orders the {@code $nodes} with a URI after {@code $after} by URI and returns the total count, whether there are
+     * more nodes after the page and the result of every {@code $node} of the page.
+     */
     @NotNull
-    public String queryUrisOfCharter(@NotNull String path, String charterId) {
+    private static String pageResult(@NotNull String nodeResult) {
+        return " let $following := for $node in $nodes" +
+                "   let $uri := concat(util:collection-name($node), '/', util:document-name($node))" +
+                "   where compare($uri, $after) > 0" +
+                "   order by $uri" +
+                "   return $node" +
+                " return (if ($with-total) then string(count($nodes)) else '-1'," +
+                "   string(exists(subsequence($following, $length + 1, 1)))," +
+                "   for $node in subsequence($following, 1, $length)" +
+                "   return " + nodeResult + ")";
+    }
+
+    @NotNull
+    private static String summaryResult(@NotNull Set<CharterSummary.Field> fields) {
+
+        StringBuilder result = new StringBuilder("string-join((concat(util:collection-name($node), '/', util:document-name($node)), string($node/atom:id)");
+
+        for (CharterSummary.Field field : CharterSummary.Field.values()) {
+            if (fields.contains(field)) {
+                result.append(", normalize-space(string(($node/(").append(field.getPath()).append("))[1]))");
+            }
+        }
+
+        // the separator is the tab, which the normalized values don't contain
+        return result.append("), '&#9;')").toString();
 
-        return String.format(
-                "declare namespace atom = 'http://www.w3.org/2005/Atom';" +
-                        " declare namespace cei = 'http://www.monasterium.net/NS/cei';" +
-                        " let $nodes := (collection('%s')//atom:entry[.//cei:idno/@id='%s'])" +
-                        " for $node in $nodes" +
-                        " return concat(util:collection-name($node), '/', util:document-name($node))",
-                path,
-                charterId);
     }
 
     @NotNull
-    public String queryUserModerator(@NotNull String userName) {
+    private Map<String, Object> variables(@NotNull Object... namesAndValues) {
 
-        return String.format(
-                "declare namespace xrx='http://www.monasterium.net/NS/xrx';" +
-                        " collection('/db/mom-data/xrx.user')/xrx:user[.//xrx:email='%s']/xrx:moderator/text()",
-                userName);
+        Map<String, Object> variables = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            variables.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return variables;
 
     }
 
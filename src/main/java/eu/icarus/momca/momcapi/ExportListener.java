@@ -0,0 +1,21 @@
+package eu.icarus.momca.momcapi;
+
+/**
+ * Receives the progress of a charter export.
+ *
+ * @see MomCA#exportCharters(eu.icarus.momca.momcapi.resource.CharterStatus, String, java.nio.file.Path, int, ExportListener)
+ */
+@FunctionalInterface
+public interface ExportListener {
+
+    /**
+     * Called after every exported or failed document by the thread that handled the document. Further documents are
+     * written only after the listener returned, so it should be quick.
+     *
+     * @param exportedCount      The number of documents written to the archive so far.
+     * @param failedCount        The number of documents that couldn't be exported so far.
+     * @param documentsPerSecond The number of documents exported per second since the export started.
+     */
+    void onProgress(long exportedCount, long failedCount, double documentsPerSecond);
+
+}
@@ -0,0 +1,66 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a charter export.
+ */
+public class ExportResult {
+
+    @NotNull
+    private final Path archive;
+    private final long elapsedNanos;
+    private final long exportedCount;
+    @NotNull
+    private final List<String> failedUris;
+
+    ExportResult(@NotNull Path archive, long exportedCount, @NotNull List<String> failedUris, long elapsedNanos) {
+        this.archive = archive;
+        this.exportedCount = exportedCount;
+        this.failedUris = Collections.unmodifiableList(new ArrayList<>(failedUris));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    @NotNull
+    public Path getArchive() {
+        return archive;
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : exportedCount * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @NotNull
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public long getExportedCount() {
+        return exportedCount;
+    }
+
+    /**
+     * @return The uris of the documents that couldn't be read or aren't valid charters. They are missing in the archive.
+     */
+    @NotNull
+    public List<String> getFailedUris() {
+        return failedUris;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportResult{" +
+                "archive=" + archive +
+                ", exportedCount=" + exportedCount +
+                ", failedCount=" + failedUris.size() +
+                ", documentsPerSecond=" + getDocumentsPerSecond() +
+                '}';
+    }
+
+}
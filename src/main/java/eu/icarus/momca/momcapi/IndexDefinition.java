@@ -0,0 +1,250 @@
+package eu.icarus.momca.momcapi;
+
+import nu.xom.Attribute;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Elements;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The range indexes the queries of {@link ExistQueryFactory} rely on. eXist maintains the structural index for all
+ * collections anyway, so only range indexes need to be configured.
+ */
+public enum IndexDefinition {
+
+    ATOM_ID("//atom:id", "xs:string"),
+    CEI_DATE_VALUE("//cei:date/@value", "xs:string"),
+    CEI_IDNO_ID("//cei:idno/@id", "xs:string"),
+    XRX_EMAIL("//xrx:email", "xs:string");
+
+    @NotNull
+    private final String path;
+    @NotNull
+    private final String qName;
+    @NotNull
+    private final String type;
+
+    IndexDefinition(@NotNull String path, @NotNull String type) {
+        this.path = path;
+        this.qName = toQName(path.substring(path.lastIndexOf('/') + 1), IndexDefinition::getNamespaceUri);
+        this.type = type;
+    }
+
+    /**
+     * @return The indexes for the collection of the specified status. Private charters are stored in the user
+     * collection, so it needs the charter indexes as well.
+     */
+    @NotNull
+    public static Set<IndexDefinition> forCollection(@NotNull MetadataCollectionName collection) {
+
+        Set<IndexDefinition> indexes;
+
+        switch (collection) {
+
+            case XRX_USER:
+                indexes = EnumSet.allOf(IndexDefinition.class);
+                break;
+            case METADATA_CHARTER_IMPORT:
+            case METADATA_CHARTER_PUBLIC:
+            case METADATA_CHARTER_SAVED:
+                indexes = EnumSet.of(ATOM_ID, CEI_DATE_VALUE, CEI_IDNO_ID);
+                break;
+            default:
+                indexes = EnumSet.noneOf(IndexDefinition.class);
+
+        }
+
+        return indexes;
+
+    }
+
+    /**
+     * Adds the indexes the configuration of a collection doesn't define yet to its {@code index} element, which is
+     * created if missing. An index counts as defined if there is a {@code create} element for its path or for its
+     * {@link #getQName() qname}, the latter also in the {@code range} element of the new range index module. All other
+     * configuration, e.g. Lucene or n-gram indexes, is left as it is. The prefixes of
+     * the paths are declared on the {@code index} element unless they are in scope already.
+     *
+     * @param xconf The content of a {@code collection.xconf}, modified in place.
+     * @return {@code true} if indexes were added.
+     * @throws IllegalArgumentException if the document isn't a collection configuration or binds a prefix of the
+     *                                  index paths to another namespace.
+     */
+    public static boolean addToCollectionConfiguration(@NotNull Document xconf, @NotNull Set<IndexDefinition> indexes) {
+
+        String configUri = Namespace.CONFIG.getUri();
+        Element collection = xconf.getRootElement();
+
+        if (!collection.getLocalName().equals("collection") || !collection.getNamespaceURI().equals(configUri)) {
+            throw new IllegalArgumentException(String.format("'%s' is not a collection configuration.", collection.getQualifiedName()));
+        }
+
+        Element index = collection.getFirstChildElement("index", configUri);
+        if (index == null) {
+            index = new Element("index", configUri);
+            collection.appendChild(index);
+        }
+
+        Set<String> definedIndexes = new HashSet<>();
+        addDefinedIndexes(index.getChildElements("create", configUri), definedIndexes);
+        Elements ranges = index.getChildElements("range", configUri);
+        for (int i = 0; i < ranges.size(); i++) {
+            addDefinedIndexes(ranges.get(i).getChildElements("create", configUri), definedIndexes);
+        }
+
+        boolean added = false;
+
+        for (IndexDefinition definition : indexes) {
+
+            if (definition.isDefinedBy(definedIndexes)) {
+                continue;
+            }
+
+            for (Namespace namespace : Namespace.values()) {
+
+                if (!definition.getPath().contains(namespace.getPrefix() + ":")) {
+                    continue;
+                }
+
+                String boundUri = index.getNamespaceURI(namespace.getPrefix());
+                if (boundUri == null) {
+                    index.addNamespaceDeclaration(namespace.getPrefix(), namespace.getUri());
+                } else if (!boundUri.equals(namespace.getUri())) {
+                    throw new IllegalArgumentException(String.format("Prefix '%s' is bound to '%s' instead of '%s'.",
+                            namespace.getPrefix(), boundUri, namespace.getUri()));
+                }
+
+            }
+
+            Element create = new Element("create", configUri);
+            create.addAttribute(new Attribute("path", definition.getPath()));
+            create.addAttribute(new Attribute("type", definition.getType()));
+            index.appendChild(create);
+            added = true;
+
+        }
+
+        return added;
+
+    }
+
+    /**
+     * Adds the path or the qname of every {@code create} element to the defined indexes. Creates of the new range index
+     * module that only index fields don't index the element itself, so they are skipped.
+     */
+    private static void addDefinedIndexes(@NotNull Elements creates, @NotNull Set<String> definedIndexes) {
+
+        for (int i = 0; i < creates.size(); i++) {
+
+            Element create = creates.get(i);
+            String path = create.getAttributeValue("path");
+            String qName = create.getAttributeValue("qname");
+
+            if (path != null) {
+                definedIndexes.add(path);
+            } else if (qName != null && create.getFirstChildElement("field", Namespace.CONFIG.getUri()) == null) {
+                definedIndexes.add(toQName(qName, create::getNamespaceURI));
+            }
+
+        }
+
+    }
+
+    @Nullable
+    private static String getNamespaceUri(@NotNull String prefix) {
+
+        for (Namespace namespace : Namespace.values()) {
+            if (namespace.getPrefix().equals(prefix)) {
+                return namespace.getUri();
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * @param name       A name as written in an index configuration, e.g. {@code cei:idno} or {@code @id}.
+     * @param namespaces Gets the namespace uri bound to a prefix.
+     * @return The name in the form described for {@link #getQName()}.
+     */
+    @NotNull
+    private static String toQName(@NotNull String name, @NotNull Function<String, String> namespaces) {
+
+        boolean attribute = name.startsWith("@");
+        String localName = attribute ? name.substring(1) : name;
+
+        int colon = localName.indexOf(':');
+        if (colon < 0) {
+            return name;
+        }
+
+        // an unbound prefix is kept, so the name doesn't match any index
+        String uri = namespaces.apply(localName.substring(0, colon));
+        if (uri == null || uri.isEmpty()) {
+            return name;
+        }
+
+        return (attribute ? "@" : "") + "{" + uri + "}" + localName.substring(colon + 1);
+
+    }
+
+    /**
+     * @return The content of a {@code collection.xconf} defining the specified indexes.
+     */
+    @NotNull
+    public static String toCollectionConfiguration(@NotNull Set<IndexDefinition> indexes) {
+
+        StringBuilder xconf = new StringBuilder();
+        xconf.append(String.format("<collection xmlns=\"%s\">", Namespace.CONFIG.getUri()));
+        xconf.append("<index");
+        for (Namespace namespace : Namespace.values()) {
+            if (namespace != Namespace.CONFIG) {
+                xconf.append(String.format(" xmlns:%s=\"%s\"", namespace.getPrefix(), namespace.getUri()));
+            }
+        }
+        xconf.append(">");
+
+        for (IndexDefinition index : indexes) {
+            xconf.append(String.format("<create path=\"%s\" type=\"%s\"/>", index.getPath(), index.getType()));
+        }
+
+        xconf.append("</index></collection>");
+        return xconf.toString();
+
+    }
+
+    @NotNull
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The name of the indexed node in Clark notation, prefixed by {@code @} for attributes, e.g.
+     * {@code {http://www.w3.org/2005/Atom}id} or {@code @id}. A qname-based index on this name covers the path.
+     */
+    @NotNull
+    public String getQName() {
+        return qName;
+    }
+
+    @NotNull
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @param definedIndexes The paths of path-based and the {@link #getQName() qnames} of qname-based indexes.
+     * @return {@code true} if one of the indexes is this index.
+     */
+    public boolean isDefinedBy(@NotNull Set<String> definedIndexes) {
+        return definedIndexes.contains(path) || definedIndexes.contains(qName);
+    }
+
+}
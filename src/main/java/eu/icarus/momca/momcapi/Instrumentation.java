@@ -0,0 +1,200 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.MetricsRecorder.Stage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures the calls and stages of {@link MomCA} and passes the measurements to the {@link MetricsRecorder}.
+ * <p>
+ * The call running on a thread is inherited by the threads it starts, so the round trips of the exporter's and the
+ * batch writer's workers are counted for the call that started them. Threads of a shared pool outlive the call that
+ * happened to start them, so tasks submitted to one are wrapped by {@link #inCurrentCall(Action)} instead.
+ */
+final class Instrumentation {
+
+    @NotNull
+    private final InheritableThreadLocal<CallContext> currentCall = new InheritableThreadLocal<>();
+    @NotNull
+    private volatile MetricsRecorder recorder;
+
+    Instrumentation(@NotNull MetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * @return The number of bytes of the string's UTF-8 encoding, counted without encoding it.
+     */
+    static long utf8Length(@Nullable String string) {
+
+        if (string == null) {
+            return 0;
+        }
+
+        long length = string.length();
+
+        for (int i = 0; i < string.length(); i++) {
+
+            char c = string.charAt(i);
+
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c)) {
+                    // the surrogate pair's two chars take four bytes
+                    length += 2;
+                    i++;
+                } else {
+                    length += 2;
+                }
+            } else if (c >= 0x80) {
+                length += 1;
+            }
+
+        }
+
+        return length;
+
+    }
+
+    /**
+     * Measures a public method. A call made while another call is running on the thread is measured as part of the
+     * running call only.
+     */
+    <T, E extends Exception> T call(@NotNull String operation, @NotNull Action<T, E> action) throws E {
+
+        CallContext runningCall = currentCall.get();
+        if (runningCall != null && !runningCall.finished) {
+            return action.run();
+        }
+
+        CallContext context = new CallContext();
+        currentCall.set(context);
+
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            T result = action.run();
+            failed = false;
+            return result;
+        } finally {
+            context.finished = true;
+            currentCall.remove();
+            recorder.recordCall(operation, System.nanoTime() - start, context.roundTrips.get(), failed);
+        }
+
+    }
+
+    /**
+     * @see #call(String, Action)
+     */
+    <E extends Exception> void call(@NotNull String operation, @NotNull VoidAction<E> action) throws E {
+        call(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    @NotNull
+    MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Binds an action to the call running on this thread, so its round trips are counted for the call on whatever
+     * thread it runs. The thread's own call, e.g. one inherited from the thread that created it, is restored afterwards.
+     */
+    @NotNull
+    <T, E extends Exception> Callable<T> inCurrentCall(@NotNull Action<T, E> action) {
+
+        CallContext context = currentCall.get();
+
+        return () -> {
+
+            CallContext threadCall = currentCall.get();
+            setCurrentCall(context);
+
+            try {
+                return action.run();
+            } finally {
+                setCurrentCall(threadCall);
+            }
+
+        };
+
+    }
+
+    void setRecorder(@NotNull MetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    private void setCurrentCall(@Nullable CallContext context) {
+
+        if (context == null) {
+            currentCall.remove();
+        } else {
+            currentCall.set(context);
+        }
+
+    }
+
+    <T, E extends Exception> T stage(@NotNull Stage stage, @NotNull Action<T, E> action) throws E {
+        return stage(stage, action, result -> 0);
+    }
+
+    /**
+     * @param bytes Gets the number of bytes transferred from the result of the stage.
+     */
+    <T, E extends Exception> T stage(@NotNull Stage stage, @NotNull Action<T, E> action, @NotNull ToLongFunction<? super T> bytes) throws E {
+
+        if (stage.isRoundTrip()) {
+            CallContext context = currentCall.get();
+            if (context != null && !context.finished) {
+                context.roundTrips.incrementAndGet();
+            }
+        }
+
+        long start = System.nanoTime();
+
+        T result;
+        try {
+            result = action.run();
+        } catch (Throwable e) {
+            recorder.recordStage(stage, System.nanoTime() - start, 0, true);
+            throw e;
+        }
+
+        recorder.recordStage(stage, System.nanoTime() - start, bytes.applyAsLong(result), false);
+        return result;
+
+    }
+
+    @FunctionalInterface
+    interface Action<T, E extends Exception> {
+
+        T run() throws E;
+
+    }
+
+    @FunctionalInterface
+    interface VoidAction<E extends Exception> {
+
+        void run() throws E;
+
+    }
+
+    private static final class CallContext {
+
+        @NotNull
+        private final AtomicInteger roundTrips = new AtomicInteger();
+        /**
+         * Set when the call returned, so worker threads that outlive the call don't count for it anymore.
+         */
+        private volatile boolean finished = false;
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link MetricsRecorder} publishing the measurements as MBeans, so they can be watched with any JMX console, e.g.
+ * JConsole or VisualVM. Every operation and stage gets its own MBean, registered on its first measurement as
+ * {@code eu.icarus.momca.momcapi:type=MomCA,name=<name>,operation=<operation>} and
+ * {@code eu.icarus.momca.momcapi:type=MomCA,name=<name>,stage=<stage>}.
+ */
+public class JmxMetricsRecorder implements MetricsRecorder {
+
+    private static final String DOMAIN = "eu.icarus.momca.momcapi";
+    @NotNull
+    private final MBeanServer mBeanServer;
+    @NotNull
+    private final String name;
+    @NotNull
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    @NotNull
+    private final Map<Stage, OperationMetrics> stages = new EnumMap<>(Stage.class);
+
+    /**
+     * Publishes the measurements with the platform MBean server.
+     *
+     * @param name The name distinguishing the MBeans of several {@link MomCA} instances, e.g. the database uri.
+     */
+    public JmxMetricsRecorder(@NotNull String name) {
+        this(name, ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsRecorder(@NotNull String name, @NotNull MBeanServer mBeanServer) {
+
+        this.name = name;
+        this.mBeanServer = mBeanServer;
+
+        // the stages are known upfront, so they are registered at once and looked up without synchronization later
+        for (Stage stage : Stage.values()) {
+            OperationMetrics metrics = new OperationMetrics(stage.name());
+            stages.put(stage, metrics);
+            register(metrics, "stage", stage.name());
+        }
+
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The measurements of the public method or nothing, if it wasn't called yet.
+     */
+    @NotNull
+    public Optional<OperationMetrics> getOperationMetrics(@NotNull String operation) {
+        return Optional.ofNullable(operations.get(operation));
+    }
+
+    @NotNull
+    public OperationMetrics getStageMetrics(@NotNull Stage stage) {
+        return stages.get(stage);
+    }
+
+    @Override
+    public void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed) {
+
+        OperationMetrics metrics = operations.get(operation);
+
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation, key -> {
+                OperationMetrics created = new OperationMetrics(key);
+                register(created, "operation", key);
+                return created;
+            });
+        }
+
+        metrics.record(latencyNanos, roundTrips, 0, failed);
+
+    }
+
+    @Override
+    public void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed) {
+        stages.get(stage).record(latencyNanos, stage.isRoundTrip() ? 1 : 0, bytes, failed);
+    }
+
+    @Override
+    public String toString() {
+        return "JmxMetricsRecorder{" +
+                "name='" + name + '\'' +
+                ", operations=" + operations.keySet() +
+                '}';
+    }
+
+    /**
+     * Removes all MBeans of this recorder from the MBean server, e.g. when the connection is closed.
+     */
+    public void unregister() {
+
+        List<ObjectName> objectNames = new ArrayList<>();
+        stages.keySet().forEach(stage -> objectNames.add(createObjectName("stage", stage.name())));
+        operations.keySet().forEach(operation -> objectNames.add(createObjectName("operation", operation)));
+
+        for (ObjectName objectName : objectNames) {
+            try {
+                if (objectName != null) {
+                    mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (InstanceNotFoundException | MBeanRegistrationException ignored) {
+                // already unregistered by someone else
+            }
+        }
+
+    }
+
+    @Nullable
+    private ObjectName createObjectName(@NotNull String key, @NotNull String value) {
+
+        try {
+            return new ObjectName(String.format("%s:type=MomCA,name=%s,%s=%s", DOMAIN, ObjectName.quote(name), key, ObjectName.quote(value)));
+        } catch (MalformedObjectNameException e) {
+            return null;
+        }
+
+    }
+
+    private void register(@NotNull OperationMetrics metrics, @NotNull String key, @NotNull String value) {
+
+        ObjectName objectName = createObjectName(key, value);
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+
+            // a recorder of the same name that wasn't unregistered is replaced
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+
+            mBeanServer.registerMBean(metrics, objectName);
+
+        } catch (InstanceAlreadyExistsException | InstanceNotFoundException | MBeanRegistrationException | NotCompliantMBeanException ignored) {
+            // the measurements are still available from this recorder, they are only missing in the JMX console
+        }
+
+    }
+
+}
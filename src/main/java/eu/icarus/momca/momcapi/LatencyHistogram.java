@@ -0,0 +1,183 @@
+package eu.icarus.momca.momcapi;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of non-negative values, e.g. latencies in nanoseconds, with a fixed memory footprint.
+ * <p>
+ * The buckets are log-linear: every power of two is split into {@value #SUB_BUCKET_COUNT} buckets of equal width, so
+ * values are recorded with a relative error below 1/{@value #SUB_BUCKET_COUNT} from a single nanosecond up to hundreds
+ * of years. Recording is lock-free and doesn't allocate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValue = new AtomicLong();
+
+    /**
+     * Adds all values recorded by the other histogram to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+
+        totalCount.addAndGet(other.totalCount.get());
+        totalValue.addAndGet(other.totalValue.get());
+        updateMax(other.max.get());
+
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the recorded values or {@code 0}, if no value was recorded.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalValue.get() / count;
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100, e.g. {@code 99.9}.
+     * @return The upper bound of the bucket holding the value at the percentile, but not more than the recorded
+     * maximum. {@code 0} if no value was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("Percentile '%s' is not between 0 and 100.", percentile));
+        }
+
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+
+        // concurrent recordings may have increased the total count after the buckets were summed up
+        return max.get();
+
+    }
+
+    /**
+     * @param value The value, negative values are recorded as {@code 0}.
+     */
+    public void record(long value) {
+
+        long recorded = Math.max(0, value);
+
+        counts.incrementAndGet(bucketIndex(recorded));
+        totalCount.incrementAndGet();
+        totalValue.addAndGet(recorded);
+        updateMax(recorded);
+
+    }
+
+    /**
+     * Records a value measured by a caller that waits for every call before starting the next, correcting the
+     * coordinated omission of such a caller: while a call took longer than expected, the calls that would have been
+     * started meanwhile weren't measured. For each of them a value is recorded as well, decreasing by the expected
+     * interval down to the interval.
+     *
+     * @param expectedInterval The expected time between the starts of two calls, {@code 0} to record the value only.
+     */
+    public void recordCorrected(long value, long expectedInterval) {
+
+        record(value);
+
+        if (expectedInterval <= 0) {
+            return;
+        }
+
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            record(missing);
+        }
+
+    }
+
+    public void reset() {
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+
+        totalCount.set(0);
+        totalValue.set(0);
+        max.set(0);
+
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + getCount() +
+                ", p50=" + getValueAtPercentile(50) +
+                ", p99=" + getValueAtPercentile(99) +
+                ", p999=" + getValueAtPercentile(99.9) +
+                ", max=" + getMax() +
+                '}';
+    }
+
+    private static int bucketIndex(long value) {
+
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+
+    }
+
+    private static long upperBound(int bucketIndex) {
+
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+
+        int exponent = bucketIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = bucketIndex % SUB_BUCKET_COUNT;
+        long lowerBound = (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+
+    }
+
+    private void updateMax(long value) {
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the measurements of {@link MomCA}: one call measurement for every public method talking to the database
+ * and one stage measurement for every internal step of such a call. Nested public calls, e.g. of overloaded methods,
+ * are measured as part of the outermost call.
+ * <p>
+ * Implementations are called concurrently and on the hot path, so they have to be thread-safe and cheap.
+ *
+ * @see JmxMetricsRecorder
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Discards all measurements.
+     */
+    MetricsRecorder NONE = new MetricsRecorder() {
+
+        @Override
+        public void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed) {
+        }
+
+        @Override
+        public void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed) {
+        }
+
+    };
+
+    /**
+     * @param operation  The name of the public method, e.g. {@code getPublishedCharters}.
+     * @param roundTrips The number of requests sent to the database during the call, including the requests of worker
+     *                   threads started by the call.
+     * @param failed     {@code true} if the call threw an exception.
+     */
+    void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed);
+
+    /**
+     * @param bytes  The number of bytes transferred, {@code 0} if the stage transfers no content.
+     * @param failed {@code true} if the stage threw an exception.
+     */
+    void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed);
+
+    /**
+     * The internal steps of a call.
+     */
+    enum Stage {
+
+        /**
+         * Opening a collection handle, which authenticates a new session.
+         */
+        CONNECT(true),
+        /**
+         * Taking a query service from the {@link QueryServicePool}, including the time waited for a service in use by
+         * another thread. Opening a new service is measured as {@link #CONNECT} as well.
+         */
+        POOL_WAIT(false),
+        /**
+         * Executing a query, without fetching its results.
+         */
+        QUERY(true),
+        /**
+         * Getting the handle of a resource or listing the content of a collection, which transfers metadata only.
+         */
+        RESOURCE_LOOKUP(true),
+        /**
+         * Transferring the content of a resource or query result.
+         */
+        CONTENT_TRANSFER(true),
+        /**
+         * Storing a resource or creating a collection.
+         */
+        STORE(true),
+        /**
+         * Parsing XML content on the client.
+         */
+        PARSE(false);
+
+        private final boolean roundTrip;
+
+        Stage(boolean roundTrip) {
+            this.roundTrip = roundTrip;
+        }
+
+        /**
+         * @return {@code true} if the stage sends a request to the database.
+         */
+        public boolean isRoundTrip() {
+            return roundTrip;
+        }
+
+    }
+
+}
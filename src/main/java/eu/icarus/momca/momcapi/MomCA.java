@@ -2,282 +2,1613 @@ package eu.icarus.momca.momcapi;
 
 import eu.icarus.momca.momcapi.atomid.CharterAtomId;
 import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.exception.UncheckedMomCAException;
+import eu.icarus.momca.momcapi.MetricsRecorder.Stage;
 import eu.icarus.momca.momcapi.resource.Charter;
 import eu.icarus.momca.momcapi.resource.CharterStatus;
 import eu.icarus.momca.momcapi.resource.ExistResource;
 import eu.icarus.momca.momcapi.resource.User;
+import nu.xom.Document;
 import nu.xom.ParsingException;
+import org.exist.xmldb.EXistResource;
+import org.exist.xmldb.IndexQueryService;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.xmldb.api.DatabaseManager;
 import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.CompiledExpression;
 import org.xmldb.api.base.ResourceIterator;
 import org.xmldb.api.base.ResourceSet;
 import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.CollectionManagementService;
 import org.xmldb.api.modules.XMLResource;
-import org.xmldb.api.modules.XPathQueryService;
+import org.xmldb.api.modules.XQueryService;
 
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * A client of a MOM-CA database. Instances are thread-safe and meant to be shared by all threads of an application:
+ * queries run on a {@link QueryServicePool} sized to the number of cores, collection handles and users are cached
+ * for all threads.
+ * <p>
  * Created by daniel on 24.06.2015.
  */
 public class MomCA {
 
     private static final String DRIVER = "org.exist.xmldb.DatabaseImpl";
+    private static final String PATH_CONFIG = "/db/system/config";
     private static final String PATH_USER = "/db/mom-data/xrx.user";
+    private static final MetadataCollectionName[] INDEXED_COLLECTIONS = {MetadataCollectionName.METADATA_CHARTER_IMPORT,
+            MetadataCollectionName.METADATA_CHARTER_PUBLIC, MetadataCollectionName.METADATA_CHARTER_SAVED, MetadataCollectionName.XRX_USER};
     private static final ExistQueryFactory QUERY_FACTORY = new ExistQueryFactory();
     private static final String ROOT_COLLECTION = "/db/mom-data";
     private static final String URL_ENCODING = "UTF-8";
     @NotNull
     private final String admin;
     @NotNull
+    private final CollectionCache collectionCache;
+    @NotNull
     private final String dbRootUri;
+    /**
+     * Runs the queries of {@link #findCharterEverywhere(CharterAtomId)} in parallel, shared by all calls.
+     */
+    @NotNull
+    private final ExecutorService findExecutor;
+    @NotNull
+    private final Instrumentation instrumentation;
+    @NotNull
+    private final String password;
+    @NotNull
+    private final QueryServicePool queryServicePool;
+    @NotNull
+    private final UserDirectory userDirectory;
+    @Nullable
+    private volatile AtomIdIndex atomIdIndex;
+    @Nullable
+    private volatile ResourceCache resourceCache;
+
+
+    public MomCA(@NotNull String dbRootUri, @NotNull String admin, @NotNull String password) throws MomCAException {
+        this(dbRootUri, admin, password, MetricsRecorder.NONE);
+    }
+
+    /**
+     * @param metricsRecorder Receives the measurements of all calls, including the connection setup.
+     * @see #setMetricsRecorder(MetricsRecorder)
+     */
+    public MomCA(@NotNull String dbRootUri, @NotNull String admin, @NotNull String password, @NotNull MetricsRecorder metricsRecorder) throws MomCAException {
+
+        this.instrumentation = new Instrumentation(metricsRecorder);
+        this.dbRootUri = dbRootUri;
+        this.admin = admin;
+        this.password = password;
+        this.collectionCache = new CollectionCache(CollectionCache.DEFAULT_CAPACITY, this::openCollection);
+        this.queryServicePool = new QueryServicePool(QueryServicePool.DEFAULT_SIZE, () -> openCollection("/db"));
+        this.userDirectory = new UserDirectory(new UserSourceImpl());
+
+        AtomicInteger findThreadCount = new AtomicInteger();
+        this.findExecutor = Executors.newFixedThreadPool(QueryServicePool.DEFAULT_SIZE, runnable -> {
+            Thread thread = new Thread(runnable, "momca-find-" + findThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        initDatabaseConnection();
+
+    }
+
+    /**
+     * Crawls all charter collections and writes an index of the atom ids of all charters. The index isn't used until it
+     * is set by {@link #setAtomIdIndex(AtomIdIndex)}.
+     *
+     * @param file The index file to create. An existing file is replaced.
+     * @return The opened index.
+     */
+    @NotNull
+    public AtomIdIndex buildAtomIdIndex(@NotNull Path file) throws MomCAException {
+
+        return instrumentation.call("buildAtomIdIndex", () -> {
+
+            List<AtomIdIndex.Location> locations = new ArrayList<>();
+
+            for (CharterStatus status : CharterStatus.values()) {
+
+                List<String> queryResults = queryDatabase(QUERY_FACTORY.queryAtomIds(ROOT_COLLECTION + "/" + status.getParentCollection()));
+                for (int i = 0; i + 1 < queryResults.size(); i += 2) {
+                    locations.add(new AtomIdIndex.Location(queryResults.get(i + 1), status, queryResults.get(i)));
+                }
+
+            }
+
+            try {
+                AtomIdIndex.write(file, locations);
+                return AtomIdIndex.open(file);
+            } catch (IOException e) {
+                throw new MomCAException(String.format("Failed to write the atom id index '%s'.", file), e);
+            }
+
+        });
+
+    }
+
+    /**
+     * Closes the cached collection handles, the query services and the threads finding charters. Queries running on
+     * other threads are finished, new queries fail.
+     */
+    public void closeConnection() throws MomCAException {
+
+        instrumentation.call("closeConnection", () -> {
+
+            findExecutor.shutdown();
+            collectionCache.invalidateAll();
+
+            try {
+                queryServicePool.close();
+            } catch (XMLDBException e) {
+                throw new MomCAException("Failed to close the database connection.", e);
+            }
+
+        });
+
+    }
+
+    /**
+     * Exports charters to a zip archive with {@value CharterExporter#DEFAULT_PARALLELISM} documents fetched in parallel.
+     *
+     * @see #exportCharters(CharterStatus, String, Path, int, ExportListener)
+     */
+    @NotNull
+    public ExportResult exportCharters(@NotNull CharterStatus status, @NotNull String path, @NotNull Path archive) throws MomCAException {
+        return exportCharters(status, path, archive, CharterExporter.DEFAULT_PARALLELISM, (exportedCount, failedCount, documentsPerSecond) -> {
+        });
+    }
+
+    /**
+     * Exports all charters of a status below a collection to a zip archive, e.g. for snapshots of the published
+     * charters. The entries of the archive are named by the charters' paths relative to the collection of the status.
+     * The manifest entry {@value CharterExporter#MANIFEST_ENTRY} lists the atom id and the entry name of every charter.
+     * <p>
+     * Documents that can't be read or that aren't charters are skipped and reported in the result.
+     *
+     * @param path        The path below the collection of the status, e.g. an archive, a fond like
+     *                    {@code "CH-KAE/Urkunden"} or a collection. An empty path exports all charters of the status. For
+     *                    private charters the path is the name of the user.
+     * @param archive     The zip file to create. An existing file is replaced.
+     * @param parallelism The number of documents fetched in parallel.
+     * @param listener    Informed about the progress, called concurrently by the fetching threads.
+     */
+    @NotNull
+    public ExportResult exportCharters(@NotNull CharterStatus status, @NotNull String path, @NotNull Path archive,
+                                       int parallelism, @NotNull ExportListener listener) throws MomCAException {
+
+        return instrumentation.call("exportCharters", () -> {
+
+            String basePath = ROOT_COLLECTION + "/" + status.getParentCollection();
+            String relativePath = path.replaceAll("^/+|/+$", "");
+
+            List<String> rootPaths = new ArrayList<>();
+            if (status == CharterStatus.PRIVATE) {
+
+                // the private charters are kept in the 'metadata.charter' collection of every user's home collection
+                List<String> userNames = relativePath.isEmpty() ? listChildCollections(basePath) : Collections.singletonList(relativePath);
+                for (String userName : userNames) {
+                    rootPaths.add(basePath + "/" + userName + "/metadata.charter");
+                }
+
+            } else {
+                rootPaths.add(relativePath.isEmpty() ? basePath : basePath + "/" + relativePath);
+            }
+
+            return new CharterExporter(new ExportSourceImpl(), parallelism, listener).export(rootPaths, basePath, archive);
+
+        });
+
+    }
+
+    /**
+     * Opens a feed of the charters and users created, modified or removed since the last poll. The feed tracks the
+     * imported, published and saved charters as well as the user collection, including the private charters.
+     *
+     * @param checkpointFile The file the state of the feed is saved to. If it exists, the feed continues where it was
+     *                       left off, else the first poll reports all documents as created.
+     */
+    @NotNull
+    public ChangeFeed openChangeFeed(@NotNull Path checkpointFile) throws MomCAException {
+
+        List<String> collectionPaths = Arrays.asList(
+                ROOT_COLLECTION + "/" + CharterStatus.IMPORTED.getParentCollection(),
+                ROOT_COLLECTION + "/" + CharterStatus.PUBLIC.getParentCollection(),
+                ROOT_COLLECTION + "/" + CharterStatus.SAVED.getParentCollection(),
+                PATH_USER);
+
+        return new ChangeFeed(new ChangeSourceImpl(), checkpointFile, collectionPaths);
+
+    }
+
+    /**
+     * @return The index consulted to find charters without a query, if one is set.
+     */
+    @NotNull
+    public Optional<AtomIdIndex> getAtomIdIndex() {
+        return Optional.ofNullable(atomIdIndex);
+    }
+
+    /**
+     * Sets the index consulted by the {@code get...Charters} methods before searching the database. Charters found by a
+     * query and stored charters are added to the index. Call {@link AtomIdIndex#flush()} to persist these changes. Unset
+     * the index before closing it, a closed index rejects lookups.
+     *
+     * @param atomIdIndex The index or {@code null} to always search the database.
+     */
+    public void setAtomIdIndex(@Nullable AtomIdIndex atomIdIndex) {
+        this.atomIdIndex = atomIdIndex;
+    }
+
+    /**
+     * @return The cache of open collection handles, e.g. to invalidate collections that were changed by other clients
+     * or to read the hit and miss counters.
+     */
+    @NotNull
+    public CollectionCache getCollectionCache() {
+        return collectionCache;
+    }
+
+    /**
+     * @return The pool of query services, e.g. to read how often threads waited for a service or the compile time saved
+     * by the compiled query caches of the services.
+     */
+    @NotNull
+    public QueryServicePool getQueryServicePool() {
+        return queryServicePool;
+    }
+
+    /**
+     * @return The recorder receiving the measurements, {@link MetricsRecorder#NONE} if none was set.
+     */
+    @NotNull
+    public MetricsRecorder getMetricsRecorder() {
+        return instrumentation.getRecorder();
+    }
+
+    /**
+     * Sets the recorder receiving the latency, round trips, transferred bytes and errors of every public method talking
+     * to the database as well as of the internal stages of these methods.
+     *
+     * @see JmxMetricsRecorder
+     */
+    public void setMetricsRecorder(@NotNull MetricsRecorder metricsRecorder) {
+        instrumentation.setRecorder(metricsRecorder);
+    }
+
+    /**
+     * @return The cache consulted before the content of a resource is transferred, if one is set.
+     */
+    @NotNull
+    public Optional<ResourceCache> getResourceCache() {
+        return Optional.ofNullable(resourceCache);
+    }
+
+    /**
+     * Sets a second-level cache for the content of resources read by their uri, e.g. charters found by the atom id
+     * index, exported charters and users. Before a cached content is used, it is revalidated against the last-modified
+     * timestamp of the resource, which is read with the resource handle without transferring the content.
+     *
+     * @param resourceCache The cache or {@code null} to always transfer the content.
+     */
+    public void setResourceCache(@Nullable ResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    /**
+     * Finds the imported, private, published and saved charters with the charter id of the atom id. The collections of
+     * the statuses are queried in parallel on the {@link QueryServicePool}, so the latency is that of the slowest query
+     * instead of the sum of all. The collections of each status are searched like the {@code get...Charters} methods
+     * do, the private charters of all users are searched.
+     *
+     * @return The charters found for every status, an empty list for statuses without a match.
+     */
+    @NotNull
+    public Map<CharterStatus, List<Charter>> findCharterEverywhere(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+
+        return instrumentation.call("findCharterEverywhere", () -> {
+
+            Map<CharterStatus, ExistQuery> queriesByStatus = new EnumMap<>(CharterStatus.class);
+            for (CharterStatus status : CharterStatus.values()) {
+                queriesByStatus.put(status, status == CharterStatus.PRIVATE
+                        ? QUERY_FACTORY.queryPrivateChartersOfAllUsers(charterAtomId.getCharterId())
+                        : QUERY_FACTORY.queryCharters(getCharterSearchPath(charterAtomId, status.getParentCollection()), charterAtomId.getCharterId()));
+            }
+
+            Map<CharterStatus, List<Charter>> chartersByStatus = new EnumMap<>(CharterStatus.class);
+            Map<CharterStatus, Future<List<Charter>>> results = new EnumMap<>(CharterStatus.class);
+
+            try {
+
+                // the pool's threads outlive this call, so the call is handed to the tasks to count their round trips
+                queriesByStatus.forEach((status, existQuery) -> results.put(status, findExecutor.submit(instrumentation.inCurrentCall(() -> readCharters(existQuery)))));
+
+                for (Map.Entry<CharterStatus, Future<List<Charter>>> result : results.entrySet()) {
+                    chartersByStatus.put(result.getKey(), result.getValue().get());
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MomCAException(String.format("Finding charter '%s' was interrupted.", charterAtomId));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof MomCAException) {
+                    throw (MomCAException) e.getCause();
+                }
+                // the queries only throw MomCAExceptions, so only errors end up here
+                throw new IllegalStateException(String.format("Failed to find charter '%s'.", charterAtomId), e.getCause());
+            } catch (RejectedExecutionException e) {
+                throw new MomCAException(String.format("Failed to find charter '%s', the connection is closed.", charterAtomId), e);
+            } finally {
+                // the queries still running after a failure are of no use anymore
+                results.values().forEach(result -> result.cancel(true));
+            }
+
+            AtomIdIndex index = atomIdIndex;
+            if (index != null) {
+                chartersByStatus.values().forEach(charters -> charters.forEach(charter -> index.put(charter.getAtomId(), charter.getStatus(), charter.getUri())));
+            }
+
+            return chartersByStatus;
+
+        });
+
+    }
+
+    @NotNull
+    public List<Charter> getImportedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("getImportedCharters", () -> getMatchingCharters(charterAtomId, CharterStatus.IMPORTED.getParentCollection()));
+    }
+
+    /**
+     * @see #getPublishedCharters(CharterAtomId, PageRequest)
+     */
+    @NotNull
+    public Page<Charter> getImportedCharters(@NotNull CharterAtomId charterAtomId, @NotNull PageRequest pageRequest) throws MomCAException {
+        return instrumentation.call("getImportedCharters", () -> getMatchingCharterPage(charterAtomId, CharterStatus.IMPORTED.getParentCollection(), pageRequest));
+    }
+
+    @NotNull
+    public List<Charter> getPrivateCharters(@NotNull CharterAtomId charterAtomId, @NotNull String userName) throws MomCAException {
+        return instrumentation.call("getPrivateCharters", () -> getMatchingCharters(charterAtomId, CharterStatus.PRIVATE.getParentCollection() + "/" + userName + "/metadata.charter"));
+    }
+
+    /**
+     * @see #getPublishedCharters(CharterAtomId, PageRequest)
+     */
+    @NotNull
+    public Page<Charter> getPrivateCharters(@NotNull CharterAtomId charterAtomId, @NotNull String userName, @NotNull PageRequest pageRequest) throws MomCAException {
+        return instrumentation.call("getPrivateCharters", () -> getMatchingCharterPage(charterAtomId, CharterStatus.PRIVATE.getParentCollection() + "/" + userName + "/metadata.charter", pageRequest));
+    }
+
+    @NotNull
+    public List<Charter> getPublishedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("getPublishedCharters", () -> getMatchingCharters(charterAtomId, CharterStatus.PUBLIC.getParentCollection()));
+    }
+
+    /**
+     * Gets a page of the published charters matching the atom id, ordered by URI. Only the charters of the page are
+     * transferred, so charter ids with many matches can be read page by page. The {@link AtomIdIndex} isn't consulted,
+     * as it doesn't know the order of all matches, but the charters of the page are added to it.
+     *
+     * @param pageRequest The first page or the page after the cursor of a previous page of the same atom id.
+     * @throws IllegalArgumentException if the cursor was returned for another atom id.
+     */
+    @NotNull
+    public Page<Charter> getPublishedCharters(@NotNull CharterAtomId charterAtomId, @NotNull PageRequest pageRequest) throws MomCAException {
+        return instrumentation.call("getPublishedCharters", () -> getMatchingCharterPage(charterAtomId, CharterStatus.PUBLIC.getParentCollection(), pageRequest));
+    }
+
+    @NotNull
+    public List<Charter> getSavedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("getSavedCharters", () -> getMatchingCharters(charterAtomId, CharterStatus.SAVED.getParentCollection()));
+    }
+
+    /**
+     * @see #getPublishedCharters(CharterAtomId, PageRequest)
+     */
+    @NotNull
+    public Page<Charter> getSavedCharters(@NotNull CharterAtomId charterAtomId, @NotNull PageRequest pageRequest) throws MomCAException {
+        return instrumentation.call("getSavedCharters", () -> getMatchingCharterPage(charterAtomId, CharterStatus.SAVED.getParentCollection(), pageRequest));
+    }
+
+    /**
+     * @return The id of the user's moderator.
+     */
+    @NotNull
+    public Optional<String> getModerator(@NotNull String userName) throws MomCAException {
+        return instrumentation.call("getModerator", () -> userDirectory.getModerator(userName));
+    }
+
+    /**
+     * @return The user, served from the {@link UserDirectory} if it is cached and unchanged.
+     */
+    @NotNull
+    public Optional<User> getUser(@NotNull String userName) throws MomCAException {
+        return instrumentation.call("getUser", () -> userDirectory.getUser(userName));
+    }
+
+    /**
+     * @return The directory caching the users, e.g. to preload all users, to set the time to live or to read the hit
+     * ratio.
+     */
+    @NotNull
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
+    /**
+     * Installs the range indexes needed by the queries of this library for the charter and user collections and
+     * reindexes the collections. The indexes missing from an existing {@code collection.xconf} are added to it, the
+     * rest of its configuration is kept. Collections that define all indexes already are neither reconfigured nor
+     * reindexed. Reindexing large collections takes a while and blocks writes to them.
+     *
+     * @see IndexDefinition#forCollection(MetadataCollectionName)
+     */
+    public void installIndexes() throws MomCAException {
+
+        instrumentation.call("installIndexes", () -> {
+
+            for (MetadataCollectionName collectionName : INDEXED_COLLECTIONS) {
+
+                String path = ROOT_COLLECTION + "/" + collectionName.getValue();
+                Optional<CollectionCache.Lease> lease = getCollection(path);
+                if (!lease.isPresent()) {
+                    continue;
+                }
+
+                try (CollectionCache.Lease collection = lease.get()) {
+
+                    Set<IndexDefinition> indexes = IndexDefinition.forCollection(collectionName);
+                    Optional<ExistResource> existingXconf = getExistResource("collection.xconf", PATH_CONFIG + path);
+
+                    String xconf;
+                    if (existingXconf.isPresent()) {
+
+                        Document document = existingXconf.get().getXmlAsDocument();
+
+                        try {
+                            if (!IndexDefinition.addToCollectionConfiguration(document, indexes)) {
+                                continue;
+                            }
+                        } catch (IllegalArgumentException e) {
+                            throw new MomCAException(String.format("Failed to add the indexes to the configuration of collection '%s'.", path), e);
+                        }
+
+                        xconf = document.toXML();
+
+                    } else {
+                        xconf = IndexDefinition.toCollectionConfiguration(indexes);
+                    }
+
+                    try {
+                        IndexQueryService indexService = (IndexQueryService) collection.getCollection().getService("IndexQueryService", "1.0");
+                        indexService.configureCollection(xconf);
+                        indexService.reindexCollection();
+                    } catch (XMLDBException e) {
+                        throw new MomCAException(String.format("Failed to configure the indexes of collection '%s'.", path), e);
+                    }
+
+                }
+
+            }
+
+        });
+
+    }
+
+    /**
+     * @return {@code true} if all range indexes the query needs are configured for the collection it searches.
+     */
+    public boolean isIndexBacked(@NotNull ExistQuery existQuery) throws MomCAException {
+
+        return instrumentation.call("isIndexBacked", () -> {
+
+            Set<String> indexes = new HashSet<>(queryDatabase(QUERY_FACTORY.queryIndexedPaths(existQuery.getSearchPath())));
+            return existQuery.getRequiredIndexes().stream().allMatch(index -> index.isDefinedBy(indexes));
+
+        });
+
+    }
+
+    /**
+     * Lists the charters of a status below a collection page by page, ordered by URI. The page is cut out of the
+     * matches on the server, so only its charters are serialized and transferred, however large the collection is.
+     * <p>
+     * The cursor of a page holds the URI of its last charter and the next page starts after that URI, so charters
+     * stored or removed between two requests neither shift the following pages nor make them skip or repeat charters.
+     *
+     * @param path        The path below the collection of the status like for
+     *                    {@link #exportCharters(CharterStatus, String, Path)}. An empty path lists all charters of the
+     *                    status. For private charters the path is the name of the user.
+     * @param pageRequest The first page or the page after the cursor of a previous page of the same status and path.
+     * @throws IllegalArgumentException if the cursor was returned for another status or path.
+     */
+    @NotNull
+    public Page<Charter> listCharters(@NotNull CharterStatus status, @NotNull String path, @NotNull PageRequest pageRequest) throws MomCAException {
+
+        return instrumentation.call("listCharters", () -> {
+
+            String searchPath = getListingPath(status, path);
+            String after = pageRequest.getLastUri(searchPath).orElse("");
+            ExistQuery existQuery = QUERY_FACTORY.queryCharterPage(searchPath, after, pageRequest.getLimit(), pageRequest.isTotalCountRequested());
+
+            return getPage(existQuery, searchPath, this::nextCharter, Charter::getUri);
+
+        });
+
+    }
+
+    /**
+     * Lists the summaries of the charters of a status below a collection page by page, ordered by URI like
+     * {@link #listCharters(CharterStatus, String, PageRequest)}. The pages of both methods are the same, so a cursor
+     * returned by one of them can be passed to the other.
+     *
+     * @param fields The fields of the summaries besides URI and atom id, e.g. {@link CharterSummary#DEFAULT_FIELDS}.
+     * @see #streamCharterSummaries(CharterStatus, String, Set)
+     */
+    @NotNull
+    public Page<CharterSummary> listCharterSummaries(@NotNull CharterStatus status, @NotNull String path, @NotNull Set<CharterSummary.Field> fields,
+                                                     @NotNull PageRequest pageRequest) throws MomCAException {
+
+        return instrumentation.call("listCharterSummaries", () -> {
+
+            String searchPath = getListingPath(status, path);
+            String after = pageRequest.getLastUri(searchPath).orElse("");
+            ExistQuery existQuery = QUERY_FACTORY.queryCharterSummaryPage(searchPath, fields, after, pageRequest.getLimit(), pageRequest.isTotalCountRequested());
+
+            return getPage(existQuery, searchPath, iterator -> nextCharterSummary(iterator, status, fields), CharterSummary::getUri);
+
+        });
+
+    }
+
+    @NotNull
+    public List<String> listUsers() throws MomCAException {
+        return instrumentation.call("listUsers", () -> userDirectory.listUsers());
+    }
+
+    /**
+     * Lazily streams the summaries of all charters of a status below a collection. The fields are evaluated by the
+     * database and every summary is transferred as a single short string, so listing a collection transfers only a
+     * fraction of its documents' size and no XML is parsed on the client. The summaries are pulled from the query
+     * result one by one while the stream is consumed, so the stream should be closed to free the result on the server.
+     *
+     * @param path   The path below the collection of the status like for
+     *               {@link #listCharters(CharterStatus, String, PageRequest)}.
+     * @param fields The fields of the summaries besides URI and atom id, e.g. {@link CharterSummary#DEFAULT_FIELDS}.
+     * @throws MomCAException if the query fails. Failures while consuming the stream are thrown as
+     *                        {@link UncheckedMomCAException}.
+     */
+    @NotNull
+    public Stream<CharterSummary> streamCharterSummaries(@NotNull CharterStatus status, @NotNull String path, @NotNull Set<CharterSummary.Field> fields) throws MomCAException {
+        return instrumentation.call("streamCharterSummaries", () -> streamResults(QUERY_FACTORY.queryCharterSummaries(getListingPath(status, path), fields),
+                iterator -> nextCharterSummary(iterator, status, fields)));
+    }
+
+    /**
+     * Lazily streams the imported charters matching the atom id. The documents are pulled from the query result one by
+     * one while the stream is consumed, so the stream should be closed to free the result on the server.
+     *
+     * @throws MomCAException if the query fails. Failures while consuming the stream are thrown as
+     *                        {@link UncheckedMomCAException}.
+     */
+    @NotNull
+    public Stream<Charter> streamImportedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("streamImportedCharters", () -> streamMatchingCharters(charterAtomId, CharterStatus.IMPORTED.getParentCollection()));
+    }
+
+    /**
+     * @see #streamImportedCharters(CharterAtomId)
+     */
+    @NotNull
+    public Stream<Charter> streamPrivateCharters(@NotNull CharterAtomId charterAtomId, @NotNull String userName) throws MomCAException {
+        return instrumentation.call("streamPrivateCharters", () -> streamMatchingCharters(charterAtomId, CharterStatus.PRIVATE.getParentCollection() + "/" + userName + "/metadata.charter"));
+    }
+
+    /**
+     * @see #streamImportedCharters(CharterAtomId)
+     */
+    @NotNull
+    public Stream<Charter> streamPublishedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("streamPublishedCharters", () -> streamMatchingCharters(charterAtomId, CharterStatus.PUBLIC.getParentCollection()));
+    }
+
+    /**
+     * @see #streamImportedCharters(CharterAtomId)
+     */
+    @NotNull
+    public Stream<Charter> streamSavedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
+        return instrumentation.call("streamSavedCharters", () -> streamMatchingCharters(charterAtomId, CharterStatus.SAVED.getParentCollection()));
+    }
+
+    /**
+     * Stores charters in batches of {@value BatchWriter#DEFAULT_BATCH_SIZE} with
+     * {@value BatchWriter#DEFAULT_PARALLELISM} batches stored in parallel.
+     *
+     * @see #storeCharters(List, int, int)
+     */
+    @NotNull
+    public StoreReport storeCharters(@NotNull List<Charter> charters) throws MomCAException {
+        return storeCharters(charters, BatchWriter.DEFAULT_BATCH_SIZE, BatchWriter.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Stores charters, replacing existing charters of the same name. Imported and published charters are stored in the
+     * collection of their archive and fond or collection, as given by {@link CharterAtomId#getBasePath()}; saved and
+     * private charters are stored in their parent collection. Missing collections are created.
+     * <p>
+     * Charters failing to be stored don't abort the other charters, they are listed in the report.
+     *
+     * @param batchSize   The maximum number of charters stored in the same batch.
+     * @param parallelism The number of batches stored in parallel.
+     */
+    @NotNull
+    public StoreReport storeCharters(@NotNull List<Charter> charters, int batchSize, int parallelism) throws MomCAException {
+
+        return instrumentation.call("storeCharters", () -> {
+
+            Map<String, List<ExistResource>> chartersByCollection = charters.stream()
+                    .collect(Collectors.groupingBy(this::getTargetCollection, LinkedHashMap::new, Collectors.toList()));
+
+            StoreReport report = new BatchWriter(new StoreTargetImpl(), batchSize, parallelism).write(chartersByCollection);
+
+            AtomIdIndex index = atomIdIndex;
+            if (index != null) {
+
+                Map<String, MomCAException> failures = report.getFailures();
+                for (Charter charter : charters) {
+                    String uri = getTargetCollection(charter) + "/" + charter.getName();
+                    if (!failures.containsKey(uri)) {
+                        index.put(charter.getAtomId(), charter.getStatus(), uri);
+                    }
+                }
+
+            }
+
+            return report;
+
+        });
+
+    }
+
+    /**
+     * Stores users in batches of {@value BatchWriter#DEFAULT_BATCH_SIZE} with {@value BatchWriter#DEFAULT_PARALLELISM}
+     * batches stored in parallel.
+     *
+     * @see #storeUsers(List, int, int)
+     */
+    @NotNull
+    public StoreReport storeUsers(@NotNull List<User> users) throws MomCAException {
+        return storeUsers(users, BatchWriter.DEFAULT_BATCH_SIZE, BatchWriter.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Stores users in the user collection, replacing existing users of the same name. The stored users are removed
+     * from the {@link UserDirectory}.
+     *
+     * @param batchSize   The maximum number of users stored in the same batch.
+     * @param parallelism The number of batches stored in parallel.
+     */
+    @NotNull
+    public StoreReport storeUsers(@NotNull List<User> users, int batchSize, int parallelism) throws MomCAException {
+
+        return instrumentation.call("storeUsers", () -> {
+
+            Map<String, List<ExistResource>> usersByCollection = new LinkedHashMap<>();
+            usersByCollection.put(PATH_USER, new ArrayList<>(users));
+
+            try {
+                return new BatchWriter(new StoreTargetImpl(), batchSize, parallelism).write(usersByCollection);
+            } finally {
+                users.forEach(user -> userDirectory.invalidate(user.getName().replace(".xml", "")));
+            }
+
+        });
+
+    }
+
+    @NotNull
+    private Charter createCharter(@NotNull String charterUri, @NotNull String content) throws MomCAException {
+        String resourceName = charterUri.substring(charterUri.lastIndexOf('/') + 1, charterUri.length());
+        String parentUri = charterUri.substring(0, charterUri.lastIndexOf('/'));
+        return instrumentation.stage(Stage.PARSE, () -> Charter.createFromHeader(ExistResource.createLazily(resourceName, parentUri, content)));
+    }
+
+    @NotNull
+    private ExistResource createExistResource(@NotNull String resourceName, @NotNull String parentCollectionPath, @NotNull String content) throws MomCAException {
+
+        return instrumentation.stage(Stage.PARSE, () -> {
+            try {
+                return new ExistResource(resourceName, parentCollectionPath, content);
+            } catch (ParsingException e) {
+                throw new MomCAException(String.format("Content of '%s' is not well-formed XML.", resourceName));
+            } catch (IOException e) {
+                throw new MomCAException("Failed to read the documents external DTD subset due to an I/O error.", e);
+            }
+        });
+
+    }
+
+    /**
+     * @return The lease of the collection's handle, which has to be closed after use, or nothing if the collection
+     * doesn't exist.
+     */
+    @NotNull
+    private Optional<CollectionCache.Lease> getCollection(@NotNull String uri) throws MomCAException {
+
+        try {
+            return collectionCache.get(uri);
+        } catch (XMLDBException e) {
+            throw new MomCAException(String.format("Failed to open collection '%s'.", uri), e);
+        }
+
+    }
+
+    @NotNull
+    private String getContent(@NotNull XMLResource resource, @NotNull String resourceName) throws MomCAException {
+
+        try {
+            return instrumentation.stage(Stage.CONTENT_TRANSFER, () -> (String) resource.getContent(), Instrumentation::utf8Length);
+        } catch (XMLDBException e) {
+            throw new MomCAException(String.format("Failed to get content of resource '%s'.", resourceName), e);
+        }
+
+    }
+
+    @NotNull
+    private Optional<ExistResource> getExistResource(@NotNull String resourceName, @NotNull String parentCollectionPath) throws MomCAException {
+
+        return withCollection(parentCollectionPath, collection -> {
+
+            Optional<XMLResource> resource = getXMLResource(resourceName, collection);
+            if (!resource.isPresent()) {
+                return Optional.empty();
+            }
+
+            String content = readContent(resource.get(), parentCollectionPath, resourceName);
+            return Optional.of(createExistResource(resourceName, parentCollectionPath, content));
+
+        });
+
+    }
+
+    @NotNull
+    private String getCharterSearchPath(@NotNull CharterAtomId charterAtomId, @NotNull String parentCollection) {
+
+        String path;
+        if (parentCollection.equals(CharterStatus.SAVED.getParentCollection())) {
+
+            String[] parts = {ROOT_COLLECTION, parentCollection};
+            path = String.join("/", parts);
+
+        } else if (charterAtomId.isPartOfArchiveFond()) {
+
+            String[] parts = {ROOT_COLLECTION, parentCollection, charterAtomId.getArchiveId().get(), charterAtomId.getFondId().get()};
+            path = String.join("/", parts);
+
+        } else {
+
+            String[] parts = {ROOT_COLLECTION, parentCollection, charterAtomId.getCollectionId().get()};
+            path = String.join("/", parts);
+
+        }
+
+        return path;
+
+    }
+
+    /**
+     * Fetches the charters the index knows for the atom id in the search path directly by their uris.
+     *
+     * @return The charters or nothing, if the index doesn't know the atom id or points to a document that was removed
+     * or changed.
+     */
+    @NotNull
+    private Optional<List<Charter>> getIndexedCharters(@NotNull AtomIdIndex index, @NotNull CharterAtomId charterAtomId, @NotNull String searchPath) throws MomCAException {
+
+        List<AtomIdIndex.Location> locations = index.lookup(charterAtomId).stream()
+                .filter(location -> location.getUri().startsWith(searchPath + "/"))
+                .collect(Collectors.toList());
+
+        if (locations.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<Charter> charters = new ArrayList<>(locations.size());
+        for (AtomIdIndex.Location location : locations) {
+
+            Optional<Charter> charter = getCharter(location.getUri());
+
+            if (!charter.isPresent() || !charter.get().getAtomId().equals(charterAtomId)) {
+                index.remove(location.getUri());
+                return Optional.empty();
+            }
+
+            charters.add(charter.get());
+
+        }
+
+        return Optional.of(charters);
+
+    }
+
+    /**
+     * @param existQuery A query returning the total count, whether there are more items and the results of every item
+     *                   of the page, see {@link ExistQueryFactory#queryCharterPage(String, String, int, boolean)}.
+     * @param queryKey   Identifies the query in the cursor of the page.
+     * @param uri        Gets the URI of an item, the cursor of the page holds the URI of its last item.
+     */
+    @NotNull
+    private <T> Page<T> getPage(@NotNull ExistQuery existQuery, @NotNull String queryKey, @NotNull ResultReader<T> reader,
+                                @NotNull Function<T, String> uri) throws MomCAException {
+
+        ResourceSet resultSet = executeQuery(existQuery);
+
+        try {
+
+            ResourceIterator iterator = resultSet.getIterator();
+            int totalCount = Integer.parseInt(nextContent(iterator));
+            boolean hasNext = Boolean.parseBoolean(nextContent(iterator));
+
+            List<T> items = new ArrayList<>();
+            while (iterator.hasMoreResources()) {
+                items.add(reader.next(iterator));
+            }
+
+            String nextCursor = hasNext && !items.isEmpty() ? PageRequest.createCursor(queryKey, uri.apply(items.get(items.size() - 1))) : null;
+            return new Page<>(items, nextCursor, totalCount < 0 ? null : totalCount);
+
+        } catch (XMLDBException | NumberFormatException e) {
+            throw new MomCAException("Failed to extract results from query resultSet.", e);
+        } finally {
+            releaseResultSet(resultSet);
+        }
+
+    }
+
+    /**
+     * @return The collection listed for the path below the collection of the status.
+     */
+    @NotNull
+    private String getListingPath(@NotNull CharterStatus status, @NotNull String path) {
+
+        String listingPath = ROOT_COLLECTION + "/" + status.getParentCollection();
+        String relativePath = path.replaceAll("^/+|/+$", "");
+
+        if (!relativePath.isEmpty()) {
+            // the private charters are kept in the 'metadata.charter' collection of every user's home collection
+            listingPath += status == CharterStatus.PRIVATE ? "/" + relativePath + "/metadata.charter" : "/" + relativePath;
+        }
+
+        return listingPath;
+
+    }
+
+    @NotNull
+    private Optional<Charter> getCharter(@NotNull String charterUri) throws MomCAException {
+
+        String resourceName = charterUri.substring(charterUri.lastIndexOf('/') + 1);
+        String collectionPath = charterUri.substring(0, charterUri.lastIndexOf('/'));
+
+        return withCollection(collectionPath, collection -> {
+
+            Optional<XMLResource> resource = getXMLResource(resourceName, collection);
+            if (!resource.isPresent()) {
+                return Optional.empty();
+            }
+
+            try {
+                return Optional.of(createCharter(charterUri, readContent(resource.get(), collectionPath, resourceName)));
+            } catch (IllegalArgumentException e) {
+                // not a valid charter anymore, so the index entry is stale
+                return Optional.empty();
+            }
+
+        });
+
+    }
+
+    @NotNull
+    private List<Charter> getMatchingCharters(@NotNull CharterAtomId charterAtomId, String parentCollection) throws MomCAException {
+
+        AtomIdIndex index = atomIdIndex;
+
+        if (index != null) {
+            Optional<List<Charter>> indexedCharters = getIndexedCharters(index, charterAtomId, getCharterSearchPath(charterAtomId, parentCollection));
+            if (indexedCharters.isPresent()) {
+                return indexedCharters.get();
+            }
+        }
+
+        List<Charter> charters;
+        try (Stream<Charter> matchingCharters = streamMatchingCharters(charterAtomId, parentCollection)) {
+            charters = matchingCharters.collect(Collectors.toList());
+        } catch (UncheckedMomCAException e) {
+            throw e.getCause();
+        }
+
+        if (index != null) {
+            charters.forEach(charter -> index.put(charter.getAtomId(), charter.getStatus(), charter.getUri()));
+        }
+
+        return charters;
+
+    }
+
+    @NotNull
+    private Page<Charter> getMatchingCharterPage(@NotNull CharterAtomId charterAtomId, @NotNull String parentCollection, @NotNull PageRequest pageRequest) throws MomCAException {
+
+        String path = getCharterSearchPath(charterAtomId, parentCollection);
+        String queryKey = path + "#" + charterAtomId.getCharterId();
+
+        String after = pageRequest.getLastUri(queryKey).orElse("");
+        ExistQuery existQuery = QUERY_FACTORY.queryCharterPage(path, charterAtomId.getCharterId(), after, pageRequest.getLimit(), pageRequest.isTotalCountRequested());
+
+        return getPage(existQuery, queryKey, this::nextCharter, Charter::getUri);
+
+    }
+
+    private long getLastModificationTime(@NotNull XMLResource resource, @NotNull String resourceName) throws MomCAException {
+
+        if (!(resource instanceof EXistResource)) {
+            return UserDirectory.Entry.UNKNOWN;
+        }
+
+        try {
+            return ((EXistResource) resource).getLastModificationTime().getTime();
+        } catch (XMLDBException e) {
+            throw new MomCAException(String.format("Failed to get the modification time of resource '%s'.", resourceName), e);
+        }
+
+    }
+
+    @NotNull
+    private List<Charter> readCharters(@NotNull ExistQuery existQuery) throws MomCAException {
+
+        try (Stream<Charter> charters = streamCharters(existQuery)) {
+            return charters.collect(Collectors.toList());
+        } catch (UncheckedMomCAException e) {
+            throw e.getCause();
+        }
+
+    }
+
+    /**
+     * Reads the content of the resource from the resource cache, if it is set and holds the current version of the
+     * resource. Otherwise the content is transferred and put into the cache.
+     */
+    @NotNull
+    private String readContent(@NotNull XMLResource resource, @NotNull String parentCollectionPath, @NotNull String resourceName) throws MomCAException {
+
+        ResourceCache cache = resourceCache;
+        if (cache == null) {
+            return getContent(resource, resourceName);
+        }
+
+        String uri = parentCollectionPath + "/" + resourceName;
+        long lastModified = getLastModificationTime(resource, resourceName);
+
+        if (lastModified == UserDirectory.Entry.UNKNOWN) {
+            return getContent(resource, resourceName);
+        }
+
+        Optional<String> cachedContent = cache.get(uri, lastModified);
+        if (cachedContent.isPresent()) {
+            return cachedContent.get();
+        }
+
+        String content = getContent(resource, resourceName);
+        cache.put(uri, lastModified, content);
+
+        return content;
+
+    }
+
+    @NotNull
+    private String getTargetCollection(@NotNull Charter charter) {
+
+        String path;
+        switch (charter.getStatus()) {
+
+            case IMPORTED:
+            case PUBLIC:
+                path = String.join("/", ROOT_COLLECTION, charter.getStatus().getParentCollection(), charter.getAtomId().getBasePath());
+                break;
+            default:
+                path = charter.getParentUri();
+                break;
+
+        }
+
+        return path;
+
+    }
+
+    @NotNull
+    private Optional<XMLResource> getXMLResource(@NotNull String resourceName, @NotNull Collection parentCollection) throws MomCAException {
+
+        String encodedName = encodeResourceName(resourceName);
+
+        try {
+            return Optional.ofNullable(instrumentation.stage(Stage.RESOURCE_LOOKUP, () -> (XMLResource) parentCollection.getResource(encodedName)));
+        } catch (XMLDBException e) {
+            throw new MomCAException(String.format("Failed to get resource '%s' from parent collection.", resourceName), e);
+        }
+
+    }
+
+    @NotNull
+    private String encodeResourceName(@NotNull String resourceName) throws MomCAException {
+
+        try {
+            return URLEncoder.encode(URLDecoder.decode(resourceName, URL_ENCODING), URL_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new MomCAException(String.format("URL-Encoding '%s' not supported.", URL_ENCODING), e);
+        }
+
+    }
+
+    /**
+     * Register the database
+     */
+    private void initDatabaseConnection() throws MomCAException {
+
+        try {
+
+            org.xmldb.api.base.Database dbDatabase = (org.xmldb.api.base.Database) Class.forName(DRIVER).newInstance();
+            DatabaseManager.registerDatabase(dbDatabase);
+
+            // opens the first query service right away, so wrong credentials fail here
+            queryServicePool.release(queryServicePool.acquire());
+
+        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException | InterruptedException e) {
+            throw new MomCAException("Failed to initialize database connection.", e);
+        } catch (XMLDBException e) {
+            if (e.getMessage().equals("Wrong password for user [admin] ")) {
+                throw new MomCAException("Wrong admin password!", e);
+            } else {
+                throw new MomCAException(String.format("Failed to connect to remote database '%s'", dbRootUri), e);
+            }
+        }
+
+
+    }
+
     @NotNull
-    private final String password;
-    private Collection rootCollection;
+    private List<String> listChildCollections(@NotNull String path) throws MomCAException {
 
+        return withCollection(path, collection -> {
+            try {
+                return Optional.of(Arrays.asList(instrumentation.stage(Stage.RESOURCE_LOOKUP, collection::listChildCollections)));
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to list child collections of collection '%s'.", path), e);
+            }
+        }).orElse(Collections.emptyList());
 
-    public MomCA(@NotNull String dbRootUri, @NotNull String admin, @NotNull String password) throws MomCAException {
+    }
 
-        this.dbRootUri = dbRootUri;
-        this.admin = admin;
-        this.password = password;
+    @NotNull
+    private List<String> listUserResourceNames() throws MomCAException {
 
-        initDatabaseConnection();
+        String[] escapedUserNames = withCollection(PATH_USER, userCollection -> {
+            try {
+                return Optional.of(instrumentation.stage(Stage.RESOURCE_LOOKUP, userCollection::listResources));
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to list resources in collection '%s'.", PATH_USER), e);
+            }
+        }).orElse(new String[0]);
+
+        List<String> users = new ArrayList<>(escapedUserNames.length);
+        for (String escapedUserName : escapedUserNames) {
+            try {
+                users.add(URLDecoder.decode(escapedUserName, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new MomCAException(String.format("URL-Encoding '%s' not supported.", URL_ENCODING), e);
+            }
+        }
+
+        users.sort(Comparator.<String>naturalOrder());
+        return users;
 
     }
 
-    public void closeConnection() throws MomCAException {
+    private Collection openCollection(@NotNull String uri) throws XMLDBException {
+        return instrumentation.stage(Stage.CONNECT, () -> DatabaseManager.getCollection(dbRootUri + uri, admin, password));
+    }
+
+    @NotNull
+    private ResourceSet executeQuery(@NotNull ExistQuery existQuery) throws MomCAException {
+
+        QueryServicePool.PooledQueryService pooledService = instrumentation.stage(Stage.POOL_WAIT, () -> {
+            try {
+                return queryServicePool.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MomCAException("Interrupted while waiting for a query service.", e);
+            } catch (XMLDBException e) {
+                throw new MomCAException("Failed to get the XQuery service.", e);
+            }
+        });
 
         try {
-            rootCollection.close();
-        } catch (XMLDBException e) {
-            throw new MomCAException("Failed to close the database connection.", e);
+
+            XQueryService queryService = pooledService.getService();
+
+            CompiledExpression expression;
+            try {
+                expression = pooledService.getCompiledQueryCache().get(existQuery.getTemplate(), queryService);
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to compile query '%s'", existQuery.getTemplate()), e);
+            }
+
+            try {
+
+                for (Map.Entry<String, Object> variable : existQuery.getVariables().entrySet()) {
+                    queryService.declareVariable(variable.getKey(), variable.getValue());
+                }
+
+                return instrumentation.stage(Stage.QUERY, () -> queryService.execute(expression));
+
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to execute query '%s'", existQuery), e);
+            } finally {
+                expression.reset();
+            }
+
+        } finally {
+            // the result set doesn't depend on the service, so it is released before the results are fetched
+            queryServicePool.release(pooledService);
         }
 
     }
 
     @NotNull
-    public List<Charter> getImportedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
-        return getMatchingCharters(charterAtomId, CharterStatus.IMPORTED.getParentCollection());
+    private List<String> queryDatabase(@NotNull ExistQuery existQuery) throws MomCAException {
+
+        ResourceSet resultSet = executeQuery(existQuery);
+
+        List<String> resultList = new ArrayList<>(0);
+        try {
+            ResourceIterator iterator = resultSet.getIterator();
+            while (iterator.hasMoreResources()) {
+                resultList.add(instrumentation.stage(Stage.CONTENT_TRANSFER, () -> iterator.nextResource().getContent().toString(), Instrumentation::utf8Length));
+            }
+        } catch (XMLDBException e) {
+            throw new MomCAException("Failed to extract results from query resultSet.", e);
+        } finally {
+            releaseResultSet(resultSet);
+        }
+
+        return resultList;
+
     }
 
+    /**
+     * Reads a charter from its uri and content, the next two results, and adds it to the {@link AtomIdIndex}.
+     */
     @NotNull
-    public List<Charter> getPrivateCharters(@NotNull CharterAtomId charterAtomId, @NotNull String userName) throws MomCAException {
-        return getMatchingCharters(charterAtomId, CharterStatus.PRIVATE.getParentCollection() + "/" + userName + "/metadata.charter");
+    private Charter nextCharter(@NotNull ResourceIterator iterator) throws XMLDBException, MomCAException {
+
+        String charterUri = nextContent(iterator);
+        Charter charter = createCharter(charterUri, nextContent(iterator));
+
+        AtomIdIndex index = atomIdIndex;
+        if (index != null) {
+            index.put(charter.getAtomId(), charter.getStatus(), charter.getUri());
+        }
+
+        return charter;
+
     }
 
+    /**
+     * Reads a summary from the next result and adds it to the {@link AtomIdIndex}.
+     */
     @NotNull
-    public List<Charter> getPublishedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
-        return getMatchingCharters(charterAtomId, CharterStatus.PUBLIC.getParentCollection());
+    private CharterSummary nextCharterSummary(@NotNull ResourceIterator iterator, @NotNull CharterStatus status, @NotNull Set<CharterSummary.Field> fields)
+            throws XMLDBException, MomCAException {
+
+        String result = nextContent(iterator);
+
+        CharterSummary summary;
+        try {
+            summary = CharterSummary.parse(result, status, fields);
+        } catch (IllegalArgumentException e) {
+            throw new MomCAException(String.format("Failed to read charter summary '%s'.", result), e);
+        }
+
+        AtomIdIndex index = atomIdIndex;
+        if (index != null) {
+            index.put(summary.getAtomId(), summary.getStatus(), summary.getUri());
+        }
+
+        return summary;
+
     }
 
+    /**
+     * Fetches the content of the next result.
+     *
+     * @throws XMLDBException if there is no next result.
+     */
     @NotNull
-    public List<Charter> getSavedCharters(@NotNull CharterAtomId charterAtomId) throws MomCAException {
-        return getMatchingCharters(charterAtomId, CharterStatus.SAVED.getParentCollection());
+    private String nextContent(@NotNull ResourceIterator iterator) throws XMLDBException {
+        return instrumentation.stage(Stage.CONTENT_TRANSFER, () -> iterator.nextResource().getContent().toString(), Instrumentation::utf8Length);
     }
 
-    @NotNull
-    public Optional<User> getUser(@NotNull String userName) throws MomCAException {
-        return getExistResource(userName + ".xml", PATH_USER).flatMap(existResource -> Optional.of(new User(existResource)));
+    private long parseTimestamp(@NotNull String xsDateTime) throws MomCAException {
+
+        try {
+            return DatatypeFactory.newInstance().newXMLGregorianCalendar(xsDateTime).toGregorianCalendar().getTimeInMillis();
+        } catch (DatatypeConfigurationException | IllegalArgumentException e) {
+            throw new MomCAException(String.format("Failed to parse timestamp '%s'.", xsDateTime), e);
+        }
+
+    }
+
+    private void releaseResultSet(@NotNull ResourceSet resultSet) {
+
+        try {
+            resultSet.clear();
+        } catch (XMLDBException ignored) {
+            // the result is dropped by the server when the session times out anyway
+        }
+
     }
 
     @NotNull
-    public List<String> listUsers() throws MomCAException {
-        return listUserResourceNames().stream().map(s -> s.replace(".xml", "")).collect(Collectors.toList());
+    private Stream<Charter> streamMatchingCharters(@NotNull CharterAtomId charterAtomId, @NotNull String parentCollection) throws MomCAException {
+        String path = getCharterSearchPath(charterAtomId, parentCollection);
+        return streamCharters(QUERY_FACTORY.queryCharters(path, charterAtomId.getCharterId()));
     }
 
-    private Optional<Charter> getCharterFromUri(String charterUri) throws MomCAException {
-        String resourceName = charterUri.substring(charterUri.lastIndexOf('/') + 1, charterUri.length());
-        String parentUri = charterUri.substring(0, charterUri.lastIndexOf('/'));
-        return getExistResource(resourceName, parentUri).map(Charter::new);
+    /**
+     * @param existQuery A query returning the uri and the content of every charter as two consecutive items.
+     */
+    @NotNull
+    private Stream<Charter> streamCharters(@NotNull ExistQuery existQuery) throws MomCAException {
+        return streamResults(existQuery, iterator -> {
+            String charterUri = nextContent(iterator);
+            return createCharter(charterUri, nextContent(iterator));
+        });
     }
 
+    /**
+     * The items are read from the result iterator as the stream is consumed. The query service is back in the pool once
+     * the query executed, closing the stream releases the result set.
+     *
+     * @param reader Reads an item from its results, all items of the query have the same number of results.
+     */
     @NotNull
-    private Optional<Collection> getCollection(@NotNull String uri) throws MomCAException {
+    private <T> Stream<T> streamResults(@NotNull ExistQuery existQuery, @NotNull ResultReader<T> reader) throws MomCAException {
 
+        ResourceSet resultSet = executeQuery(existQuery);
+
+        ResourceIterator iterator;
         try {
-            return Optional.ofNullable(DatabaseManager.getCollection(dbRootUri + uri, admin, password));
+            iterator = resultSet.getIterator();
         } catch (XMLDBException e) {
-            throw new MomCAException(String.format("Failed to open collection '%s'.", uri), e);
+            releaseResultSet(resultSet);
+            throw new MomCAException("Failed to extract results from query resultSet.", e);
         }
 
-    }
+        Spliterator<T> items = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
 
-    @NotNull
-    private Optional<ExistResource> getExistResource(@NotNull String resourceName, @NotNull String parentCollectionPath) throws MomCAException {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
 
-        Optional<ExistResource> existResource = Optional.empty();
-        Optional<Collection> collection = getCollection(parentCollectionPath);
+                try {
 
-        if (collection.isPresent()) {
+                    if (!iterator.hasMoreResources()) {
+                        return false;
+                    }
 
-            Optional<XMLResource> resource = getXMLResource(resourceName, collection.get());
-            if (resource.isPresent()) {
+                    action.accept(reader.next(iterator));
+                    return true;
 
-                String content;
-                try {
-                    content = (String) resource.get().getContent();
                 } catch (XMLDBException e) {
-                    throw new MomCAException(String.format("Failed to get content of resource '%s'.", resourceName), e);
-                }
-
-                try {
-                    existResource = Optional.of(new ExistResource(resourceName, parentCollectionPath, content));
-                } catch (ParsingException e) {
-                    throw new MomCAException(String.format("Content of '%s' is not well-formed XML.", resourceName));
-                } catch (IOException e) {
-                    throw new MomCAException("Failed to read the documents external DTD subset due to an I/O error.", e);
+                    throw new UncheckedMomCAException(new MomCAException("Failed to extract results from query resultSet.", e));
+                } catch (MomCAException e) {
+                    throw new UncheckedMomCAException(e);
                 }
 
             }
-        }
 
-        return existResource;
+        };
+
+        return StreamSupport.stream(items, false).onClose(() -> releaseResultSet(resultSet));
 
     }
 
+    /**
+     * Applies the function to the collection's handle, which is leased from the {@link CollectionCache} meanwhile.
+     *
+     * @return The result of the function or nothing if the collection doesn't exist.
+     */
     @NotNull
-    private List<Charter> getMatchingCharters(@NotNull CharterAtomId charterAtomId, String parentCollection) throws MomCAException {
+    private <T> Optional<T> withCollection(@NotNull String uri, @NotNull CollectionFunction<T> function) throws MomCAException {
 
-        String path;
-        if (parentCollection.equals(CharterStatus.SAVED.getParentCollection())) {
+        Optional<CollectionCache.Lease> lease = getCollection(uri);
+        if (!lease.isPresent()) {
+            return Optional.empty();
+        }
 
-            String[] parts = {ROOT_COLLECTION, parentCollection};
-            path = String.join("/", parts);
+        try (CollectionCache.Lease collection = lease.get()) {
+            return function.apply(collection.getCollection());
+        }
 
-        } else if (charterAtomId.isPartOfArchiveFond()) {
+    }
 
-            String[] parts = {ROOT_COLLECTION, parentCollection, charterAtomId.getArchiveId().get(), charterAtomId.getFondId().get()};
-            path = String.join("/", parts);
+    /**
+     * Reads from a collection handle that is only valid while the function runs.
+     */
+    @FunctionalInterface
+    private interface CollectionFunction<T> {
 
-        } else {
+        @NotNull
+        Optional<T> apply(@NotNull Collection collection) throws MomCAException;
 
-            String[] parts = {ROOT_COLLECTION, parentCollection, charterAtomId.getCollectionId().get()};
-            path = String.join("/", parts);
+    }
 
-        }
+    /**
+     * Reads an item of a query result from the item's consecutive results.
+     */
+    @FunctionalInterface
+    private interface ResultReader<T> {
 
-        List<Charter> charters = new ArrayList<>(0);
-        for (String charterUri : queryDatabase(QUERY_FACTORY.queryUrisOfCharter(path, charterAtomId.getCharterId()))) {
-            getCharterFromUri(charterUri).ifPresent(charters::add);
-        }
-        return charters;
+        @NotNull
+        T next(@NotNull ResourceIterator iterator) throws XMLDBException, MomCAException;
 
     }
 
-    @NotNull
-    private Optional<XMLResource> getXMLResource(@NotNull String resourceName, @NotNull Collection parentCollection) throws MomCAException {
+    /**
+     * Queries the changed documents for the {@link ChangeFeed}.
+     */
+    private class ChangeSourceImpl implements ChangeFeed.ChangeSource {
 
-        String encodedName;
-        try {
-            encodedName = URLEncoder.encode(URLDecoder.decode(resourceName, URL_ENCODING), URL_ENCODING);
-        } catch (UnsupportedEncodingException e) {
-            throw new MomCAException(String.format("URL-Encoding '%s' not supported.", URL_ENCODING), e);
+        @NotNull
+        @Override
+        public Set<String> listUris(@NotNull String collectionPath) throws MomCAException {
+            return new HashSet<>(queryDatabase(QUERY_FACTORY.queryDocumentUris(collectionPath)));
         }
 
-        try {
-            return Optional.ofNullable((XMLResource) parentCollection.getResource(encodedName));
-        } catch (XMLDBException e) {
-            throw new MomCAException(String.format("Failed to get resource '%s' from parent collection.", resourceName), e);
+        @NotNull
+        @Override
+        public ChangeFeed.ModifiedDocuments listModifiedSince(@NotNull String collectionPath, long since) throws MomCAException {
+
+            // the query excludes documents modified exactly at the specified time, the feed needs them
+            String sinceDateTime = Instant.ofEpochMilli(since - 1).toString();
+            List<String> queryResults = queryDatabase(QUERY_FACTORY.queryModifiedSince(collectionPath, sinceDateTime));
+
+            if (queryResults.size() < 2) {
+                return new ChangeFeed.ModifiedDocuments(0, 0, Collections.emptyMap());
+            }
+
+            Map<String, Long> lastModifiedByUri = new HashMap<>();
+            for (int i = 2; i + 1 < queryResults.size(); i += 2) {
+                lastModifiedByUri.put(queryResults.get(i), parseTimestamp(queryResults.get(i + 1)));
+            }
+
+            try {
+                return new ChangeFeed.ModifiedDocuments(Integer.parseInt(queryResults.get(0)), Long.parseLong(queryResults.get(1)), lastModifiedByUri);
+            } catch (NumberFormatException e) {
+                throw new MomCAException(String.format("Failed to read the documents modified in collection '%s'.", collectionPath), e);
+            }
+
         }
 
     }
 
     /**
-     * Register the database
+     * Reads the charters for the {@link CharterExporter}. The handles of the walked collections are shared with the
+     * other requests by the collection cache.
      */
-    private void initDatabaseConnection() throws MomCAException {
+    private class ExportSourceImpl implements CharterExporter.ExportSource {
 
-        try {
+        @NotNull
+        @Override
+        public List<String> listChildCollections(@NotNull String collectionPath) throws MomCAException {
+            return MomCA.this.listChildCollections(collectionPath);
+        }
 
-            org.xmldb.api.base.Database dbDatabase = (org.xmldb.api.base.Database) Class.forName(DRIVER).newInstance();
-            DatabaseManager.registerDatabase(dbDatabase);
+        @NotNull
+        @Override
+        public List<String> listResources(@NotNull String collectionPath) throws MomCAException {
 
-            Optional<Collection> root = getCollection("/db");
-            root.ifPresent(collection -> this.rootCollection = collection);
+            return withCollection(collectionPath, collection -> {
+                try {
+                    return Optional.of(Arrays.asList(instrumentation.stage(Stage.RESOURCE_LOOKUP, collection::listResources)));
+                } catch (XMLDBException e) {
+                    throw new MomCAException(String.format("Failed to list resources in collection '%s'.", collectionPath), e);
+                }
+            }).orElse(Collections.emptyList());
 
-        } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e) {
-            throw new MomCAException("Failed to initialize database connection.", e);
-        } catch (XMLDBException e) {
-            if (e.getMessage().equals("Wrong password for user [admin] ")) {
-                throw new MomCAException("Wrong admin password!", e);
-            } else {
-                throw new MomCAException(String.format("Failed to connect to remote database '%s'", dbRootUri), e);
-            }
         }
 
+        @NotNull
+        @Override
+        public Optional<String> getContent(@NotNull String collectionPath, @NotNull String resourceName) throws MomCAException {
+
+            return withCollection(collectionPath, collection -> {
+                Optional<XMLResource> resource = getXMLResource(resourceName, collection);
+                return resource.isPresent() ? Optional.of(readContent(resource.get(), collectionPath, resourceName)) : Optional.empty();
+            });
+
+        }
 
     }
 
-    @NotNull
-    private List<String> listUserResourceNames() throws MomCAException {
+    /**
+     * Stores resources for the {@link BatchWriter}.
+     */
+    private class StoreTargetImpl implements BatchWriter.StoreTarget {
 
-        Optional<Collection> userCollection = getCollection(PATH_USER);
+        @Override
+        public void ensureCollection(@NotNull String collectionPath) throws MomCAException {
 
-        List<String> users = new ArrayList<>();
-        if (userCollection.isPresent()) {
+            Optional<CollectionCache.Lease> existing = getCollection(collectionPath);
+            if (existing.isPresent()) {
+                existing.get().close();
+                return;
+            }
 
-            String[] escapedUserNames;
-            try {
-                escapedUserNames = userCollection.get().listResources();
-            } catch (XMLDBException e) {
-                throw new MomCAException(String.format("Failed to list resources in collection '%s'.", PATH_USER), e);
+            int separator = collectionPath.lastIndexOf('/');
+            if (separator <= 0) {
+                throw new MomCAException(String.format("Root collection '%s' doesn't exist.", collectionPath));
             }
 
-            for (String escapedUserName : escapedUserNames) {
-                try {
-                    users.add(URLDecoder.decode(escapedUserName, "UTF-8"));
-                } catch (UnsupportedEncodingException e) {
-                    throw new MomCAException(String.format("URL-Encoding '%s' not supported.", URL_ENCODING), e);
-                }
+            String parentPath = collectionPath.substring(0, separator);
+            ensureCollection(parentPath);
+
+            try (CollectionCache.Lease parent = getCollection(parentPath)
+                    .orElseThrow(() -> new MomCAException(String.format("Failed to open collection '%s'.", parentPath)))) {
+                CollectionManagementService service = (CollectionManagementService) parent.getCollection().getService("CollectionManagementService", "1.0");
+                instrumentation.stage(Stage.STORE, () -> service.createCollection(collectionPath.substring(separator + 1))).close();
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to create collection '%s'.", collectionPath), e);
             }
 
+            // the new collection is opened by the next request
+            collectionCache.invalidate(collectionPath);
+
         }
 
-        users.sort(Comparator.<String>naturalOrder());
-        return users;
+        @Override
+        public void store(@NotNull String collectionPath, @NotNull String resourceName, @NotNull String content) throws MomCAException {
+
+            try (CollectionCache.Lease lease = getCollection(collectionPath)
+                    .orElseThrow(() -> new MomCAException(String.format("Collection '%s' doesn't exist.", collectionPath)))) {
+                Collection collection = lease.getCollection();
+                XMLResource resource = (XMLResource) collection.createResource(encodeResourceName(resourceName), XMLResource.RESOURCE_TYPE);
+                resource.setContent(content);
+                instrumentation.stage(Stage.STORE, () -> {
+                    collection.storeResource(resource);
+                    return content;
+                }, Instrumentation::utf8Length);
+            } catch (XMLDBException e) {
+                throw new MomCAException(String.format("Failed to store resource '%s' in collection '%s'.", resourceName, collectionPath), e);
+            }
+
+            // the stored version has a new timestamp, so the cached content would only be dropped by the next read
+            ResourceCache cache = resourceCache;
+            if (cache != null) {
+                cache.invalidate(collectionPath + "/" + resourceName);
+            }
+
+        }
 
     }
 
-    @NotNull
-    private List<String> queryDatabase(String existQuery) throws MomCAException {
+    /**
+     * Loads users for the {@link UserDirectory}. The last-modified timestamp is read from the same resource handle as
+     * the content, so both are consistent.
+     */
+    private class UserSourceImpl implements UserDirectory.UserSource {
+
+        @NotNull
+        @Override
+        public Optional<Long> getLastModified(@NotNull String userName) throws MomCAException {
+
+            String resourceName = userName + ".xml";
+
+            return withCollection(PATH_USER, userCollection -> {
+                Optional<XMLResource> resource = getXMLResource(resourceName, userCollection);
+                return resource.isPresent() ? Optional.of(getLastModificationTime(resource.get(), resourceName)) : Optional.empty();
+            });
 
-        XPathQueryService queryService;
-        try {
-            queryService = (XPathQueryService) rootCollection.getService("XPathQueryService", "1.0");
-        } catch (XMLDBException e) {
-            throw new MomCAException("Failed to get the XPath query service.", e);
         }
 
-        ResourceSet resultSet;
-        try {
-            resultSet = queryService.query(existQuery);
-        } catch (XMLDBException e) {
-            throw new MomCAException(String.format("Failed to execute query '%s'", existQuery), e);
+        @NotNull
+        @Override
+        public List<String> listUserNames() throws MomCAException {
+            return listUserResourceNames().stream().map(s -> s.replace(".xml", "")).collect(Collectors.toList());
         }
 
-        List<String> resultList = new ArrayList<>(0);
-        try {
-            ResourceIterator iterator = resultSet.getIterator();
-            while (iterator.hasMoreResources()) {
-                XMLResource resource = (XMLResource) iterator.nextResource();
-                resultList.add(resource.getContent().toString());
-            }
-        } catch (XMLDBException e) {
-            throw new MomCAException("Failed to extract results from query resultSet.", e);
+        @NotNull
+        @Override
+        public Optional<UserDirectory.Entry> load(@NotNull String userName) throws MomCAException {
+
+            String resourceName = userName + ".xml";
+
+            return withCollection(PATH_USER, userCollection -> {
+
+                Optional<XMLResource> resource = getXMLResource(resourceName, userCollection);
+                if (!resource.isPresent()) {
+                    return Optional.empty();
+                }
+
+                long lastModified = getLastModificationTime(resource.get(), resourceName);
+                String content = readContent(resource.get(), PATH_USER, resourceName);
+                User user = new User(createExistResource(resourceName, PATH_USER, content));
+                return Optional.of(new UserDirectory.Entry(user, lastModified));
+
+            });
+
         }
 
-        return resultList;
+        @NotNull
+        @Override
+        public Map<String, UserDirectory.Entry> loadAll() throws MomCAException {
+
+            List<String> queryResults = queryDatabase(QUERY_FACTORY.queryAllUsers());
+
+            Map<String, UserDirectory.Entry> users = new HashMap<>();
+            for (int i = 0; i + 2 < queryResults.size(); i += 3) {
+
+                // the document names are URL-encoded, load() and the invalidation on store use the decoded name
+                String resourceName;
+                try {
+                    resourceName = URLDecoder.decode(queryResults.get(i), URL_ENCODING);
+                } catch (UnsupportedEncodingException e) {
+                    throw new MomCAException(String.format("URL-Encoding '%s' not supported.", URL_ENCODING), e);
+                }
+
+                long lastModified = parseTimestamp(queryResults.get(i + 1));
+                User user = new User(createExistResource(resourceName, PATH_USER, queryResults.get(i + 2)));
+                users.put(resourceName.replace(".xml", ""), new UserDirectory.Entry(user, lastModified));
+
+            }
+
+            return users;
+
+        }
 
     }
 
-}
\ No newline at end of file
+}
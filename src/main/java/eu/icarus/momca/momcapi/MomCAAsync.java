@@ -0,0 +1,197 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.User;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls of a {@link MomCA} on an executor, so a caller can start several lookups at once and combine their
+ * results instead of waiting for one round trip after the other. The futures complete exceptionally with the
+ * {@link eu.icarus.momca.momcapi.exception.MomCAException} of the call, which {@link CompletableFuture#join()} throws
+ * wrapped in a {@link CompletionException}.
+ * <p>
+ * Every call can be cancelled by {@link CompletableFuture#cancel(boolean)}. With {@code mayInterruptIfRunning} the
+ * thread running the call is interrupted: a call waiting for a query service gives up at once, a call waiting for the
+ * database finishes in the background and its result is dropped.
+ * <p>
+ * Blocking calls occupy their thread until the database answered. On Java 21 and later
+ * {@link #newVirtualThreadExecutor()} runs each call on a virtual thread, so thousands of calls in flight don't need
+ * thousands of platform threads; the number of queries running at the same time is still limited by the
+ * {@link QueryServicePool}.
+ */
+public class MomCAAsync {
+
+    @NotNull
+    private final Executor executor;
+    @NotNull
+    private final MomCA momCA;
+
+    /**
+     * @param executor Runs the calls. It is not shut down by this class.
+     */
+    public MomCAAsync(@NotNull MomCA momCA, @NotNull Executor executor) {
+        this.momCA = momCA;
+        this.executor = executor;
+    }
+
+    /**
+     * @return An executor running every call on a virtual thread of its own, if the runtime supports virtual threads,
+     * else a fixed pool of daemon threads, one for each query service of the client.
+     */
+    @NotNull
+    public static ExecutorService newDefaultExecutor(@NotNull MomCA momCA) {
+
+        Optional<ExecutorService> virtualThreadExecutor = newVirtualThreadExecutor();
+        if (virtualThreadExecutor.isPresent()) {
+            return virtualThreadExecutor.get();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "momca-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        return Executors.newFixedThreadPool(momCA.getQueryServicePool().getSize(), threadFactory);
+
+    }
+
+    /**
+     * @return An executor starting a virtual thread for every call or nothing, if the runtime doesn't support virtual
+     * threads. The executor is looked up reflectively, so the library still runs on Java 8.
+     */
+    @NotNull
+    public static Optional<ExecutorService> newVirtualThreadExecutor() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return Optional.of((ExecutorService) factory.invoke(null));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return Optional.empty();
+        }
+
+    }
+
+    /**
+     * @see MomCA#findCharterEverywhere(CharterAtomId)
+     */
+    @NotNull
+    public CompletableFuture<Map<CharterStatus, List<Charter>>> findCharterEverywhereAsync(@NotNull CharterAtomId charterAtomId) {
+        return AsyncCall.submit(executor, () -> momCA.findCharterEverywhere(charterAtomId));
+    }
+
+    /**
+     * @return The client running the calls.
+     */
+    @NotNull
+    public MomCA getMomCA() {
+        return momCA;
+    }
+
+    /**
+     * @see MomCA#getImportedCharters(CharterAtomId)
+     */
+    @NotNull
+    public CompletableFuture<List<Charter>> getImportedChartersAsync(@NotNull CharterAtomId charterAtomId) {
+        return AsyncCall.submit(executor, () -> momCA.getImportedCharters(charterAtomId));
+    }
+
+    /**
+     * @see MomCA#getModerator(String)
+     */
+    @NotNull
+    public CompletableFuture<Optional<String>> getModeratorAsync(@NotNull String userName) {
+        return AsyncCall.submit(executor, () -> momCA.getModerator(userName));
+    }
+
+    /**
+     * @see MomCA#getPrivateCharters(CharterAtomId, String)
+     */
+    @NotNull
+    public CompletableFuture<List<Charter>> getPrivateChartersAsync(@NotNull CharterAtomId charterAtomId, @NotNull String userName) {
+        return AsyncCall.submit(executor, () -> momCA.getPrivateCharters(charterAtomId, userName));
+    }
+
+    /**
+     * @see MomCA#getPublishedCharters(CharterAtomId)
+     */
+    @NotNull
+    public CompletableFuture<List<Charter>> getPublishedChartersAsync(@NotNull CharterAtomId charterAtomId) {
+        return AsyncCall.submit(executor, () -> momCA.getPublishedCharters(charterAtomId));
+    }
+
+    /**
+     * @see MomCA#getSavedCharters(CharterAtomId)
+     */
+    @NotNull
+    public CompletableFuture<List<Charter>> getSavedChartersAsync(@NotNull CharterAtomId charterAtomId) {
+        return AsyncCall.submit(executor, () -> momCA.getSavedCharters(charterAtomId));
+    }
+
+    /**
+     * @see MomCA#getUser(String)
+     */
+    @NotNull
+    public CompletableFuture<Optional<User>> getUserAsync(@NotNull String userName) {
+        return AsyncCall.submit(executor, () -> momCA.getUser(userName));
+    }
+
+    /**
+     * @see MomCA#listCharterSummaries(CharterStatus, String, Set, PageRequest)
+     */
+    @NotNull
+    public CompletableFuture<Page<CharterSummary>> listCharterSummariesAsync(@NotNull CharterStatus status, @NotNull String path,
+                                                                            @NotNull Set<CharterSummary.Field> fields, @NotNull PageRequest pageRequest) {
+        return AsyncCall.submit(executor, () -> momCA.listCharterSummaries(status, path, fields, pageRequest));
+    }
+
+    /**
+     * @see MomCA#listCharters(CharterStatus, String, PageRequest)
+     */
+    @NotNull
+    public CompletableFuture<Page<Charter>> listChartersAsync(@NotNull CharterStatus status, @NotNull String path, @NotNull PageRequest pageRequest) {
+        return AsyncCall.submit(executor, () -> momCA.listCharters(status, path, pageRequest));
+    }
+
+    /**
+     * @see MomCA#listUsers()
+     */
+    @NotNull
+    public CompletableFuture<List<String>> listUsersAsync() {
+        return AsyncCall.submit(executor, momCA::listUsers);
+    }
+
+    /**
+     * @see MomCA#storeCharters(List)
+     */
+    @NotNull
+    public CompletableFuture<StoreReport> storeChartersAsync(@NotNull List<Charter> charters) {
+        return AsyncCall.submit(executor, () -> momCA.storeCharters(charters));
+    }
+
+    /**
+     * @see MomCA#storeUsers(List)
+     */
+    @NotNull
+    public CompletableFuture<StoreReport> storeUsersAsync(@NotNull List<User> users) {
+        return AsyncCall.submit(executor, () -> momCA.storeUsers(users));
+    }
+
+}
@@ -0,0 +1,123 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The measurements of one operation or stage collected by the {@link JmxMetricsRecorder}.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    @NotNull
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    @NotNull
+    private final String name;
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    OperationMetrics(@NotNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return The latencies in nanoseconds.
+     */
+    @NotNull
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.getMax() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMeanRoundTrips() {
+        long count = latencies.getCount();
+        return count == 0 ? 0 : (double) roundTrips.get() / count;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        bytesTransferred.set(0);
+        errorCount.set(0);
+        roundTrips.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "OperationMetrics{" +
+                "name='" + name + '\'' +
+                ", count=" + getCount() +
+                ", errorCount=" + errorCount +
+                ", p50Micros=" + getP50Micros() +
+                ", p99Micros=" + getP99Micros() +
+                ", p999Micros=" + getP999Micros() +
+                ", roundTrips=" + roundTrips +
+                ", bytesTransferred=" + bytesTransferred +
+                '}';
+    }
+
+    void record(long latencyNanos, int roundTrips, long bytes, boolean failed) {
+
+        latencies.record(latencyNanos);
+        this.roundTrips.addAndGet(roundTrips);
+        bytesTransferred.addAndGet(bytes);
+
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package eu.icarus.momca.momcapi;
+
+/**
+ * The JMX view of {@link OperationMetrics}. Latencies are given in microseconds.
+ */
+public interface OperationMetricsMBean {
+
+    long getBytesTransferred();
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMaxMicros();
+
+    double getMeanMicros();
+
+    double getMeanRoundTrips();
+
+    double getP50Micros();
+
+    double getP999Micros();
+
+    double getP99Micros();
+
+    long getRoundTrips();
+
+    void reset();
+
+}
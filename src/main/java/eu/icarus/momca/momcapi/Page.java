@@ -0,0 +1,67 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of the items of a paged query, with the cursor to request the next page.
+ *
+ * @see PageRequest
+ */
+public final class Page<T> {
+
+    @NotNull
+    private final List<T> items;
+    @Nullable
+    private final String nextCursor;
+    @Nullable
+    private final Integer totalCount;
+
+    Page(@NotNull List<T> items, @Nullable String nextCursor, @Nullable Integer totalCount) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+    }
+
+    @NotNull
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return The cursor to pass to {@link PageRequest#after(String, int)} for the next page, nothing if this is the
+     * last page.
+     */
+    @NotNull
+    public Optional<String> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+
+    /**
+     * @return The number of items of the query on all pages, if it was requested by
+     * {@link PageRequest#withTotalCount()}.
+     */
+    @NotNull
+    public Optional<Integer> getTotalCount() {
+        return Optional.ofNullable(totalCount);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "size=" + items.size() +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", totalCount=" + totalCount +
+                '}';
+    }
+
+}
@@ -0,0 +1,121 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * The page of a paged query to fetch: the first page or the page continuing a previous one, at most a number of
+ * items long, optionally with the total number of items.
+ */
+public final class PageRequest {
+
+    private static final String CURSOR_VERSION = "2";
+    @Nullable
+    private final String cursor;
+    private final int limit;
+    private final boolean totalCountRequested;
+
+    private PageRequest(@Nullable String cursor, int limit, boolean totalCountRequested) {
+
+        if (limit < 1) {
+            throw new IllegalArgumentException(String.format("Page limit '%d' is not positive.", limit));
+        }
+
+        this.cursor = cursor;
+        this.limit = limit;
+        this.totalCountRequested = totalCountRequested;
+
+    }
+
+    /**
+     * @param cursor The cursor of the previous page, see {@link Page#getNextCursor()}. It is only valid for the query
+     *               that returned the previous page.
+     */
+    @NotNull
+    public static PageRequest after(@NotNull String cursor, int limit) {
+        return new PageRequest(cursor, limit, false);
+    }
+
+    @NotNull
+    public static PageRequest first(int limit) {
+        return new PageRequest(null, limit, false);
+    }
+
+    /**
+     * @param lastUri The URI of the last item of the page.
+     * @return The cursor marking the end of the page, only valid for the same query.
+     */
+    @NotNull
+    static String createCursor(@NotNull String queryKey, @NotNull String lastUri) {
+        String value = String.join(":", CURSOR_VERSION, Integer.toHexString(queryKey.hashCode()), lastUri);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @NotNull
+    public Optional<String> getCursor() {
+        return Optional.ofNullable(cursor);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isTotalCountRequested() {
+        return totalCountRequested;
+    }
+
+    @Override
+    public String toString() {
+        return "PageRequest{" +
+                "cursor='" + cursor + '\'' +
+                ", limit=" + limit +
+                ", totalCountRequested=" + totalCountRequested +
+                '}';
+    }
+
+    /**
+     * @return The same request, but also counting all items of the query. Counting takes an additional pass over the
+     * matches on the server, no documents are transferred for it.
+     */
+    @NotNull
+    public PageRequest withTotalCount() {
+        return new PageRequest(cursor, limit, true);
+    }
+
+    /**
+     * @param queryKey Identifies the query, so cursors of other queries are rejected.
+     * @return The URI of the last item before the requested page, nothing for the first page.
+     * @throws IllegalArgumentException if the cursor is malformed or was returned by another query.
+     */
+    @NotNull
+    Optional<String> getLastUri(@NotNull String queryKey) {
+
+        if (cursor == null) {
+            return Optional.empty();
+        }
+
+        String[] parts;
+        try {
+            // the uri may contain colons itself, so it is the rest of the value
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 3);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Cursor '%s' is malformed.", cursor), e);
+        }
+
+        if (parts.length != 3 || !parts[0].equals(CURSOR_VERSION) || !parts[2].startsWith("/")) {
+            throw new IllegalArgumentException(String.format("Cursor '%s' is malformed.", cursor));
+        }
+
+        if (!parts[1].equals(Integer.toHexString(queryKey.hashCode()))) {
+            throw new IllegalArgumentException(String.format("Cursor '%s' belongs to another query.", cursor));
+        }
+
+        return Optional.of(parts[2]);
+
+    }
+
+}
@@ -0,0 +1,253 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.XQueryService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of query services, so threads sharing a {@link MomCA} never use the same service at the same time.
+ * A query service keeps the variables declared for the next query and is bound to its compiled expressions, so it
+ * can't be shared by concurrent queries. Each service has a collection handle and a {@link CompiledQueryCache} of its
+ * own.
+ * <p>
+ * Services are opened lazily, up to the size of the pool. Threads finding all services in use wait for the next one
+ * to be released; how often and how long they wait is counted, to tell whether the pool is too small.
+ */
+public class QueryServicePool {
+
+    static final int DEFAULT_SIZE = Runtime.getRuntime().availableProcessors();
+    private final AtomicLong acquireCount = new AtomicLong();
+    @NotNull
+    private final List<PooledQueryService> allServices = new CopyOnWriteArrayList<>();
+    private final AtomicLong contendedCount = new AtomicLong();
+    @NotNull
+    private final BlockingDeque<PooledQueryService> idleServices = new LinkedBlockingDeque<>();
+    @NotNull
+    private final HandleOpener opener;
+    @NotNull
+    private final Semaphore permits;
+    private final int size;
+    @NotNull
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private volatile boolean closed = false;
+
+    QueryServicePool(int size, @NotNull HandleOpener opener) {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("The size of the query service pool has to be positive.");
+        }
+
+        this.size = size;
+        this.opener = opener;
+        this.permits = new Semaphore(size, true);
+
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * @return The number of times a thread had to wait because all services were in use.
+     */
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    /**
+     * @return The compiled query caches of the services opened so far.
+     */
+    @NotNull
+    public List<CompiledQueryCache> getCompiledQueryCaches() {
+
+        List<CompiledQueryCache> caches = new ArrayList<>(allServices.size());
+        allServices.forEach(service -> caches.add(service.compiledQueryCache));
+        return caches;
+
+    }
+
+    public int getInUseCount() {
+        return size - permits.availablePermits();
+    }
+
+    public int getOpenCount() {
+        return allServices.size();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The number of threads currently waiting for a service.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return The time in nanoseconds threads waited for a service, including the acquisitions that didn't wait.
+     */
+    @NotNull
+    public LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryServicePool{" +
+                "size=" + size +
+                ", openCount=" + getOpenCount() +
+                ", inUseCount=" + getInUseCount() +
+                ", acquireCount=" + acquireCount +
+                ", contendedCount=" + contendedCount +
+                ", p99WaitNanos=" + waitTimes.getValueAtPercentile(99) +
+                '}';
+    }
+
+    /**
+     * Takes an idle service or opens a new one, waiting for a service to be released if all are in use. The service
+     * has to be given back by {@link #release(PooledQueryService)}.
+     *
+     * @throws IllegalStateException if the pool is closed.
+     */
+    @NotNull
+    PooledQueryService acquire() throws InterruptedException, XMLDBException {
+
+        checkNotClosed();
+
+        long start = System.nanoTime();
+
+        if (!permits.tryAcquire()) {
+            contendedCount.incrementAndGet();
+            permits.acquire();
+        }
+
+        waitTimes.record(System.nanoTime() - start);
+        acquireCount.incrementAndGet();
+
+        // the most recently used service is taken first, so rarely needed services aren't kept busy
+        PooledQueryService service = idleServices.pollFirst();
+        if (service != null) {
+            return service;
+        }
+
+        try {
+            service = new PooledQueryService(opener.open());
+        } catch (XMLDBException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        allServices.add(service);
+        return service;
+
+    }
+
+    /**
+     * Closes the handles of all idle services. Services in use are closed when they are released.
+     */
+    void close() throws XMLDBException {
+
+        closed = true;
+
+        XMLDBException failure = null;
+        PooledQueryService service;
+
+        while ((service = idleServices.pollFirst()) != null) {
+            try {
+                service.close();
+            } catch (XMLDBException e) {
+                failure = e;
+            }
+            allServices.remove(service);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+    }
+
+    void release(@NotNull PooledQueryService service) {
+
+        if (closed) {
+
+            allServices.remove(service);
+            try {
+                service.close();
+            } catch (XMLDBException ignored) {
+                // the pool is closed, so the handle is discarded anyway
+            }
+
+        } else {
+            idleServices.offerFirst(service);
+        }
+
+        permits.release();
+
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("The query service pool is closed.");
+        }
+    }
+
+    @FunctionalInterface
+    interface HandleOpener {
+        @NotNull
+        Collection open() throws XMLDBException;
+    }
+
+    /**
+     * A query service with the collection handle it belongs to and the expressions it compiled.
+     */
+    static final class PooledQueryService {
+
+        @NotNull
+        private final CompiledQueryCache compiledQueryCache = new CompiledQueryCache();
+        @NotNull
+        private final Collection handle;
+        @NotNull
+        private final XQueryService service;
+
+        private PooledQueryService(@NotNull Collection handle) throws XMLDBException {
+
+            this.handle = handle;
+
+            try {
+                this.service = (XQueryService) handle.getService("XQueryService", "1.0");
+            } catch (XMLDBException e) {
+                handle.close();
+                throw e;
+            }
+
+        }
+
+        @NotNull
+        CompiledQueryCache getCompiledQueryCache() {
+            return compiledQueryCache;
+        }
+
+        @NotNull
+        XQueryService getService() {
+            return service;
+        }
+
+        private void close() throws XMLDBException {
+            handle.close();
+        }
+
+    }
+
+}
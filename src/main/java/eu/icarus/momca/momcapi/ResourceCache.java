@@ -0,0 +1,32 @@
+package eu.icarus.momca.momcapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Optional;
+
+/**
+ * A second-level cache of resource content, consulted by {@link MomCA} before the content of a resource is transferred.
+ * Entries are versioned by the last-modified timestamp of the resource, which is known from the resource handle, so a
+ * cached entry is only used while the resource is unchanged.
+ * <p>
+ * Implementations have to be thread-safe.
+ *
+ * @see DiskResourceCache
+ */
+public interface ResourceCache {
+
+    /**
+     * @param lastModified The current last-modified timestamp of the resource in milliseconds.
+     * @return The cached content or nothing, if the resource isn't cached or was modified since.
+     */
+    @NotNull
+    Optional<String> get(@NotNull String uri, long lastModified);
+
+    /**
+     * Removes the resource, e.g. because it was deleted.
+     */
+    void invalidate(@NotNull String uri);
+
+    void put(@NotNull String uri, long lastModified, @NotNull String content);
+
+}
@@ -0,0 +1,121 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of storing resources in batches. Failing resources don't abort their batch, they are reported with the
+ * exception that made them fail.
+ */
+public class StoreReport {
+
+    @NotNull
+    private final List<Batch> batches;
+
+    StoreReport(@NotNull List<Batch> batches) {
+        this.batches = Collections.unmodifiableList(new ArrayList<>(batches));
+    }
+
+    /**
+     * @return The batches in the order they were submitted.
+     */
+    @NotNull
+    public List<Batch> getBatches() {
+        return batches;
+    }
+
+    /**
+     * @return The exceptions of all failed resources keyed by resource uri.
+     */
+    @NotNull
+    public Map<String, MomCAException> getFailures() {
+        Map<String, MomCAException> failures = new LinkedHashMap<>();
+        batches.forEach(batch -> failures.putAll(batch.getFailures()));
+        return failures;
+    }
+
+    public int getStoredCount() {
+        return batches.stream().mapToInt(Batch::getStoredCount).sum();
+    }
+
+    public boolean isSuccessful() {
+        return batches.stream().allMatch(batch -> batch.getFailures().isEmpty());
+    }
+
+    @Override
+    public String toString() {
+        return "StoreReport{" +
+                "batchCount=" + batches.size() +
+                ", storedCount=" + getStoredCount() +
+                ", failureCount=" + getFailures().size() +
+                '}';
+    }
+
+    /**
+     * A batch of resources stored in the same collection.
+     */
+    public static class Batch {
+
+        @NotNull
+        private final String collectionPath;
+        @NotNull
+        private final Map<String, MomCAException> failures;
+        private final long latencyNanos;
+        private final int size;
+
+        Batch(@NotNull String collectionPath, int size, @NotNull Map<String, MomCAException> failures, long latencyNanos) {
+            this.collectionPath = collectionPath;
+            this.size = size;
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+            this.latencyNanos = latencyNanos;
+        }
+
+        @NotNull
+        public String getCollectionPath() {
+            return collectionPath;
+        }
+
+        /**
+         * @return The exceptions of the failed resources keyed by resource uri.
+         */
+        @NotNull
+        public Map<String, MomCAException> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return The time it took to store the whole batch.
+         */
+        @NotNull
+        public Duration getLatency() {
+            return Duration.ofNanos(latencyNanos);
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getStoredCount() {
+            return size - failures.size();
+        }
+
+        @Override
+        public String toString() {
+            return "Batch{" +
+                    "collectionPath='" + collectionPath + '\'' +
+                    ", size=" + size +
+                    ", failureCount=" + failures.size() +
+                    ", latency=" + getLatency() +
+                    '}';
+        }
+
+    }
+
+}
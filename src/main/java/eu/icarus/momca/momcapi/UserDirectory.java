@@ -0,0 +1,264 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.User;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-memory directory of parsed users in front of the user collection. Entries younger than the time to live are
+ * served directly. Older entries are revalidated by comparing the last-modified timestamp of the user resource, which
+ * is a lightweight metadata call, and only reloaded if the resource changed.
+ */
+public class UserDirectory {
+
+    static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(30);
+    @NotNull
+    private final LongSupplier clock;
+    @NotNull
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong maxServedAgeMillis = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+    @NotNull
+    private final UserSource source;
+    private final AtomicLong staleCount = new AtomicLong();
+    private volatile long timeToLiveMillis = DEFAULT_TIME_TO_LIVE.toMillis();
+    @Nullable
+    private volatile UserList userList;
+
+    UserDirectory(@NotNull UserSource source) {
+        this(source, System::currentTimeMillis);
+    }
+
+    UserDirectory(@NotNull UserSource source, @NotNull LongSupplier clock) {
+        this.source = source;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The share of requests answered without transferring the user's content, i.e. fresh hits and successful
+     * revalidations.
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The highest age of an entry served without revalidation in milliseconds, i.e. an upper bound of how
+     * outdated a served user has been.
+     */
+    public long getMaxServedAgeMillis() {
+        return maxServedAgeMillis.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @NotNull
+    public Optional<String> getModerator(@NotNull String userName) throws MomCAException {
+        return getUser(userName).flatMap(User::getModeratorId);
+    }
+
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of revalidations that found the user to be modified or removed.
+     */
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    @NotNull
+    public Duration getTimeToLive() {
+        return Duration.ofMillis(timeToLiveMillis);
+    }
+
+    public void setTimeToLive(@NotNull Duration timeToLive) {
+        this.timeToLiveMillis = timeToLive.toMillis();
+    }
+
+    @NotNull
+    public Optional<User> getUser(@NotNull String userName) throws MomCAException {
+
+        long now = clock.getAsLong();
+        Entry entry = entries.get(userName);
+
+        if (entry != null) {
+
+            long age = now - entry.validatedAt;
+
+            if (age < timeToLiveMillis) {
+                hitCount.incrementAndGet();
+                maxServedAgeMillis.accumulateAndGet(age, Math::max);
+                return Optional.of(entry.user);
+            }
+
+            revalidationCount.incrementAndGet();
+            Optional<Long> lastModified = source.getLastModified(userName);
+
+            if (lastModified.isPresent() && entry.lastModified != Entry.UNKNOWN && lastModified.get() == entry.lastModified) {
+                hitCount.incrementAndGet();
+                entry.validatedAt = now;
+                return Optional.of(entry.user);
+            }
+
+            staleCount.incrementAndGet();
+
+            if (!lastModified.isPresent()) {
+                entries.remove(userName, entry);
+                return Optional.empty();
+            }
+
+        }
+
+        missCount.incrementAndGet();
+        Optional<Entry> loaded = source.load(userName);
+
+        if (loaded.isPresent()) {
+            loaded.get().validatedAt = now;
+            entries.put(userName, loaded.get());
+        } else {
+            entries.remove(userName);
+        }
+
+        return loaded.map(e -> e.user);
+
+    }
+
+    public void invalidate(@NotNull String userName) {
+        entries.remove(userName);
+        userList = null;
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+        userList = null;
+    }
+
+    /**
+     * @return The sorted names of all users. The list is cached for the time to live, as the user collection has no
+     * modification timestamp to revalidate it.
+     */
+    @NotNull
+    public List<String> listUsers() throws MomCAException {
+
+        long now = clock.getAsLong();
+        UserList cached = userList;
+
+        if (cached != null && now - cached.loadedAt < timeToLiveMillis) {
+            hitCount.incrementAndGet();
+            return cached.userNames;
+        }
+
+        missCount.incrementAndGet();
+        UserList loaded = new UserList(Collections.unmodifiableList(source.listUserNames()), now);
+        userList = loaded;
+        return loaded.userNames;
+
+    }
+
+    /**
+     * Loads all users with a single query, replacing the cached entries.
+     *
+     * @return The number of users loaded.
+     */
+    public int preload() throws MomCAException {
+
+        long now = clock.getAsLong();
+        Map<String, Entry> loaded = source.loadAll();
+
+        entries.clear();
+        loaded.values().forEach(entry -> entry.validatedAt = now);
+        entries.putAll(loaded);
+
+        return loaded.size();
+
+    }
+
+    @Override
+    public String toString() {
+        return "UserDirectory{" +
+                "size=" + getSize() +
+                ", hitRatio=" + getHitRatio() +
+                ", revalidationCount=" + revalidationCount +
+                ", staleCount=" + staleCount +
+                ", maxServedAgeMillis=" + maxServedAgeMillis +
+                '}';
+    }
+
+    interface UserSource {
+
+        @NotNull
+        Optional<Long> getLastModified(@NotNull String userName) throws MomCAException;
+
+        @NotNull
+        List<String> listUserNames() throws MomCAException;
+
+        @NotNull
+        Optional<Entry> load(@NotNull String userName) throws MomCAException;
+
+        /**
+         * @return All users keyed by user name.
+         */
+        @NotNull
+        Map<String, Entry> loadAll() throws MomCAException;
+
+    }
+
+    static final class Entry {
+
+        static final long UNKNOWN = -1;
+        private final long lastModified;
+        @NotNull
+        private final User user;
+        private volatile long validatedAt;
+
+        /**
+         * @param lastModified The last-modified timestamp of the user resource or {@link #UNKNOWN}, in which case the
+         *                     entry is reloaded instead of revalidated.
+         */
+        Entry(@NotNull User user, long lastModified) {
+            this.user = user;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    private static final class UserList {
+
+        private final long loadedAt;
+        @NotNull
+        private final List<String> userNames;
+
+        private UserList(@NotNull List<String> userNames, long loadedAt) {
+            this.userNames = userNames;
+            this.loadedAt = loadedAt;
+        }
+
+    }
+
+}
@@ -22,10 +22,18 @@ public class AtomId {
     private final ResourceType type;
 
     AtomId(@NotNull String atomId) {
-        String[] valueTokens = atomId.split("/");
+
+        int typeStart = atomId.indexOf('/') + 1;
+        if (typeStart == 0) {
+            throw new IllegalArgumentException(String.format("'%s' has no type; probably not a valid atom:id", atomId));
+        }
+
+        int typeEnd = atomId.indexOf('/', typeStart);
+
         this.atomId = atomId;
-        prefix = valueTokens[0];
-        type = ResourceType.createFromValue(valueTokens[1]);
+        prefix = atomId.substring(0, typeStart - 1);
+        type = ResourceType.createFromValue(atomId.substring(typeStart, typeEnd == -1 ? atomId.length() : typeEnd));
+
     }
 
     AtomId(@NotNull String... idParts) {
@@ -2,9 +2,11 @@ package eu.icarus.momca.momcapi.atomid;
 
 import eu.icarus.momca.momcapi.resource.ResourceType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -13,94 +15,136 @@ import java.util.Optional;
 public class CharterAtomId extends AtomId {
 
     public static final String DEFAULT_ENCODING = "UTF-8";
-    @NotNull
-    private final Optional<String> archiveId;
+    private static final WeakInterner<CharterAtomId> INTERNED_IDS = new WeakInterner<>();
+    private static final int MAX_TOKENS = 5;
+    @Nullable
+    private final String archiveId;
     @NotNull
     private final String charterId;
-    @NotNull
-    private final Optional<String> collectionId;
-    @NotNull
-    private final Optional<String> fondId;
+    @Nullable
+    private final String collectionId;
+    @Nullable
+    private final String fondId;
+    private final int hashCode;
 
     public CharterAtomId(@NotNull String value) {
 
         super(value);
-        String[] valueTokens = value.split("/");
 
-        if (!valueTokens[1].equals(ResourceType.CHARTER.getValue())) {
-            throw new IllegalArgumentException(String.format("'%s' identifies a '%s', not a charter.", value, valueTokens[1]));
+        // tokenizes like value.split("/") in a single pass: trailing empty tokens are dropped, at most 5 tokens are kept
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == '/') {
+            end--;
         }
 
-        try {
+        int[] tokenStarts = new int[MAX_TOKENS + 1];
+        int tokenCount = 1;
+        for (int i = 0; i < end && tokenCount <= MAX_TOKENS; i++) {
+            if (value.charAt(i) == '/') {
+                tokenStarts[tokenCount++] = i + 1;
+            }
+        }
 
-            switch (valueTokens.length) {
-
-                case 4:
-                    this.collectionId = Optional.of(URLDecoder.decode(valueTokens[2], DEFAULT_ENCODING));
-                    this.charterId = URLDecoder.decode(valueTokens[3], DEFAULT_ENCODING);
-                    this.archiveId = Optional.empty();
-                    this.fondId = Optional.empty();
-                    break;
-                case 5:
-                    this.archiveId = Optional.of(URLDecoder.decode(valueTokens[2], DEFAULT_ENCODING));
-                    this.fondId = Optional.of(URLDecoder.decode(valueTokens[3], DEFAULT_ENCODING));
-                    this.charterId = URLDecoder.decode(valueTokens[4], DEFAULT_ENCODING);
-                    this.collectionId = Optional.empty();
-                    break;
-                default:
-                    throw new IllegalArgumentException(String.format("'%s' is not a valid charterId.", value));
+        if (tokenCount > MAX_TOKENS) {
+            throw new IllegalArgumentException(String.format("'%s' is not a valid charterId.", value));
+        }
 
-            }
+        tokenStarts[tokenCount] = end + 1;
 
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+        String type = token(value, tokenStarts, 1);
+        if (!type.equals(ResourceType.CHARTER.getValue())) {
+            throw new IllegalArgumentException(String.format("'%s' identifies a '%s', not a charter.", value, type));
         }
 
+        switch (tokenCount) {
+
+            case 4:
+                this.collectionId = decode(token(value, tokenStarts, 2));
+                this.charterId = decode(token(value, tokenStarts, 3));
+                this.archiveId = null;
+                this.fondId = null;
+                break;
+            case 5:
+                this.archiveId = decode(token(value, tokenStarts, 2));
+                this.fondId = decode(token(value, tokenStarts, 3));
+                this.charterId = decode(token(value, tokenStarts, 4));
+                this.collectionId = null;
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("'%s' is not a valid charterId.", value));
+
+        }
+
+        this.hashCode = computeHashCode();
+
     }
 
     public CharterAtomId(@NotNull String archiveId, @NotNull String fondId, @NotNull String charterId) {
 
         super(ResourceType.CHARTER.getValue(), archiveId, fondId, charterId);
-        this.archiveId = Optional.of(archiveId);
-        this.fondId = Optional.of(fondId);
+        this.archiveId = archiveId;
+        this.fondId = fondId;
         this.charterId = charterId;
-        this.collectionId = Optional.empty();
+        this.collectionId = null;
+        this.hashCode = computeHashCode();
 
     }
 
     public CharterAtomId(@NotNull String collectionId, @NotNull String charterId) {
 
         super(ResourceType.CHARTER.getValue(), collectionId, charterId);
-        this.collectionId = Optional.of(collectionId);
+        this.collectionId = collectionId;
         this.charterId = charterId;
-        this.archiveId = Optional.empty();
-        this.fondId = Optional.empty();
+        this.archiveId = null;
+        this.fondId = null;
+        this.hashCode = computeHashCode();
+
+    }
+
+    @NotNull
+    private static String decode(@NotNull String token) {
+
+        if (token.indexOf('%') == -1 && token.indexOf('+') == -1) {
+            return token;
+        }
+
+        try {
+            return URLDecoder.decode(token, DEFAULT_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
 
     }
 
+    @NotNull
+    private static String token(@NotNull String value, @NotNull int[] tokenStarts, int index) {
+        return value.substring(tokenStarts[index], tokenStarts[index + 1] - 1);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
+        if (hashCode != o.hashCode()) return false;
         if (!super.equals(o)) return false;
 
         CharterAtomId that = (CharterAtomId) o;
 
-        if (!archiveId.equals(that.archiveId)) return false;
+        if (!Objects.equals(archiveId, that.archiveId)) return false;
         if (!charterId.equals(that.charterId)) return false;
-        if (!collectionId.equals(that.collectionId)) return false;
-        return fondId.equals(that.fondId);
+        if (!Objects.equals(collectionId, that.collectionId)) return false;
+        return Objects.equals(fondId, that.fondId);
 
     }
 
     @NotNull
     public Optional<String> getArchiveId() {
-        return archiveId;
+        return Optional.ofNullable(archiveId);
     }
 
     @NotNull
     public String getBasePath() {
-        return isPartOfArchiveFond() ? getArchiveId().get() + "/" + getFondId().get() : getCollectionId().get();
+        return isPartOfArchiveFond() ? archiveId + "/" + fondId : collectionId;
     }
 
     @NotNull
@@ -110,40 +154,58 @@ public class CharterAtomId extends AtomId {
 
     @NotNull
     public Optional<String> getCollectionId() {
-        return collectionId;
+        return Optional.ofNullable(collectionId);
     }
 
     @NotNull
     public Optional<String> getFondId() {
-        return fondId;
+        return Optional.ofNullable(fondId);
     }
 
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + archiveId.hashCode();
-        result = 31 * result + charterId.hashCode();
-        result = 31 * result + collectionId.hashCode();
-        result = 31 * result + fondId.hashCode();
-        return result;
+        return hashCode;
+    }
+
+    /**
+     * Returns a canonical instance for this id from a pool of weakly referenced ids, similar to
+     * {@link String#intern()}. Interning the ids of long bookmark or saved lists lets equal ids share one instance.
+     * Ids no longer referenced elsewhere are removed from the pool by the garbage collector. Ids already in the pool
+     * are found without locking, so concurrent parsers don't wait for each other.
+     *
+     * @return The canonical instance equal to this id.
+     */
+    @NotNull
+    public CharterAtomId intern() {
+        return INTERNED_IDS.intern(this);
     }
 
     public boolean isPartOfArchiveFond() {
-        return (archiveId.isPresent() && fondId.isPresent()) && !collectionId.isPresent();
+        return (archiveId != null && fondId != null) && collectionId == null;
     }
 
     public boolean isPartOfCollection() {
-        return (!archiveId.isPresent() && !fondId.isPresent()) && collectionId.isPresent();
+        return (archiveId == null && fondId == null) && collectionId != null;
     }
 
     @NotNull
     @Override
     public String toString() {
         return "CharterAtomId{" +
-                "collectionId=" + collectionId +
-                ", archiveId=" + archiveId +
-                ", fondId=" + fondId +
+                "collectionId=" + getCollectionId() +
+                ", archiveId=" + getArchiveId() +
+                ", fondId=" + getFondId() +
                 ", charterId='" + charterId + '\'' +
                 '}';
     }
+
+    private int computeHashCode() {
+        int result = super.hashCode();
+        result = 31 * result + Objects.hashCode(archiveId);
+        result = 31 * result + charterId.hashCode();
+        result = 31 * result + Objects.hashCode(collectionId);
+        result = 31 * result + Objects.hashCode(fondId);
+        return result;
+    }
+
 }
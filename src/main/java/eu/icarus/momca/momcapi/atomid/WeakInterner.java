@@ -0,0 +1,103 @@
+package eu.icarus.momca.momcapi.atomid;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe pool of weakly referenced canonical instances, similar to {@link String#intern()}. Lookups of
+ * instances already in the pool don't lock, so threads interning concurrently don't wait for each other. Instances no
+ * longer referenced elsewhere are removed from the pool by the garbage collector.
+ */
+final class WeakInterner<T> {
+
+    @NotNull
+    private final ConcurrentHashMap<Key<T>, Key<T>> keys = new ConcurrentHashMap<>();
+    @NotNull
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+    /**
+     * @return The canonical instance equal to the value, the value itself if there is none yet.
+     */
+    @NotNull
+    T intern(@NotNull T value) {
+
+        purge();
+
+        // the lookup key isn't registered with the queue, it never enters the pool
+        Key<T> cached = keys.get(new Key<>(value, null));
+        T interned = cached == null ? null : cached.get();
+        if (interned != null) {
+            return interned;
+        }
+
+        Key<T> key = new Key<>(value, queue);
+
+        while (true) {
+
+            Key<T> concurrent = keys.putIfAbsent(key, key);
+            if (concurrent == null) {
+                return value;
+            }
+
+            interned = concurrent.get();
+            if (interned != null) {
+                return interned;
+            }
+
+            // the instance was collected after the key was matched, so the key is dropped before it is purged
+            keys.remove(concurrent, concurrent);
+
+        }
+
+    }
+
+    int size() {
+        purge();
+        return keys.size();
+    }
+
+    private void purge() {
+
+        Reference<? extends T> cleared;
+        while ((cleared = queue.poll()) != null) {
+            keys.remove(cleared);
+        }
+
+    }
+
+    /**
+     * A weak reference comparing by the referents. A cleared key only equals itself, so it can still be removed.
+     */
+    private static final class Key<T> extends WeakReference<T> {
+
+        private final int hashCode;
+
+        private Key(@NotNull T referent, @Nullable ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hashCode = referent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Object referent = get();
+            return referent != null && referent.equals(((Key<?>) o).get());
+
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
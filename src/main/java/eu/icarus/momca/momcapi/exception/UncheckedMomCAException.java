@@ -0,0 +1,21 @@
+package eu.icarus.momca.momcapi.exception;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Wraps a {@link MomCAException} where checked exceptions can't be thrown, e.g. while consuming a lazily evaluated
+ * {@link java.util.stream.Stream}.
+ */
+public class UncheckedMomCAException extends RuntimeException {
+
+    public UncheckedMomCAException(@NotNull MomCAException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @NotNull
+    @Override
+    public MomCAException getCause() {
+        return (MomCAException) super.getCause();
+    }
+
+}
@@ -1,10 +1,12 @@
 package eu.icarus.momca.momcapi.resource;
 
 import eu.icarus.momca.momcapi.MetadataCollectionName;
+import eu.icarus.momca.momcapi.Namespace;
 import eu.icarus.momca.momcapi.atomid.CharterAtomId;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Created by daniel on 25.06.2015.
@@ -31,6 +33,30 @@ public class Charter extends ExistResource {
 
     }
 
+    private Charter(@NotNull ExistResource existResource, @NotNull CharterAtomId atomId) {
+        super(existResource);
+        this.atomId = atomId;
+        this.status = initStatus();
+    }
+
+    /**
+     * Creates a charter from a lazily created resource by reading only the {@code atom:id} at the beginning of the
+     * document with a streaming parser. The content is parsed completely when it is queried for the first time, so
+     * listings that only need atom id and location never build the XOM document.
+     * <p>
+     * Unlike the constructor, a document containing more than one {@code atom:id} isn't rejected. Resources that are
+     * already parsed are handled like by the constructor.
+     *
+     * @see ExistResource#createLazily(String, String, String)
+     */
+    @NotNull
+    public static Charter createFromHeader(@NotNull ExistResource existResource) {
+
+        Optional<String> atomId = existResource.readFirstElementText(Namespace.ATOM, "id");
+        return atomId.isPresent() ? new Charter(existResource, new CharterAtomId(atomId.get())) : new Charter(existResource);
+
+    }
+
     @NotNull
     public CharterAtomId getAtomId() {
         return atomId;
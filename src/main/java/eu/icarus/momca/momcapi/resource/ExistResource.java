@@ -1,12 +1,13 @@
 package eu.icarus.momca.momcapi.resource;
 
 import eu.icarus.momca.momcapi.Namespace;
-import nu.xom.*;
+import nu.xom.Document;
+import nu.xom.ParsingException;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Created by daniel on 24.06.2015.
@@ -18,41 +19,39 @@ public class ExistResource {
     @NotNull
     private final String parentUri;
     @NotNull
-    private final Document xmlAsDocument;
+    private final XmlContent xmlContent;
 
     ExistResource(@NotNull final ExistResource existResource) {
         this.name = existResource.getName();
-        this.xmlAsDocument = existResource.getXmlAsDocument();
+        this.xmlContent = existResource.xmlContent;
         this.parentUri = existResource.getParentUri();
     }
 
     public ExistResource(@NotNull final String name, @NotNull final String parentCollectionUri, @NotNull final String xmlContent) throws ParsingException, IOException {
+        this(name, parentCollectionUri, XmlContent.parse(xmlContent));
+    }
+
+    private ExistResource(@NotNull final String name, @NotNull final String parentCollectionUri, @NotNull final XmlContent xmlContent) {
         this.name = name;
-        this.xmlAsDocument = parseXmlString(xmlContent);
+        this.xmlContent = xmlContent;
         this.parentUri = parentCollectionUri;
     }
 
+    /**
+     * Creates a resource without parsing its content. The content is kept as UTF-8 bytes and parsed the first time the
+     * document is needed, so listing name, uri or atom id of many resources doesn't pay for XML parsing.
+     * <p>
+     * As the content isn't checked up front, {@link #getXmlAsDocument()} throws an {@link IllegalArgumentException} if
+     * it is not well-formed XML.
+     */
     @NotNull
-    final List<String> queryContentXml(@NotNull XpathQuery query) {
-
-        List<String> results = new LinkedList<>();
-
-        Element root = getXmlAsDocument().getRootElement();
-        XPathContext context = XPathContext.makeNamespaceContext(root);
-        if (query.getNamespaces().length != 0) {
-            for (Namespace namespace : query.getNamespaces()) {
-                context.addNamespace(namespace.getPrefix(), namespace.getUri());
-            }
-
-        }
-
-        Nodes nodes = getXmlAsDocument().getRootElement().query(query.getQuery(), context);
-        for (int i = 0; i < nodes.size(); i++) {
-            results.add(nodes.get(i).getValue());
-        }
-
-        return results;
+    public static ExistResource createLazily(@NotNull final String name, @NotNull final String parentCollectionUri, @NotNull final String xmlContent) {
+        return new ExistResource(name, parentCollectionUri, XmlContent.unparsed(xmlContent));
+    }
 
+    @NotNull
+    final List<String> queryContentXml(@NotNull XpathQuery query) {
+        return xmlContent.query(query, name);
     }
 
     @NotNull
@@ -70,24 +69,39 @@ public class ExistResource {
         return parentUri + "/" + name;
     }
 
+    /**
+     * @return The content as XOM document. As the document might be modified by the caller afterwards, results of
+     * {@link #queryContentXml(XpathQuery)} aren't memoized for this resource anymore once it was handed out.
+     */
     @NotNull
     public Document getXmlAsDocument() {
-        return xmlAsDocument;
+        return xmlContent.getMutableDocument(name);
+    }
+
+    /**
+     * @return The content serialized as XML, e.g. to store the resource. Lazily created resources aren't parsed for it.
+     */
+    @NotNull
+    public String getXmlAsString() {
+        return xmlContent.toXml(name);
     }
 
     @Override
     public String toString() {
         return "ExistResource{" +
                 "name='" + name + '\'' +
-                ", xmlAsDocument=" + xmlAsDocument +
+                ", xmlAsDocument=" + xmlContent +
                 ", parentUri='" + parentUri + '\'' +
                 '}';
     }
 
+    boolean isParsed() {
+        return xmlContent.isParsed();
+    }
+
     @NotNull
-    private Document parseXmlString(@NotNull String xmlAsString) throws ParsingException, IOException {
-        Builder parser = new Builder();
-        return parser.build(xmlAsString, null);
+    final Optional<String> readFirstElementText(@NotNull Namespace namespace, @NotNull String localName) {
+        return xmlContent.readFirstElementText(namespace.getUri(), localName);
     }
 
 }
@@ -2,7 +2,8 @@ package eu.icarus.momca.momcapi.resource;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Created by daniel on 25.06.2015.
@@ -11,8 +12,15 @@ public enum ResourceType {
 
     ANNOTATION_IMAGE("annotation-image"), ARCHIVE("archive"), CHARTER("charter"), COLLECTION("collection"), FOND("fond"), SVG("svg");
 
+    private static final Map<String, ResourceType> TYPES_BY_VALUE = new HashMap<>();
     private final String value;
 
+    static {
+        for (ResourceType type : values()) {
+            TYPES_BY_VALUE.put(type.getValue(), type);
+        }
+    }
+
     ResourceType(String value) {
         this.value = value;
     }
@@ -20,15 +28,13 @@ public enum ResourceType {
     @NotNull
     public static ResourceType createFromValue(@NotNull String value) {
 
-        Optional<ResourceType> type = Optional.empty();
+        ResourceType type = TYPES_BY_VALUE.get(value);
 
-        for (ResourceType t : ResourceType.values()) {
-            if (value.equals(t.getValue())) {
-                type = Optional.of(t);
-            }
+        if (type == null) {
+            throw new IllegalArgumentException(String.format("'%s' is not a known resource type.", value));
         }
 
-        return type.orElseThrow(IllegalArgumentException::new);
+        return type;
 
     }
 
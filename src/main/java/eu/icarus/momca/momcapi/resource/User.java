@@ -5,6 +5,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Created by daniel on 24.06.2015.
@@ -25,6 +26,15 @@ public class User extends ExistResource {
 
     }
 
+    /**
+     * @return The id of the user's moderator, if the user has one.
+     */
+    @NotNull
+    public Optional<String> getModeratorId() {
+        List<String> moderatorQueryResults = queryContentXml(XpathQuery.QUERY_XRX_MODERATOR);
+        return moderatorQueryResults.isEmpty() ? Optional.empty() : Optional.of(moderatorQueryResults.get(0));
+    }
+
     public String getUserId() {
         return userId;
     }
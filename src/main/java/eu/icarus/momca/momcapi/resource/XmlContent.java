@@ -0,0 +1,224 @@
+package eu.icarus.momca.momcapi.resource;
+
+import nu.xom.Document;
+import nu.xom.Nodes;
+import nu.xom.ParsingException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The XML content of a resource. The content is either parsed right away or kept as UTF-8 bytes until the document is
+ * requested for the first time. Instances are shared by copies of a resource, so the content is parsed at most once.
+ * <p>
+ * Query results are memoized per document until the document is handed out to callers that might modify it.
+ */
+final class XmlContent {
+
+    private static final XMLInputFactory STREAM_FACTORY = createStreamFactory();
+    @NotNull
+    private final Map<XpathQuery, List<String>> queryResults = new ConcurrentHashMap<>();
+    @Nullable
+    private byte[] bytes;
+    @Nullable
+    private volatile Document document;
+    private volatile boolean exposed = false;
+
+    private XmlContent(@Nullable byte[] bytes, @Nullable Document document) {
+        this.bytes = bytes;
+        this.document = document;
+    }
+
+    @NotNull
+    private static XMLInputFactory createStreamFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    @NotNull
+    static XmlContent parse(@NotNull String xmlContent) throws ParsingException, IOException {
+        return new XmlContent(null, XmlParserPool.getDefault().parse(new StringReader(xmlContent)));
+    }
+
+    @NotNull
+    static XmlContent unparsed(@NotNull String xmlContent) {
+        return new XmlContent(xmlContent.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    @Override
+    public String toString() {
+        Document parsed = document;
+        return parsed == null ? "unparsed" : parsed.toString();
+    }
+
+    /**
+     * @param resourceName The name of the resource, used for error messages.
+     * @return The parsed document.
+     * @throws IllegalArgumentException if the unparsed content turns out not to be well-formed XML.
+     */
+    @NotNull
+    Document getDocument(@NotNull String resourceName) {
+
+        Document parsed = document;
+
+        if (parsed == null) {
+
+            synchronized (this) {
+
+                parsed = document;
+
+                if (parsed == null) {
+
+                    // the content was decoded to a Java string before, so a declared encoding is ignored on purpose
+                    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+                        parsed = XmlParserPool.getDefault().parse(reader);
+                    } catch (ParsingException | IOException e) {
+                        throw new IllegalArgumentException(String.format("Content of '%s' is not well-formed XML.", resourceName), e);
+                    }
+
+                    document = parsed;
+                    bytes = null;
+
+                }
+
+            }
+
+        }
+
+        return parsed;
+
+    }
+
+    @NotNull
+    List<String> query(@NotNull XpathQuery query, @NotNull String resourceName) {
+
+        List<String> results = exposed ? null : queryResults.get(query);
+
+        if (results == null) {
+
+            Nodes nodes = getDocument(resourceName).getRootElement().query(query.getQuery(), query.getContext());
+
+            List<String> values = new ArrayList<>(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                values.add(nodes.get(i).getValue());
+            }
+            results = Collections.unmodifiableList(values);
+
+            if (!exposed) {
+                queryResults.put(query, results);
+                if (exposed) {
+                    // the document was handed out while the query was evaluated
+                    queryResults.remove(query);
+                }
+            }
+
+        }
+
+        return results;
+
+    }
+
+    /**
+     * @return The parsed document, that from now on is considered to be modified by the caller.
+     */
+    @NotNull
+    Document getMutableDocument(@NotNull String resourceName) {
+        Document parsed = getDocument(resourceName);
+        exposed = true;
+        queryResults.clear();
+        return parsed;
+    }
+
+    /**
+     * @return The serialized content. Unparsed content is returned as is without parsing it.
+     */
+    @NotNull
+    String toXml(@NotNull String resourceName) {
+
+        byte[] raw;
+        synchronized (this) {
+            raw = bytes;
+        }
+
+        return raw == null ? getDocument(resourceName).toXML() : new String(raw, StandardCharsets.UTF_8);
+
+    }
+
+    boolean isParsed() {
+        return document != null;
+    }
+
+    /**
+     * Reads the text of the first element with the specified name from the unparsed content with a streaming parser,
+     * which stops as soon as the element is found.
+     *
+     * @return The text of the element or nothing, if the element is missing or the content was already parsed.
+     */
+    @NotNull
+    Optional<String> readFirstElementText(@NotNull String namespaceUri, @NotNull String localName) {
+
+        byte[] raw;
+        synchronized (this) {
+            raw = bytes;
+        }
+
+        if (raw == null) {
+            return Optional.empty();
+        }
+
+        XMLStreamReader reader = null;
+        try {
+
+            reader = STREAM_FACTORY.createXMLStreamReader(new InputStreamReader(new ByteArrayInputStream(raw), StandardCharsets.UTF_8));
+
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && localName.equals(reader.getLocalName())
+                        && namespaceUri.equals(reader.getNamespaceURI())) {
+                    return Optional.of(reader.getElementText());
+                }
+            }
+
+        } catch (XMLStreamException e) {
+            // malformed content is reported when the content is parsed completely
+        } finally {
+            closeQuietly(reader);
+        }
+
+        return Optional.empty();
+
+    }
+
+    private static void closeQuietly(@Nullable XMLStreamReader reader) {
+
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+                // the reader only works on a byte array, nothing to release
+            }
+        }
+
+    }
+
+}
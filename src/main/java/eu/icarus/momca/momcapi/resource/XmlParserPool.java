@@ -0,0 +1,209 @@
+package eu.icarus.momca.momcapi.resource;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.NodeFactory;
+import nu.xom.ParsingException;
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Provides every thread with its own reusable XOM {@link Builder}, so the SAX parser and its factory lookup aren't
+ * repeated for every parsed resource. The builders don't validate and never load external DTDs.
+ * <p>
+ * The pool counts the parsed documents and the time spent parsing per thread to report the parse throughput.
+ */
+public class XmlParserPool {
+
+    private static final String FEATURE_EXTERNAL_GENERAL_ENTITIES = "http://xml.org/sax/features/external-general-entities";
+    private static final String FEATURE_EXTERNAL_PARAMETER_ENTITIES = "http://xml.org/sax/features/external-parameter-entities";
+    private static final String FEATURE_LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+    private static volatile XmlParserPool defaultPool = new XmlParserPool(NodeFactory::new);
+    @NotNull
+    private final Supplier<NodeFactory> nodeFactorySupplier;
+    @NotNull
+    private final ThreadLocal<ParserState> parserStates;
+    @NotNull
+    private final Map<Thread, ParserState> statesByThread = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param nodeFactorySupplier Creates the node factory for the builder of each thread. Node factories are usually
+     *                            stateful, so every thread gets its own.
+     */
+    public XmlParserPool(@NotNull Supplier<NodeFactory> nodeFactorySupplier) {
+        this.nodeFactorySupplier = nodeFactorySupplier;
+        this.parserStates = ThreadLocal.withInitial(this::createParserState);
+    }
+
+    /**
+     * @return The pool used to parse the content of all resources.
+     */
+    @NotNull
+    public static XmlParserPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the pool used to parse the content of all resources, e.g. to use a custom {@link NodeFactory}.
+     */
+    public static void setDefault(@NotNull XmlParserPool pool) {
+        defaultPool = pool;
+    }
+
+    /**
+     * @return The number of documents parsed by all threads.
+     */
+    public long getDocumentCount() {
+        return snapshotStates().stream().mapToLong(ParserState::getDocumentCount).sum();
+    }
+
+    /**
+     * @return The average number of documents a single thread parses per second while parsing.
+     */
+    public double getDocumentsPerSecond() {
+        List<ParserState> states = snapshotStates();
+        long documents = states.stream().mapToLong(ParserState::getDocumentCount).sum();
+        long nanos = states.stream().mapToLong(ParserState::getParseNanos).sum();
+        return toDocumentsPerSecond(documents, nanos);
+    }
+
+    /**
+     * @return The number of documents per second parsed by each live thread, keyed by thread name.
+     */
+    @NotNull
+    public Map<String, Double> getDocumentsPerSecondByThread() {
+
+        Map<String, Double> result = new LinkedHashMap<>();
+
+        synchronized (statesByThread) {
+            statesByThread.forEach((thread, state) ->
+                    result.put(thread.getName(), toDocumentsPerSecond(state.getDocumentCount(), state.getParseNanos())));
+        }
+
+        return result;
+
+    }
+
+    /**
+     * @return The time all threads spent parsing in nanoseconds.
+     */
+    public long getParseNanos() {
+        return snapshotStates().stream().mapToLong(ParserState::getParseNanos).sum();
+    }
+
+    @NotNull
+    public Document parse(@NotNull Reader xmlContent) throws ParsingException, IOException {
+
+        ParserState state = parserStates.get();
+        long start = System.nanoTime();
+
+        try {
+            return state.builder.build(xmlContent);
+        } finally {
+            state.record(System.nanoTime() - start);
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return "XmlParserPool{" +
+                "documentCount=" + getDocumentCount() +
+                ", documentsPerSecond=" + getDocumentsPerSecond() +
+                '}';
+    }
+
+    @NotNull
+    Builder getBuilder() {
+        return parserStates.get().builder;
+    }
+
+    private static double toDocumentsPerSecond(long documents, long nanos) {
+        return nanos == 0 ? 0.0 : documents * 1_000_000_000.0 / nanos;
+    }
+
+    @NotNull
+    private Builder createBuilder() {
+
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setValidating(false);
+
+        XMLReader reader;
+        try {
+            reader = factory.newSAXParser().getXMLReader();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Failed to create a SAX parser.", e);
+        }
+
+        disableFeature(reader, FEATURE_LOAD_EXTERNAL_DTD);
+        disableFeature(reader, FEATURE_EXTERNAL_GENERAL_ENTITIES);
+        disableFeature(reader, FEATURE_EXTERNAL_PARAMETER_ENTITIES);
+
+        return new Builder(reader, false, nodeFactorySupplier.get());
+
+    }
+
+    @NotNull
+    private ParserState createParserState() {
+        ParserState state = new ParserState(createBuilder());
+        statesByThread.put(Thread.currentThread(), state);
+        return state;
+    }
+
+    private void disableFeature(@NotNull XMLReader reader, @NotNull String feature) {
+        try {
+            reader.setFeature(feature, false);
+        } catch (SAXException ignored) {
+            // not every parser knows every feature; the parser's defaults apply then
+        }
+    }
+
+    @NotNull
+    private List<ParserState> snapshotStates() {
+        synchronized (statesByThread) {
+            return new ArrayList<>(statesByThread.values());
+        }
+    }
+
+    private static final class ParserState {
+
+        @NotNull
+        private final Builder builder;
+        private volatile long documentCount = 0;
+        private volatile long parseNanos = 0;
+
+        private ParserState(@NotNull Builder builder) {
+            this.builder = builder;
+        }
+
+        long getDocumentCount() {
+            return documentCount;
+        }
+
+        long getParseNanos() {
+            return parseNanos;
+        }
+
+        // only called by the owning thread, other threads just read the counters
+        void record(long nanos) {
+            documentCount++;
+            parseNanos += nanos;
+        }
+
+    }
+
+}
@@ -1,6 +1,8 @@
 package eu.icarus.momca.momcapi.resource;
 
 import eu.icarus.momca.momcapi.Namespace;
+import nu.xom.XPathContext;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Created by daniel on 27.06.2015.
@@ -11,15 +13,26 @@ public enum XpathQuery {
     QUERY_NAME("//name"),
     QUERY_XRX_BOOKMARK("//xrx:bookmark/text()", Namespace.XRX),
     QUERY_XRX_EMAIL("//xrx:email/text()", Namespace.XRX),
+    QUERY_XRX_MODERATOR("//xrx:moderator/text()", Namespace.XRX),
     QUERY_XRX_NAME("//xrx:name", Namespace.XRX),
     QUERY_XRX_SAVED("//xrx:saved/xrx:id/text()", Namespace.XRX);
 
+    @NotNull
+    private final XPathContext context;
     private final Namespace[] namespaces;
     private final String query;
 
     XpathQuery(String query, Namespace... namespaces) {
+
         this.query = query;
         this.namespaces = namespaces;
+
+        // built once and never modified afterwards, so it can be shared by all threads evaluating the query
+        this.context = new XPathContext();
+        for (Namespace namespace : namespaces) {
+            context.addNamespace(namespace.getPrefix(), namespace.getUri());
+        }
+
     }
 
     public Namespace[] getNamespaces() {
@@ -30,4 +43,9 @@ public enum XpathQuery {
         return query;
     }
 
+    @NotNull
+    XPathContext getContext() {
+        return context;
+    }
+
 }
@@ -0,0 +1,175 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.*;
+
+public class AsyncCallTest {
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+
+        CountDownLatch blocker = new CountDownLatch(1);
+        AsyncCall.submit(executor, () -> blocker.await(5, TimeUnit.SECONDS));
+
+        AtomicBoolean ran = new AtomicBoolean(false);
+        CompletableFuture<Boolean> queued = AsyncCall.submit(executor, () -> {
+            ran.set(true);
+            return true;
+        });
+
+        assertTrue(queued.cancel(true));
+        blocker.countDown();
+
+        // the next call runs after the cancelled one was skipped
+        assertEquals(AsyncCall.submit(executor, () -> "next").get(5, TimeUnit.SECONDS), "next");
+        assertFalse(ran.get());
+
+    }
+
+    @Test
+    public void testCancelInterruptsRunningCall() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "late";
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(call.cancel(true));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(call.isCancelled());
+
+    }
+
+    @Test
+    public void testCancelWithoutInterrupt() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return "done";
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        call.cancel(false);
+        release.countDown();
+
+        // waits for the call to finish on the single thread
+        AsyncCall.submit(executor, () -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(interrupted.get());
+
+    }
+
+    @Test(expectedExceptions = CancellationException.class)
+    public void testGetOfCancelledCall() throws Exception {
+
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return "late";
+        });
+
+        call.cancel(true);
+        call.get(5, TimeUnit.SECONDS);
+
+    }
+
+    @Test
+    public void testInterruptDoesNotLeakToNextCall() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            return "late";
+        });
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        call.cancel(true);
+
+        assertFalse(AsyncCall.submit(executor, () -> Thread.currentThread().isInterrupted()).get(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        assertEquals(AsyncCall.submit(executor, () -> "result").get(5, TimeUnit.SECONDS), "result");
+    }
+
+    @Test
+    public void testSubmitToRejectingExecutor() throws Exception {
+
+        executor.shutdown();
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> "result");
+
+        assertTrue(call.isCompletedExceptionally());
+
+        try {
+            call.get();
+            fail("Expected the call to be rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+    }
+
+    @Test
+    public void testSubmitWithFailingCall() throws Exception {
+
+        CompletableFuture<String> call = AsyncCall.submit(executor, () -> {
+            throw new MomCAException("Failed to connect.");
+        });
+
+        try {
+            call.get(5, TimeUnit.SECONDS);
+            fail("Expected the call to fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MomCAException);
+        }
+
+    }
+
+}
@@ -0,0 +1,221 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class AtomIdIndexTest {
+
+    private static final CharterAtomId ATOM_ID_1 = new CharterAtomId("CH-KAE", "Urkunden", "KAE_Urkunde_Nr_1");
+    private static final CharterAtomId ATOM_ID_2 = new CharterAtomId("CH-KAE", "Urkunden", "KAE_Urkunde_Nr_2");
+    private static final CharterAtomId ATOM_ID_3 = new CharterAtomId("MedDocBulgEmp", "1192-02-02_sic!_Ioan_Kaliman");
+    private static final String URI_IMPORTED_1 = "/db/mom-data/metadata.charter.import/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+    private static final String URI_PUBLIC_1 = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+    private static final String URI_PUBLIC_2 = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_2.cei.xml";
+    private Path directory;
+    private Path file;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        directory = Files.createTempDirectory("atom-id-index-test");
+        file = directory.resolve("atomids.idx");
+
+        AtomIdIndex.write(file, Arrays.asList(
+                new AtomIdIndex.Location(ATOM_ID_2.getAtomId(), CharterStatus.PUBLIC, URI_PUBLIC_2),
+                new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.PUBLIC, URI_PUBLIC_1),
+                new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.IMPORTED, URI_IMPORTED_1)));
+
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(files::add);
+        }
+
+        for (Path path : files) {
+            Files.delete(path);
+        }
+        Files.delete(directory);
+
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+            index.put(ATOM_ID_3, CharterStatus.PUBLIC, "/db/mom-data/metadata.charter.public/MedDocBulgEmp/1.cei.xml");
+            index.remove(URI_PUBLIC_2);
+            index.flush();
+            assertEquals(index.getPendingChangeCount(), 0);
+        }
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+            assertEquals(index.size(), 3);
+            assertEquals(index.lookup(ATOM_ID_3).size(), 1);
+            assertTrue(index.lookup(ATOM_ID_2).isEmpty());
+        }
+
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+
+            List<AtomIdIndex.Location> locations = index.lookup(ATOM_ID_1);
+
+            assertEquals(new HashSet<>(locations), new HashSet<>(Arrays.asList(
+                    new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.PUBLIC, URI_PUBLIC_1),
+                    new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.IMPORTED, URI_IMPORTED_1))));
+
+        }
+
+    }
+
+    /**
+     * Lookups don't lock, so they have to see the mappings a writer keeps putting and flushing neither twice nor not
+     * at all.
+     */
+    @Test
+    public void testLookupWhileWriting() throws Exception {
+
+        Set<AtomIdIndex.Location> expected = new HashSet<>(Arrays.asList(
+                new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.PUBLIC, URI_PUBLIC_1),
+                new AtomIdIndex.Location(ATOM_ID_1.getAtomId(), CharterStatus.IMPORTED, URI_IMPORTED_1)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    index.put(ATOM_ID_1, CharterStatus.PUBLIC, URI_PUBLIC_1);
+                    index.put(ATOM_ID_3, CharterStatus.PUBLIC, "/db/mom-data/metadata.charter.public/MedDocBulgEmp/" + i + ".cei.xml");
+                    if (i % 50 == 0) {
+                        index.flush();
+                    }
+                }
+                return null;
+            });
+
+            while (!writer.isDone()) {
+                List<AtomIdIndex.Location> locations = index.lookup(ATOM_ID_1);
+                assertEquals(locations.size(), 2);
+                assertEquals(new HashSet<>(locations), expected);
+            }
+
+            writer.get();
+            assertEquals(index.lookup(ATOM_ID_3).size(), 500);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testFlushAfterClose() throws Exception {
+
+        AtomIdIndex index = AtomIdIndex.open(file);
+        index.remove(URI_PUBLIC_2);
+        index.close();
+
+        try {
+            index.flush();
+            fail("A closed index was flushed.");
+        } catch (IllegalStateException expected) {
+            // the pending change was discarded with the index
+        }
+
+        try (AtomIdIndex reopened = AtomIdIndex.open(file)) {
+            assertEquals(reopened.size(), 3);
+            assertEquals(reopened.lookup(ATOM_ID_2).size(), 1);
+        }
+
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testLookupAfterClose() throws Exception {
+        AtomIdIndex index = AtomIdIndex.open(file);
+        index.close();
+        index.lookup(ATOM_ID_1);
+    }
+
+    @Test
+    public void testLookupWithMissingAtomId() throws Exception {
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+            assertTrue(index.lookup(ATOM_ID_3).isEmpty());
+        }
+    }
+
+    @Test
+    public void testLookupWithNotExistingFile() throws Exception {
+        try (AtomIdIndex index = AtomIdIndex.open(directory.resolve("notExisting.idx"))) {
+            assertEquals(index.size(), 0);
+            assertTrue(index.lookup(ATOM_ID_1).isEmpty());
+        }
+    }
+
+    @Test
+    public void testPut() throws Exception {
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+
+            // the document now contains another charter, so the former mapping is replaced
+            index.put(ATOM_ID_3, CharterStatus.PUBLIC, URI_PUBLIC_2);
+
+            assertTrue(index.lookup(ATOM_ID_2).isEmpty());
+            assertEquals(index.lookup(ATOM_ID_3), Collections.singletonList(
+                    new AtomIdIndex.Location(ATOM_ID_3.getAtomId(), CharterStatus.PUBLIC, URI_PUBLIC_2)));
+
+        }
+
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testPutAfterClose() throws Exception {
+        AtomIdIndex index = AtomIdIndex.open(file);
+        index.close();
+        index.put(ATOM_ID_3, CharterStatus.PUBLIC, URI_PUBLIC_2);
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+
+        try (AtomIdIndex index = AtomIdIndex.open(file)) {
+            index.remove(URI_IMPORTED_1);
+            assertEquals(index.lookup(ATOM_ID_1).size(), 1);
+            assertEquals(index.getPendingChangeCount(), 1);
+        }
+
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testOpenWithInvalidFile() throws Exception {
+        Path invalidFile = directory.resolve("invalid.idx");
+        Files.write(invalidFile, "no index".getBytes("UTF-8"));
+        AtomIdIndex.open(invalidFile);
+    }
+
+}
@@ -0,0 +1,115 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.testng.Assert.*;
+
+public class BatchWriterTest {
+
+    private static final String PATH_FOND = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden";
+    private static final String PATH_NOT_CREATABLE = "/db/mom-data/metadata.charter.public/notCreatable";
+    private static final String XML_CONTENT = "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\" />";
+    private Set<String> createdCollections;
+    private Map<String, String> storedResources;
+    private BatchWriter.StoreTarget target;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        createdCollections = ConcurrentHashMap.newKeySet();
+        storedResources = new ConcurrentHashMap<>();
+
+        target = new BatchWriter.StoreTarget() {
+
+            @Override
+            public void ensureCollection(@NotNull String collectionPath) throws MomCAException {
+                if (collectionPath.equals(PATH_NOT_CREATABLE)) {
+                    throw new MomCAException("Failed to create collection.");
+                }
+                createdCollections.add(collectionPath);
+            }
+
+            @Override
+            public void store(@NotNull String collectionPath, @NotNull String resourceName, @NotNull String content) throws MomCAException {
+                if (resourceName.startsWith("failing")) {
+                    throw new MomCAException("Failed to store resource.");
+                }
+                storedResources.put(collectionPath + "/" + resourceName, content);
+            }
+
+        };
+
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+
+        StoreReport report = new BatchWriter(target, 2, 2).write(Collections.singletonMap(PATH_FOND, createResources("charter", 5)));
+
+        assertTrue(report.isSuccessful());
+        assertEquals(report.getStoredCount(), 5);
+        assertEquals(report.getBatches().size(), 3);
+        assertEquals(storedResources.get(PATH_FOND + "/charter0.cei.xml"), XML_CONTENT);
+        assertEquals(createdCollections, Collections.singleton(PATH_FOND));
+
+    }
+
+    @Test
+    public void testWriteWithFailingCollection() throws Exception {
+
+        Map<String, List<ExistResource>> resources = new LinkedHashMap<>();
+        resources.put(PATH_NOT_CREATABLE, createResources("charter", 2));
+        resources.put(PATH_FOND, createResources("charter", 2));
+
+        StoreReport report = new BatchWriter(target, 10, 2).write(resources);
+
+        assertEquals(report.getStoredCount(), 2);
+        assertEquals(report.getFailures().size(), 2);
+        assertTrue(report.getFailures().containsKey(PATH_NOT_CREATABLE + "/charter0.cei.xml"));
+
+    }
+
+    @Test
+    public void testWriteWithFailingResource() throws Exception {
+
+        List<ExistResource> resources = createResources("charter", 2);
+        resources.addAll(createResources("failing", 1));
+
+        StoreReport report = new BatchWriter(target, 10, 1).write(Collections.singletonMap(PATH_FOND, resources));
+
+        assertFalse(report.isSuccessful());
+        assertEquals(report.getStoredCount(), 2);
+        assertEquals(report.getBatches().get(0).getFailures().keySet(), Collections.singleton(PATH_FOND + "/failing0.cei.xml"));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConstructorWithInvalidBatchSize() throws Exception {
+        new BatchWriter(target, 0, 1);
+    }
+
+    @NotNull
+    private List<ExistResource> createResources(@NotNull String prefix, int count) {
+
+        List<ExistResource> resources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            resources.add(ExistResource.createLazily(prefix + i + ".cei.xml", PATH_FOND, XML_CONTENT));
+        }
+
+        return resources;
+
+    }
+
+}
@@ -0,0 +1,254 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class ChangeFeedTest {
+
+    private static final String PATH_PUBLIC = "/db/mom-data/metadata.charter.public";
+    private static final String PATH_USER = "/db/mom-data/xrx.user";
+    private static final String URI_CHARTER_1 = PATH_PUBLIC + "/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+    private static final String URI_CHARTER_2 = PATH_PUBLIC + "/CH-KAE/Urkunden/KAE_Urkunde_Nr_2.cei.xml";
+    private static final String URI_USER = PATH_USER + "/admin.xml";
+    private Path checkpointFile;
+    private Path directory;
+    private FakeChangeSource source;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        directory = Files.createTempDirectory("change-feed-test");
+        checkpointFile = directory.resolve("feed.checkpoint");
+        source = new FakeChangeSource();
+
+        source.documents.put(URI_CHARTER_1, 100L);
+        source.documents.put(URI_USER, 100L);
+
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+
+    }
+
+    @Test
+    public void testPoll() throws Exception {
+
+        List<Change> changes = openFeed().poll();
+
+        assertEquals(changes.size(), 2);
+        assertTrue(changes.stream().allMatch(change -> change.getKind() == Change.Kind.CREATED));
+
+    }
+
+    @Test
+    public void testPollAfterCreation() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        source.documents.put(URI_CHARTER_2, 200L);
+
+        List<Change> changes = feed.poll();
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).getKind(), Change.Kind.CREATED);
+        assertEquals(changes.get(0).getUri(), URI_CHARTER_2);
+        assertEquals(changes.get(0).getCharterStatus(), Optional.of(CharterStatus.PUBLIC));
+        assertEquals(source.listUrisCount, 0);
+
+    }
+
+    @Test
+    public void testPollAfterModification() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        source.documents.put(URI_USER, 200L);
+
+        List<Change> changes = feed.poll();
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).getKind(), Change.Kind.MODIFIED);
+        assertTrue(changes.get(0).isUser());
+
+    }
+
+    @Test
+    public void testPollAfterRemoval() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        source.documents.remove(URI_CHARTER_1);
+
+        List<Change> changes = feed.poll();
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).getKind(), Change.Kind.REMOVED);
+        assertEquals(source.listUrisCount, 1);
+
+    }
+
+    @Test
+    public void testPollAfterRemovalAndCreation() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        source.documents.remove(URI_CHARTER_1);
+        source.documents.put(URI_CHARTER_2, 200L);
+
+        Set<Change.Kind> kinds = feed.poll().stream().map(Change::getKind).collect(Collectors.toSet());
+
+        assertEquals(kinds, new HashSet<>(Arrays.asList(Change.Kind.CREATED, Change.Kind.REMOVED)));
+
+    }
+
+    @Test
+    public void testPollAfterRemovalAndCreationKeepingTheCount() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        int listUrisCount = source.listUrisCount;
+
+        // a document restored with a modification time before the high-water mark replaces a removed one
+        source.documents.remove(URI_CHARTER_1);
+        source.documents.put(URI_CHARTER_2, 50L);
+
+        List<Change> changes = feed.poll();
+
+        assertEquals(source.listUrisCount, listUrisCount + 1);
+        assertEquals(changes.size(), 2);
+        assertTrue(changes.stream().anyMatch(change -> change.getKind() == Change.Kind.REMOVED && change.getUri().equals(URI_CHARTER_1)));
+        assertTrue(changes.stream().anyMatch(change -> change.getKind() == Change.Kind.CREATED && change.getUri().equals(URI_CHARTER_2)));
+
+    }
+
+    @Test
+    public void testPollWithDocumentModifiedAtHighWaterMark() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        feed.poll();
+
+        // modified in the same millisecond as the last change seen by the first poll
+        source.documents.put(URI_CHARTER_2, 100L);
+
+        List<Change> changes = feed.poll();
+
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).getUri(), URI_CHARTER_2);
+
+    }
+
+    @Test
+    public void testPollWithoutChanges() throws Exception {
+        ChangeFeed feed = openFeed();
+        feed.poll();
+        assertTrue(feed.poll().isEmpty());
+    }
+
+    @Test
+    public void testPollWithFailingSource() throws Exception {
+
+        ChangeFeed feed = openFeed();
+        source.failing = true;
+
+        try {
+            feed.poll();
+            fail("Exception expected.");
+        } catch (MomCAException e) {
+            source.failing = false;
+        }
+
+        assertEquals(feed.poll().size(), 2);
+
+    }
+
+    @Test
+    public void testPollWithReopenedFeed() throws Exception {
+
+        openFeed().poll();
+        source.documents.remove(URI_CHARTER_1);
+        source.documents.put(URI_CHARTER_2, 200L);
+
+        ChangeFeed reopenedFeed = openFeed();
+        assertEquals(reopenedFeed.getKnownDocumentCount(), 2);
+
+        List<Change> changes = reopenedFeed.poll();
+        assertEquals(changes.size(), 2);
+
+    }
+
+    @NotNull
+    private ChangeFeed openFeed() throws MomCAException {
+        return new ChangeFeed(source, checkpointFile, Arrays.asList(PATH_PUBLIC, PATH_USER));
+    }
+
+    private static class FakeChangeSource implements ChangeFeed.ChangeSource {
+
+        private final Map<String, Long> documents = new HashMap<>();
+        private boolean failing = false;
+        private int listUrisCount = 0;
+
+        @NotNull
+        @Override
+        public Set<String> listUris(@NotNull String collectionPath) {
+            listUrisCount++;
+            return documents.keySet().stream().filter(uri -> uri.startsWith(collectionPath + "/")).collect(Collectors.toSet());
+        }
+
+        @NotNull
+        @Override
+        public ChangeFeed.ModifiedDocuments listModifiedSince(@NotNull String collectionPath, long since) throws MomCAException {
+
+            if (failing) {
+                throw new MomCAException("Failed to query the database.");
+            }
+
+            Map<String, Long> modified = new HashMap<>();
+            int count = 0;
+            long checksum = 0;
+
+            for (String uri : documents.keySet()) {
+                if (uri.startsWith(collectionPath + "/")) {
+                    count++;
+                    checksum += ChangeFeed.uriChecksum(uri);
+                    if (documents.get(uri) >= since) {
+                        modified.put(uri, documents.get(uri));
+                    }
+                }
+            }
+
+            return new ChangeFeed.ModifiedDocuments(count, checksum, modified);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.testng.Assert.*;
+
+public class CharterExporterTest {
+
+    private static final String ATOM_ID_1 = "tag:www.monasterium.net,2011:/charter/CH-KAE/Urkunden/KAE_Urkunde_Nr_1";
+    private static final String ATOM_ID_2 = "tag:www.monasterium.net,2011:/charter/CH-KAE/Urkunden/KAE_Urkunde_Nr_2";
+    private static final String PATH_ARCHIVE = "/db/mom-data/metadata.charter.public/CH-KAE";
+    private static final String PATH_FOND = PATH_ARCHIVE + "/Urkunden";
+    private static final String PATH_PUBLIC = "/db/mom-data/metadata.charter.public";
+    private Path archive;
+    private FakeExportSource source;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        archive = Files.createTempFile("charter-export-test", ".zip");
+        source = new FakeExportSource();
+
+        source.addCollection(PATH_ARCHIVE, "Urkunden");
+        source.addResource(PATH_FOND, "KAE_Urkunde_Nr_1.cei.xml", createCharterXml(ATOM_ID_1));
+        source.addResource(PATH_FOND, "KAE_Urkunde_Nr_2.cei.xml", createCharterXml(ATOM_ID_2));
+
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(archive);
+    }
+
+    @Test
+    public void testExport() throws Exception {
+
+        ExportResult result = new CharterExporter(source, 2, (exported, failed, perSecond) -> {
+        }).export(Collections.singletonList(PATH_ARCHIVE), PATH_PUBLIC, archive);
+
+        assertEquals(result.getExportedCount(), 2);
+        assertTrue(result.getFailedUris().isEmpty());
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertNotNull(zip.getEntry("CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml"));
+            assertNotNull(zip.getEntry("CH-KAE/Urkunden/KAE_Urkunde_Nr_2.cei.xml"));
+        }
+
+    }
+
+    @Test
+    public void testExportReportsProgress() throws Exception {
+
+        AtomicLong lastExportedCount = new AtomicLong();
+        new CharterExporter(source, 1, (exported, failed, perSecond) -> lastExportedCount.set(exported))
+                .export(Collections.singletonList(PATH_FOND), PATH_PUBLIC, archive);
+
+        assertEquals(lastExportedCount.get(), 2);
+
+    }
+
+    @Test
+    public void testExportWithInvalidCharter() throws Exception {
+
+        source.addResource(PATH_FOND, "KAE_Urkunde_Nr_3.cei.xml", "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\" />");
+
+        ExportResult result = new CharterExporter(source, 2, (exported, failed, perSecond) -> {
+        }).export(Collections.singletonList(PATH_FOND), PATH_PUBLIC, archive);
+
+        assertEquals(result.getExportedCount(), 2);
+        assertEquals(result.getFailedUris(), Collections.singletonList(PATH_FOND + "/KAE_Urkunde_Nr_3.cei.xml"));
+
+    }
+
+    @Test
+    public void testExportWritesManifest() throws Exception {
+
+        new CharterExporter(source, 2, (exported, failed, perSecond) -> {
+        }).export(Collections.singletonList(PATH_FOND), PATH_PUBLIC, archive);
+
+        List<String> manifest = readManifest();
+        Collections.sort(manifest);
+
+        assertEquals(manifest.size(), 2);
+        assertEquals(manifest.get(0), ATOM_ID_1 + "\tCH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml");
+        assertEquals(manifest.get(1), ATOM_ID_2 + "\tCH-KAE/Urkunden/KAE_Urkunde_Nr_2.cei.xml");
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConstructorWithInvalidParallelism() throws Exception {
+        new CharterExporter(source, 0, (exported, failed, perSecond) -> {
+        });
+    }
+
+    @NotNull
+    private String createCharterXml(@NotNull String atomId) {
+        return "<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\"><atom:id>" + atomId + "</atom:id></atom:entry>";
+    }
+
+    @NotNull
+    private List<String> readManifest() throws IOException {
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+
+            ZipEntry entry = zip.getEntry(CharterExporter.MANIFEST_ENTRY);
+            assertNotNull(entry);
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+                return reader.lines().collect(Collectors.toCollection(ArrayList::new));
+            }
+
+        }
+
+    }
+
+    private static class FakeExportSource implements CharterExporter.ExportSource {
+
+        private final Map<String, List<String>> childCollections = new HashMap<>();
+        private final Map<String, Map<String, String>> resources = new HashMap<>();
+
+        void addCollection(@NotNull String parentPath, @NotNull String name) {
+            childCollections.computeIfAbsent(parentPath, path -> new ArrayList<>()).add(name);
+        }
+
+        void addResource(@NotNull String collectionPath, @NotNull String name, @NotNull String content) {
+            resources.computeIfAbsent(collectionPath, path -> new HashMap<>()).put(name, content);
+        }
+
+        @NotNull
+        @Override
+        public List<String> listChildCollections(@NotNull String collectionPath) {
+            return childCollections.getOrDefault(collectionPath, Collections.emptyList());
+        }
+
+        @NotNull
+        @Override
+        public List<String> listResources(@NotNull String collectionPath) {
+            return new ArrayList<>(resources.getOrDefault(collectionPath, Collections.emptyMap()).keySet());
+        }
+
+        @NotNull
+        @Override
+        public Optional<String> getContent(@NotNull String collectionPath, @NotNull String resourceName) throws MomCAException {
+            return Optional.ofNullable(resources.getOrDefault(collectionPath, Collections.emptyMap()).get(resourceName));
+        }
+
+    }
+
+}
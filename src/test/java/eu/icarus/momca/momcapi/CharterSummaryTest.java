@@ -0,0 +1,57 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+
+public class CharterSummaryTest {
+
+    private static final String ATOM_ID = "tag:www.monasterium.net,2011:/charter/CH-KAE/Urkunden/KAE_Urkunde_Nr_1";
+    private static final String URI = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+
+    @Test
+    public void testParse() throws Exception {
+
+        CharterSummary summary = CharterSummary.parse(URI + "\t" + ATOM_ID + "\t12970312\tNr. 1", CharterStatus.PUBLIC, CharterSummary.DEFAULT_FIELDS);
+
+        assertEquals(summary.getUri(), URI);
+        assertEquals(summary.getAtomId(), new CharterAtomId(ATOM_ID));
+        assertEquals(summary.getStatus(), CharterStatus.PUBLIC);
+        assertEquals(summary.getField(CharterSummary.Field.DATE), Optional.of("12970312"));
+        assertEquals(summary.getField(CharterSummary.Field.IDNO), Optional.of("Nr. 1"));
+        assertFalse(summary.getField(CharterSummary.Field.PLACE).isPresent());
+
+    }
+
+    @Test
+    public void testParseWithEmptyField() throws Exception {
+
+        CharterSummary summary = CharterSummary.parse(URI + "\t" + ATOM_ID + "\t\tEinsiedeln",
+                CharterStatus.SAVED, EnumSet.of(CharterSummary.Field.PLACE, CharterSummary.Field.DATE));
+
+        assertFalse(summary.getField(CharterSummary.Field.DATE).isPresent());
+        assertEquals(summary.getField(CharterSummary.Field.PLACE), Optional.of("Einsiedeln"));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseWithMissingField() throws Exception {
+        CharterSummary.parse(URI + "\t" + ATOM_ID + "\t12970312", CharterStatus.PUBLIC, CharterSummary.DEFAULT_FIELDS);
+    }
+
+    @Test
+    public void testParseWithoutFields() throws Exception {
+
+        CharterSummary summary = CharterSummary.parse(URI + "\t" + ATOM_ID, CharterStatus.PUBLIC, EnumSet.noneOf(CharterSummary.Field.class));
+
+        assertEquals(summary.getAtomId(), new CharterAtomId(ATOM_ID));
+        assertFalse(summary.getField(CharterSummary.Field.IDNO).isPresent());
+
+    }
+
+}
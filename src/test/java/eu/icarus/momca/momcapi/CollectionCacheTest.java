@@ -0,0 +1,159 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xmldb.api.base.Collection;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class CollectionCacheTest {
+
+    private static final int CAPACITY = 2;
+    private static final String PATH_PUBLIC = "/db/mom-data/metadata.charter.public";
+    private static final String PATH_PUBLIC_FOND = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden";
+    private static final String PATH_USER = "/db/mom-data/xrx.user";
+    private CollectionCache cache;
+    private Set<String> closedPaths;
+    private int loadCount;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        closedPaths = Collections.synchronizedSet(new HashSet<>());
+        loadCount = 0;
+
+        cache = new CollectionCache(CAPACITY, path -> {
+            loadCount++;
+            return path.contains("notExisting") ? null : createCollection(path);
+        });
+
+    }
+
+    @Test
+    public void testGet() throws Exception {
+
+        try (CollectionCache.Lease lease = cache.get(PATH_USER).get()) {
+            assertEquals(lease.getCollection().getName(), PATH_USER);
+        }
+
+        assertEquals(cache.getMissCount(), 1);
+        assertTrue(closedPaths.isEmpty());
+
+    }
+
+    @Test
+    public void testGetCachedCollection() throws Exception {
+
+        try (CollectionCache.Lease first = cache.get(PATH_USER).get();
+             CollectionCache.Lease second = cache.get(PATH_USER).get()) {
+            assertSame(first.getCollection(), second.getCollection());
+        }
+
+        assertEquals(loadCount, 1);
+        assertEquals(cache.getHitCount(), 1);
+
+    }
+
+    @Test
+    public void testGetNotExistingCollection() throws Exception {
+        assertFalse(cache.get("/db/notExisting").isPresent());
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testGetCollectionOfClosedLease() throws Exception {
+        CollectionCache.Lease lease = cache.get(PATH_USER).get();
+        lease.close();
+        lease.getCollection();
+    }
+
+    @Test
+    public void testGetWithEviction() throws Exception {
+
+        cache.get(PATH_USER).get().close();
+        cache.get(PATH_PUBLIC).get().close();
+        cache.get(PATH_USER).get().close();
+        cache.get(PATH_PUBLIC_FOND).get().close();
+
+        assertEquals(cache.size(), CAPACITY);
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(closedPaths, Collections.singleton(PATH_PUBLIC));
+
+    }
+
+    @Test
+    public void testGetWithEvictionOfLeasedHandle() throws Exception {
+
+        CollectionCache.Lease lease = cache.get(PATH_USER).get();
+        // a second lease of the handle, closed before the eviction
+        cache.get(PATH_USER).get().close();
+
+        cache.get(PATH_PUBLIC).get().close();
+        cache.get(PATH_PUBLIC_FOND).get().close();
+        assertEquals(cache.getEvictionCount(), 1);
+
+        // the evicted handle stays open while it is leased
+        assertTrue(lease.getCollection().isOpen());
+        assertTrue(closedPaths.isEmpty());
+
+        lease.close();
+        assertEquals(closedPaths, Collections.singleton(PATH_USER));
+
+        // closing a lease twice releases the handle only once
+        lease.close();
+        assertEquals(closedPaths, Collections.singleton(PATH_USER));
+
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        cache.get(PATH_PUBLIC).get().close();
+        cache.get(PATH_PUBLIC_FOND).get().close();
+        cache.invalidate(PATH_PUBLIC);
+
+        assertEquals(cache.size(), 0);
+        assertEquals(closedPaths, new HashSet<>(Arrays.asList(PATH_PUBLIC, PATH_PUBLIC_FOND)));
+
+    }
+
+    @Test
+    public void testInvalidateAll() throws Exception {
+
+        cache.get(PATH_PUBLIC).get().close();
+
+        try (CollectionCache.Lease lease = cache.get(PATH_USER).get()) {
+            cache.invalidateAll();
+            assertEquals(cache.size(), 0);
+            assertEquals(closedPaths, Collections.singleton(PATH_PUBLIC));
+        }
+
+        assertEquals(closedPaths, new HashSet<>(Arrays.asList(PATH_PUBLIC, PATH_USER)));
+
+    }
+
+    private Collection createCollection(String path) {
+
+        return (Collection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Collection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    closedPaths.add(path);
+                    return null;
+                case "getName":
+                    return path;
+                case "isOpen":
+                    return !closedPaths.contains(path);
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+    }
+
+}
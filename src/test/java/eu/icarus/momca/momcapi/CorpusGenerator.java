@@ -0,0 +1,177 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the content of synthetic charters and users. The same seed always generates the same documents, so test
+ * and benchmark results are comparable between runs and machines. The layout of a whole corpus is defined by
+ * {@link SyntheticCorpus}.
+ * <p>
+ * The size of a charter grows with the number of paragraphs, i.e. sentences of the abstract and bibliography entries.
+ * With 1, 10 and 100 paragraphs a charter has about 1.5, 3 and 17 KB, with 1000 and 5000 paragraphs about 150 and
+ * 760 KB.
+ */
+public class CorpusGenerator {
+
+    public static final int CHARTERS_PER_FOND = 1000;
+    public static final long DEFAULT_SEED = 20150624L;
+    public static final int FONDS_PER_ARCHIVE = 10;
+    private static final String[] PLACES = {"Frankfurt", "Einsiedeln", "Wien", "Passau", "Salzburg", "Regensburg", "Praha", "Zürich"};
+    private static final String[] WORDS = {"abbas", "anno", "bona", "carta", "castrum", "comes", "confirmat", "curia",
+            "dominus", "donat", "ecclesia", "episcopus", "fratres", "homines", "imperator", "iure", "monasterium",
+            "pratum", "privilegium", "rex", "silva", "testes", "urkunde", "villa", "vinea"};
+    @NotNull
+    private final Random random;
+
+    public CorpusGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param index The number of the charter, starting with {@code 0}.
+     * @return The atom id of a charter of an archive's fond. Every fond holds {@value #CHARTERS_PER_FOND} charters,
+     * every archive {@value #FONDS_PER_ARCHIVE} fonds.
+     */
+    @NotNull
+    public static CharterAtomId createAtomId(int index) {
+
+        int fondIndex = index / CHARTERS_PER_FOND;
+        String archiveId = String.format("ARCHIVE-%04d", fondIndex / FONDS_PER_ARCHIVE);
+        String fondId = String.format("Fond_%02d", fondIndex % FONDS_PER_ARCHIVE);
+
+        return new CharterAtomId(archiveId, fondId, String.format("Charter_%07d", index));
+
+    }
+
+    /**
+     * @param index The number of the charter, starting with {@code 0}.
+     * @return The atom id of a charter of a collection. Every collection holds {@value #CHARTERS_PER_FOND} charters.
+     */
+    @NotNull
+    public static CharterAtomId createCollectionAtomId(int index) {
+        String collectionId = String.format("COLLECTION-%04d", index / CHARTERS_PER_FOND);
+        return new CharterAtomId(collectionId, String.format("Charter_%07d", index));
+    }
+
+    @NotNull
+    public static String createUserId(int index) {
+        return String.format("user%05d@example.org", index);
+    }
+
+    @NotNull
+    public String createCharter(@NotNull CharterAtomId atomId, int paragraphs) {
+
+        StringBuilder xml = new StringBuilder(1024 + paragraphs * 200);
+
+        xml.append("<atom:entry xmlns:atom=\"http://www.w3.org/2005/Atom\">")
+                .append("<atom:id>").append(atomId.getAtomId()).append("</atom:id>")
+                .append("<atom:title/>")
+                .append("<atom:published>2011-11-28T09:57:23.704+01:00</atom:published>")
+                .append("<atom:updated>2011-11-28T09:57:23.704+01:00</atom:updated>")
+                .append("<atom:author><atom:email/></atom:author>")
+                .append("<app:control xmlns:app=\"http://www.w3.org/2007/app\"><app:draft>no</app:draft></app:control>")
+                .append("<atom:content type=\"application/xml\">")
+                .append("<cei:text type=\"charter\" xmlns:cei=\"http://www.monasterium.net/NS/cei\">")
+                .append("<cei:front><cei:sourceDesc><cei:sourceDescRegest><cei:bibl>").append(sentence(4))
+                .append("</cei:bibl></cei:sourceDescRegest></cei:sourceDesc></cei:front>")
+                .append("<cei:body>")
+                .append("<cei:idno id=\"").append(atomId.getCharterId()).append("\">").append(atomId.getCharterId()).append("</cei:idno>")
+                .append("<cei:chDesc>")
+                .append("<cei:abstract>");
+
+        for (int i = 0; i < paragraphs; i++) {
+            xml.append(sentence(12)).append(' ');
+        }
+
+        int year = 800 + random.nextInt(700);
+        int month = 1 + random.nextInt(12);
+        int day = 1 + random.nextInt(28);
+
+        xml.append("</cei:abstract>")
+                .append("<cei:issued>")
+                .append("<cei:placeName>").append(PLACES[random.nextInt(PLACES.length)]).append("</cei:placeName>")
+                .append(String.format("<cei:date value=\"%04d%02d%02d\">%04d-%02d-%02d</cei:date>", year, month, day, year, month, day))
+                .append("</cei:issued>")
+                .append("<cei:witnessOrig><cei:traditioForm>Original</cei:traditioForm>")
+                .append("<cei:figure><cei:graphic url=\"").append(atomId.getCharterId()).append("-r.jpg\"/></cei:figure>")
+                .append("</cei:witnessOrig>")
+                .append("<cei:diplomaticAnalysis><cei:listBiblRegest>");
+
+        for (int i = 0; i < paragraphs; i++) {
+            xml.append("<cei:bibl>").append(sentence(6)).append("</cei:bibl>");
+        }
+
+        xml.append("</cei:listBiblRegest></cei:diplomaticAnalysis>")
+                .append("</cei:chDesc>")
+                .append("</cei:body>")
+                .append("</cei:text>")
+                .append("</atom:content>")
+                .append("</atom:entry>");
+
+        return xml.toString();
+
+    }
+
+    /**
+     * @param savedCharters      The charters saved by the user.
+     * @param bookmarkedCharters The charters bookmarked by the user.
+     */
+    @NotNull
+    public String createUser(@NotNull String userId, @NotNull String moderatorId, @NotNull List<CharterAtomId> savedCharters,
+                             @NotNull List<CharterAtomId> bookmarkedCharters) {
+
+        StringBuilder xml = new StringBuilder(1024);
+
+        xml.append("<xrx:user xmlns:xrx=\"http://www.monasterium.net/NS/xrx\">")
+                .append("<xrx:username/><xrx:password/>")
+                .append("<xrx:firstname>").append(word()).append("</xrx:firstname>")
+                .append("<xrx:name>").append(word()).append("</xrx:name>")
+                .append("<xrx:email>").append(userId).append("</xrx:email>")
+                .append("<xrx:moderator>").append(moderatorId).append("</xrx:moderator>")
+                .append("<xrx:street/><xrx:zip/><xrx:town/><xrx:phone/><xrx:institution/><xrx:info/>")
+                .append("<xrx:storage><xrx:saved_list>");
+
+        for (CharterAtomId atomId : savedCharters) {
+            xml.append("<xrx:saved><xrx:id>").append(atomId.getAtomId()).append("</xrx:id>")
+                    .append("<xrx:start_time>2015-06-27T10:42:39.179+02:00</xrx:start_time>")
+                    .append("<xrx:freigabe>no</xrx:freigabe></xrx:saved>");
+        }
+
+        xml.append("</xrx:saved_list><xrx:bookmark_list>");
+
+        for (CharterAtomId atomId : bookmarkedCharters) {
+            xml.append("<xrx:bookmark>").append(atomId.getAtomId()).append("</xrx:bookmark>");
+        }
+
+        xml.append("</xrx:bookmark_list></xrx:storage></xrx:user>");
+
+        return xml.toString();
+
+    }
+
+    @NotNull
+    private String sentence(int wordCount) {
+
+        StringBuilder sentence = new StringBuilder(wordCount * 8);
+
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(word());
+        }
+
+        return sentence.append('.').toString();
+
+    }
+
+    @NotNull
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+}
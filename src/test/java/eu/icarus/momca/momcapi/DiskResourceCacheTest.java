@@ -0,0 +1,141 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class DiskResourceCacheTest {
+
+    private static final String CONTENT = "<cei:text xmlns:cei=\"http://www.monasterium.net/NS/cei\">Ü</cei:text>";
+    private static final String URI_1 = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+    private static final String URI_2 = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_2.cei.xml";
+    private static final String URI_3 = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_3.cei.xml";
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("resource-cache-test");
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+
+    }
+
+    @Test
+    public void testGet() throws Exception {
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+        cache.put(URI_1, 100L, CONTENT);
+
+        assertEquals(cache.get(URI_1, 100L), Optional.of(CONTENT));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getBytesSaved(), CONTENT.getBytes("UTF-8").length);
+
+    }
+
+    @Test
+    public void testGetWithModifiedResource() throws Exception {
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+        cache.put(URI_1, 100L, CONTENT);
+
+        assertFalse(cache.get(URI_1, 200L).isPresent());
+        assertEquals(cache.getStaleCount(), 1);
+        assertEquals(cache.getEntryCount(), 0);
+        assertFalse(cache.get(URI_1, 100L).isPresent());
+
+    }
+
+    @Test
+    public void testGetWithUncachedResource() throws Exception {
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+
+        assertFalse(cache.get(URI_1, 100L).isPresent());
+        assertEquals(cache.getMissCount(), 1);
+
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+        cache.put(URI_1, 100L, CONTENT);
+        cache.invalidate(URI_1);
+
+        assertFalse(cache.get(URI_1, 100L).isPresent());
+        assertEquals(cache.getSizeInBytes(), 0);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(files.count(), 0);
+        }
+
+    }
+
+    @Test
+    public void testPutEvictsLeastRecentlyUsed() throws Exception {
+
+        DiskResourceCache probe = new DiskResourceCache(directory, 1024 * 1024);
+        probe.put(URI_1, 100L, CONTENT);
+        long entrySize = probe.getSizeInBytes();
+        probe.invalidateAll();
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 2 * entrySize + entrySize / 2);
+        cache.put(URI_1, 100L, CONTENT);
+        cache.put(URI_2, 100L, CONTENT);
+        cache.get(URI_1, 100L);
+        cache.put(URI_3, 100L, CONTENT);
+
+        assertEquals(cache.getEntryCount(), 2);
+        assertEquals(cache.getEvictionCount(), 1);
+        assertTrue(cache.get(URI_1, 100L).isPresent());
+        assertFalse(cache.get(URI_2, 100L).isPresent());
+        assertTrue(cache.get(URI_3, 100L).isPresent());
+
+    }
+
+    @Test
+    public void testPutReplacesEntry() throws Exception {
+
+        DiskResourceCache cache = new DiskResourceCache(directory, 1024 * 1024);
+        cache.put(URI_1, 100L, CONTENT);
+        cache.put(URI_1, 200L, "<changed/>");
+
+        assertEquals(cache.getEntryCount(), 1);
+        assertEquals(cache.get(URI_1, 200L), Optional.of("<changed/>"));
+
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+
+        new DiskResourceCache(directory, 1024 * 1024).put(URI_1, 100L, CONTENT);
+
+        DiskResourceCache reopenedCache = new DiskResourceCache(directory, 1024 * 1024);
+
+        assertEquals(reopenedCache.getEntryCount(), 1);
+        assertEquals(reopenedCache.get(URI_1, 100L), Optional.of(CONTENT));
+
+    }
+
+}
@@ -0,0 +1,217 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.User;
+import org.exist.xmldb.DatabaseImpl;
+import org.exist.xmldb.DatabaseInstanceManager;
+import org.jetbrains.annotations.NotNull;
+import org.xmldb.api.DatabaseManager;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.Database;
+import org.xmldb.api.base.Resource;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.CollectionManagementService;
+import org.xmldb.api.modules.XMLResource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An eXist instance running inside the JVM in a temporary directory, so tests and benchmarks need neither a server
+ * nor the network. The instance is configured by {@code exist-conf.xml}, which enables only the modules the queries of
+ * momcapi need and disables recovery, so starting and shutting down take only moments.
+ * <p>
+ * eXist keeps its database pool in a static registry, so only one instance can run in a JVM at a time.
+ */
+public final class EmbeddedExist implements Closeable {
+
+    public static final String ADMIN = "admin";
+    public static final String DB_ROOT_URI = "xmldb:exist://";
+    public static final String PASSWORD = "";
+    private static final int LOAD_CHUNK_SIZE = 10000;
+    @NotNull
+    private final Database database;
+    @NotNull
+    private final Path home;
+    @NotNull
+    private final Collection rootCollection;
+
+    private EmbeddedExist(@NotNull Path home, @NotNull Database database, @NotNull Collection rootCollection) {
+        this.home = home;
+        this.database = database;
+        this.rootCollection = rootCollection;
+    }
+
+    /**
+     * Starts an empty instance.
+     */
+    @NotNull
+    public static EmbeddedExist start() throws IOException, XMLDBException {
+
+        Path home = Files.createTempDirectory("momcapi-exist");
+        Files.createDirectories(home.resolve("data"));
+
+        Path configuration = home.resolve("conf.xml");
+        try (InputStream in = EmbeddedExist.class.getResourceAsStream("/exist-conf.xml")) {
+            Files.copy(in, configuration);
+        }
+
+        System.setProperty("exist.home", home.toString());
+
+        Database database = new DatabaseImpl();
+        database.setProperty("create-database", "true");
+        database.setProperty("configuration", configuration.toString());
+        DatabaseManager.registerDatabase(database);
+
+        Collection rootCollection = DatabaseManager.getCollection(DB_ROOT_URI + "/db", ADMIN, PASSWORD);
+        return new EmbeddedExist(home, database, rootCollection);
+
+    }
+
+    /**
+     * Shuts the instance down and deletes its files.
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            DatabaseInstanceManager manager = (DatabaseInstanceManager) rootCollection.getService("DatabaseInstanceManager", "1.0");
+            manager.shutdown();
+            DatabaseManager.deregisterDatabase(database);
+        } catch (XMLDBException e) {
+            throw new IOException("Failed to shut down the embedded database.", e);
+        }
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(home)) {
+            files = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            Files.delete(file);
+        }
+
+    }
+
+    /**
+     * @return A new client of the instance, logged in as admin.
+     */
+    @NotNull
+    public MomCA connect() throws MomCAException {
+        return new MomCA(DB_ROOT_URI, ADMIN, PASSWORD);
+    }
+
+    /**
+     * Stores the charters of all statuses and the users of the corpus. The documents are generated and stored in
+     * chunks of {@value #LOAD_CHUNK_SIZE}, so large corpora don't have to fit in memory.
+     *
+     * @throws MomCAException if a document failed to be stored.
+     */
+    public void load(@NotNull SyntheticCorpus corpus) throws MomCAException {
+
+        MomCA momCA = connect();
+
+        try {
+
+            for (CharterStatus status : CharterStatus.values()) {
+                try (Stream<Charter> charters = corpus.streamCharters(status)) {
+                    store(charters.iterator(), chunk -> momCA.storeCharters(chunk));
+                }
+            }
+
+            try (Stream<User> users = corpus.streamUsers()) {
+                store(users.iterator(), chunk -> momCA.storeUsers(chunk));
+            }
+
+        } finally {
+            momCA.closeConnection();
+        }
+
+    }
+
+    /**
+     * @return The content of the document or nothing, if it doesn't exist.
+     */
+    @NotNull
+    public Optional<String> readDocument(@NotNull String collectionPath, @NotNull String name) throws XMLDBException {
+
+        Collection collection = DatabaseManager.getCollection(DB_ROOT_URI + collectionPath, ADMIN, PASSWORD);
+        if (collection == null) {
+            return Optional.empty();
+        }
+
+        try {
+            Resource resource = collection.getResource(name);
+            return resource == null ? Optional.empty() : Optional.of(resource.getContent().toString());
+        } finally {
+            collection.close();
+        }
+
+    }
+
+    /**
+     * Stores a document directly, bypassing momcapi, e.g. to set up configuration that momcapi doesn't manage. The
+     * collection is created if missing.
+     *
+     * @param collectionPath An absolute path, e.g. {@code /db/system/config/db/mom-data}.
+     */
+    public void storeDocument(@NotNull String collectionPath, @NotNull String name, @NotNull String content) throws XMLDBException {
+
+        CollectionManagementService service = (CollectionManagementService) rootCollection.getService("CollectionManagementService", "1.0");
+        Collection collection = service.createCollection(collectionPath.substring("/db/".length()));
+
+        try {
+            Resource resource = collection.createResource(name, XMLResource.RESOURCE_TYPE);
+            resource.setContent(content);
+            collection.storeResource(resource);
+        } finally {
+            collection.close();
+        }
+
+    }
+
+    private <T> void store(@NotNull Iterator<T> documents, @NotNull Store<T> target) throws MomCAException {
+
+        List<T> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+
+        while (documents.hasNext()) {
+
+            chunk.add(documents.next());
+
+            if (chunk.size() == LOAD_CHUNK_SIZE || !documents.hasNext()) {
+
+                StoreReport report = target.store(chunk);
+                if (!report.isSuccessful()) {
+                    throw new MomCAException(String.format("Failed to store %d documents, e.g. '%s'.",
+                            report.getFailures().size(), report.getFailures().keySet().iterator().next()));
+                }
+
+                chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+
+            }
+
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Store<T> {
+
+        @NotNull
+        StoreReport store(@NotNull List<T> chunk) throws MomCAException;
+
+    }
+
+}
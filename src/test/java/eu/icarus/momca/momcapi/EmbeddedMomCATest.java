@@ -0,0 +1,392 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.MetricsRecorder.Stage;
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.User;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs {@link MomCA} against an embedded database loaded with a {@link SyntheticCorpus}, so it needs no server.
+ */
+public class EmbeddedMomCATest {
+
+    private final SyntheticCorpus corpus = new SyntheticCorpus(1000);
+    private EmbeddedExist exist;
+    private MomCA momCA;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        exist = EmbeddedExist.start();
+        exist.load(corpus);
+        momCA = exist.connect();
+
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        momCA.closeConnection();
+        exist.close();
+
+    }
+
+    @Test
+    public void testFindCharterEverywhere() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.SAVED, 0);
+        Map<CharterStatus, List<Charter>> charters = momCA.findCharterEverywhere(atomId);
+
+        assertEquals(charters.keySet(), EnumSet.allOf(CharterStatus.class));
+        assertEquals(charters.get(CharterStatus.IMPORTED).size(), 1);
+        assertEquals(charters.get(CharterStatus.PUBLIC).size(), 1);
+        assertEquals(charters.get(CharterStatus.SAVED).size(), 1);
+        assertTrue(charters.get(CharterStatus.PRIVATE).isEmpty());
+
+        for (Map.Entry<CharterStatus, List<Charter>> entry : charters.entrySet()) {
+            for (Charter charter : entry.getValue()) {
+                assertEquals(charter.getAtomId(), atomId);
+                assertEquals(charter.getStatus(), entry.getKey());
+            }
+        }
+
+    }
+
+    @Test
+    public void testFindCharterEverywhereIgnoresOtherUserCollections() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PRIVATE, 6);
+        String owner = corpus.getPrivateCharterOwner(6);
+        Charter charter = momCA.getPrivateCharters(atomId, owner).get(0);
+
+        // only the users' metadata.charter collections hold private charters
+        exist.storeDocument("/db/mom-data/xrx.user/" + owner + "/metadata.copy", charter.getName(), charter.getXmlAsString());
+
+        List<Charter> charters = momCA.findCharterEverywhere(atomId).get(CharterStatus.PRIVATE);
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getUri(), charter.getUri());
+
+    }
+
+    @Test
+    public void testFindCharterEverywhereOfPrivateCharter() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PRIVATE, 5);
+        Map<CharterStatus, List<Charter>> charters = momCA.findCharterEverywhere(atomId);
+
+        assertEquals(charters.get(CharterStatus.PRIVATE).size(), 1);
+        assertEquals(charters.get(CharterStatus.PRIVATE).get(0).getParentUri(),
+                "/db/mom-data/xrx.user/" + corpus.getPrivateCharterOwner(5) + "/metadata.charter");
+        assertTrue(charters.get(CharterStatus.PUBLIC).isEmpty());
+
+    }
+
+    @Test
+    public void testGetImportedCharters() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.IMPORTED, 5);
+        List<Charter> charters = momCA.getImportedCharters(atomId);
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getAtomId(), atomId);
+        assertEquals(charters.get(0).getStatus(), CharterStatus.IMPORTED);
+
+    }
+
+    @Test
+    public void testGetPrivateCharters() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PRIVATE, 3);
+        List<Charter> charters = momCA.getPrivateCharters(atomId, corpus.getPrivateCharterOwner(3));
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getAtomId(), atomId);
+        assertEquals(charters.get(0).getStatus(), CharterStatus.PRIVATE);
+
+    }
+
+    @Test
+    public void testGetPublishedChartersAsync() throws Exception {
+
+        ExecutorService executor = MomCAAsync.newDefaultExecutor(momCA);
+
+        try {
+
+            MomCAAsync async = new MomCAAsync(momCA, executor);
+            List<CompletableFuture<List<Charter>>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(async.getPublishedChartersAsync(corpus.getAtomId(CharterStatus.PUBLIC, i)));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(1, TimeUnit.MINUTES);
+
+            for (int i = 0; i < 50; i++) {
+                assertEquals(futures.get(i).get().get(0).getAtomId(), corpus.getAtomId(CharterStatus.PUBLIC, i));
+            }
+
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+    @Test
+    public void testGetPublishedChartersOfCollection() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, 19);
+        List<Charter> charters = momCA.getPublishedCharters(atomId);
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getAtomId(), atomId);
+        assertEquals(charters.get(0).getParentUri(), "/db/mom-data/metadata.charter.public/COLLECTION-0000");
+
+    }
+
+    @Test
+    public void testGetPublishedChartersOfFond() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, 42);
+        List<Charter> charters = momCA.getPublishedCharters(atomId);
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getAtomId(), atomId);
+        assertEquals(charters.get(0).getParentUri(), "/db/mom-data/metadata.charter.public/ARCHIVE-0000/Fond_00");
+
+    }
+
+    @Test
+    public void testGetPublishedChartersPage() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, 42);
+        Page<Charter> page = momCA.getPublishedCharters(atomId, PageRequest.first(10).withTotalCount());
+
+        assertEquals(page.getItems().size(), 1);
+        assertEquals(page.getItems().get(0).getAtomId(), atomId);
+        assertEquals(page.getTotalCount(), Optional.of(1));
+        assertFalse(page.hasNext());
+
+    }
+
+    @Test
+    public void testGetSavedCharters() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.SAVED, 7);
+        List<Charter> charters = momCA.getSavedCharters(atomId);
+
+        assertEquals(charters.size(), 1);
+        assertEquals(charters.get(0).getAtomId(), atomId);
+        assertEquals(charters.get(0).getStatus(), CharterStatus.SAVED);
+
+    }
+
+    @Test
+    public void testGetUser() throws Exception {
+
+        Optional<User> user = momCA.getUser(corpus.getUserId(4));
+
+        assertTrue(user.isPresent());
+        assertEquals(user.get().getModeratorId(), Optional.of(corpus.getUserId(0)));
+        assertEquals(user.get().listSavedCharterIds(), corpus.getSavedCharters(4));
+        assertEquals(user.get().listBookmarkedCharterIds(), corpus.getBookmarkedCharters(4));
+
+    }
+
+    @Test
+    public void testGetUserAfterPreload() throws Exception {
+
+        // the user's resource name is stored URL-encoded because of the '@'
+        String userId = corpus.getUserId(9);
+        UserDirectory userDirectory = momCA.getUserDirectory();
+        userDirectory.preload();
+        long missCount = userDirectory.getMissCount();
+
+        User user = momCA.getUser(userId).get();
+
+        assertEquals(userDirectory.getMissCount(), missCount);
+        assertEquals(user.getName(), userId + ".xml");
+
+        momCA.storeUsers(Collections.singletonList(user));
+        momCA.getUser(userId);
+
+        assertEquals(userDirectory.getMissCount(), missCount + 1);
+
+    }
+
+    @Test
+    public void testListCharters() throws Exception {
+
+        String fond = "ARCHIVE-0000/Fond_00";
+        List<String> uris = new ArrayList<>();
+
+        Page<Charter> page = momCA.listCharters(CharterStatus.PUBLIC, fond, PageRequest.first(250).withTotalCount());
+        assertEquals(page.getTotalCount(), Optional.of(900));
+        uris.addAll(page.getItems().stream().map(Charter::getUri).collect(Collectors.toList()));
+
+        while (page.hasNext()) {
+            page = momCA.listCharters(CharterStatus.PUBLIC, fond, PageRequest.after(page.getNextCursor().get(), 250));
+            assertFalse(page.getTotalCount().isPresent());
+            uris.addAll(page.getItems().stream().map(Charter::getUri).collect(Collectors.toList()));
+        }
+
+        assertEquals(page.getItems().size(), 150);
+        assertEquals(uris, uris.stream().distinct().sorted().collect(Collectors.toList()));
+        assertEquals(uris.size(), 900);
+
+    }
+
+    @Test
+    public void testInstallIndexesKeepsExistingConfiguration() throws Exception {
+
+        String configPath = "/db/system/config/db/mom-data/metadata.charter.public";
+        exist.storeDocument(configPath, "collection.xconf", "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+                "<index xmlns:cei=\"http://www.monasterium.net/NS/cei\">" +
+                "<lucene><text qname=\"cei:abstract\"/></lucene>" +
+                "</index></collection>");
+
+        momCA.installIndexes();
+
+        String xconf = exist.readDocument(configPath, "collection.xconf").get();
+        assertTrue(xconf.contains("<lucene"), xconf);
+        assertTrue(xconf.contains("qname=\"cei:abstract\""), xconf);
+        assertTrue(xconf.contains("path=\"//cei:idno/@id\""), xconf);
+        assertTrue(momCA.isIndexBacked(new ExistQueryFactory().queryCharters(configPath.replace("/db/system/config", ""), "Charter_0000042")));
+
+        // a second run finds all indexes defined and leaves the configuration alone
+        momCA.installIndexes();
+        assertEquals(exist.readDocument(configPath, "collection.xconf").get(), xconf);
+
+    }
+
+    @Test
+    public void testListCharterSummaries() throws Exception {
+
+        Page<Charter> charters = momCA.listCharters(CharterStatus.PUBLIC, "COLLECTION-0000", PageRequest.first(20));
+        Page<CharterSummary> summaries = momCA.listCharterSummaries(CharterStatus.PUBLIC, "COLLECTION-0000", CharterSummary.DEFAULT_FIELDS,
+                PageRequest.after(charters.getNextCursor().get(), 20).withTotalCount());
+
+        assertEquals(summaries.getTotalCount(), Optional.of(100));
+        assertEquals(summaries.getItems().size(), 20);
+        assertTrue(charters.getItems().get(19).getUri().compareTo(summaries.getItems().get(0).getUri()) < 0);
+
+    }
+
+    @Test
+    public void testListChartersAfterInsertBeforeCursor() throws Exception {
+
+        String collectionPath = "/db/mom-data/metadata.charter.public/PAGING";
+        List<Charter> charters = momCA.listCharters(CharterStatus.PUBLIC, "COLLECTION-0000", PageRequest.first(5)).getItems();
+        for (int i = 0; i < 4; i++) {
+            exist.storeDocument(collectionPath, "B" + i + ".cei.xml", charters.get(i).getXmlAsString());
+        }
+
+        Page<Charter> first = momCA.listCharters(CharterStatus.PUBLIC, "PAGING", PageRequest.first(2));
+        exist.storeDocument(collectionPath, "A.cei.xml", charters.get(4).getXmlAsString());
+        Page<Charter> second = momCA.listCharters(CharterStatus.PUBLIC, "PAGING", PageRequest.after(first.getNextCursor().get(), 2));
+
+        // the charter stored before the cursor shifts nothing, the second page continues after the first
+        assertEquals(first.getItems().stream().map(Charter::getName).collect(Collectors.toList()), Arrays.asList("B0.cei.xml", "B1.cei.xml"));
+        assertEquals(second.getItems().stream().map(Charter::getName).collect(Collectors.toList()), Arrays.asList("B2.cei.xml", "B3.cei.xml"));
+        assertFalse(second.hasNext());
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testListChartersWithCursorOfOtherPath() throws Exception {
+
+        Page<Charter> page = momCA.listCharters(CharterStatus.PUBLIC, "ARCHIVE-0000/Fond_00", PageRequest.first(10));
+        momCA.listCharters(CharterStatus.PUBLIC, "COLLECTION-0000", PageRequest.after(page.getNextCursor().get(), 10));
+
+    }
+
+    @Test
+    public void testListPrivateCharters() throws Exception {
+
+        Page<Charter> page = momCA.listCharters(CharterStatus.PRIVATE, corpus.getPrivateCharterOwner(0), PageRequest.first(10));
+
+        assertEquals(page.getItems().size(), 2);
+        assertEquals(page.getItems().get(0).getAtomId(), corpus.getAtomId(CharterStatus.PRIVATE, 0));
+        assertFalse(page.hasNext());
+
+    }
+
+    @Test
+    public void testStreamCharterSummaries() throws Exception {
+
+        List<CharterSummary> summaries;
+        try (Stream<CharterSummary> stream = momCA.streamCharterSummaries(CharterStatus.PUBLIC, "ARCHIVE-0000/Fond_00", EnumSet.allOf(CharterSummary.Field.class))) {
+            summaries = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(summaries.size(), 900);
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, 42);
+        CharterSummary summary = summaries.stream().filter(candidate -> candidate.getAtomId().equals(atomId)).findFirst().get();
+        assertEquals(summary.getUri(), momCA.getPublishedCharters(atomId).get(0).getUri());
+        assertEquals(summary.getStatus(), CharterStatus.PUBLIC);
+        assertEquals(summary.getField(CharterSummary.Field.IDNO), Optional.of(atomId.getCharterId()));
+        assertTrue(summary.getField(CharterSummary.Field.DATE).get().matches("\\d{8}"));
+        assertTrue(summary.getField(CharterSummary.Field.PLACE).isPresent());
+        assertTrue(summary.getField(CharterSummary.Field.ABSTRACT).isPresent());
+
+    }
+
+    @Test
+    public void testStreamCharterSummariesIsLazy() throws Exception {
+
+        LongAdder transfers = new LongAdder();
+        momCA.setMetricsRecorder(new MetricsRecorder() {
+
+            @Override
+            public void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed) {
+            }
+
+            @Override
+            public void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed) {
+                if (stage == Stage.CONTENT_TRANSFER) {
+                    transfers.increment();
+                }
+            }
+
+        });
+
+        try (Stream<CharterSummary> stream = momCA.streamCharterSummaries(CharterStatus.PUBLIC, "ARCHIVE-0000/Fond_00", EnumSet.noneOf(CharterSummary.Field.class))) {
+
+            assertEquals(transfers.sum(), 0);
+            assertEquals(stream.limit(3).count(), 3);
+            // only the consumed summaries were pulled from the result
+            assertEquals(transfers.sum(), 3);
+
+        } finally {
+            momCA.setMetricsRecorder(MetricsRecorder.NONE);
+        }
+
+    }
+
+    @Test
+    public void testListUsers() throws Exception {
+        assertEquals(momCA.listUsers().size(), corpus.getUserCount());
+    }
+
+}
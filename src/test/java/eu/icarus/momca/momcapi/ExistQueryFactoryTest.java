@@ -0,0 +1,109 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+
+import static org.testng.Assert.*;
+
+public class ExistQueryFactoryTest {
+
+    private static final ExistQueryFactory QUERY_FACTORY = new ExistQueryFactory();
+    private static final String CHARTER_ID = "KAE_Urkunde_Nr_1";
+    private static final String PATH = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden";
+
+    @Test
+    public void testQueryCharterPageBindsVariables() throws Exception {
+
+        String after = PATH + "/KAE_Urkunde_Nr_1.cei.xml";
+        ExistQuery query = QUERY_FACTORY.queryCharterPage(PATH, CHARTER_ID, after, 10, true);
+
+        assertEquals(query.getVariables().get("path"), PATH);
+        assertEquals(query.getVariables().get("charter-id"), CHARTER_ID);
+        assertEquals(query.getVariables().get("after"), after);
+        assertEquals(query.getVariables().get("length"), 10);
+        assertEquals(query.getVariables().get("with-total"), true);
+        assertTrue(query.getTemplate().contains("compare($uri, $after) > 0"));
+        assertTrue(query.getTemplate().contains("subsequence($following, 1, $length)"));
+
+    }
+
+    @Test
+    public void testQueryCharterPageSharesTemplate() throws Exception {
+
+        ExistQuery query1 = QUERY_FACTORY.queryCharterPage(PATH, "", 10, false);
+        ExistQuery query2 = QUERY_FACTORY.queryCharterPage(PATH, PATH + "/KAE_Urkunde_Nr_1.cei.xml", 10, false);
+
+        assertEquals(query1.getTemplate(), query2.getTemplate());
+        assertNotEquals(query1, query2);
+        assertFalse(query1.getTemplate().contains("cei:idno"));
+
+    }
+
+    @Test
+    public void testQueryCharterSummaries() throws Exception {
+
+        ExistQuery query = QUERY_FACTORY.queryCharterSummaries(PATH, EnumSet.of(CharterSummary.Field.IDNO, CharterSummary.Field.DATE));
+
+        assertEquals(query.getVariables().get("path"), PATH);
+        assertTrue(query.getTemplate().indexOf(CharterSummary.Field.DATE.getPath()) < query.getTemplate().indexOf(CharterSummary.Field.IDNO.getPath()));
+        assertFalse(query.getTemplate().contains(CharterSummary.Field.PLACE.getPath()));
+        assertFalse(query.getTemplate().contains("util:serialize"));
+
+    }
+
+    @Test
+    public void testQueryCharterSummaryPage() throws Exception {
+
+        ExistQuery query = QUERY_FACTORY.queryCharterSummaryPage(PATH, CharterSummary.DEFAULT_FIELDS, "", 10, false);
+
+        assertEquals(query.getVariables().get("after"), "");
+        assertEquals(query.getVariables().get("length"), 10);
+        assertEquals(query.getVariables().get("with-total"), false);
+        assertNotEquals(query.getTemplate(), QUERY_FACTORY.queryCharterSummaryPage(PATH, EnumSet.allOf(CharterSummary.Field.class), "", 10, false).getTemplate());
+
+    }
+
+    @Test
+    public void testQueryChartersBindsVariables() throws Exception {
+
+        ExistQuery query = QUERY_FACTORY.queryCharters(PATH, CHARTER_ID);
+
+        assertEquals(query.getVariables().get("path"), PATH);
+        assertEquals(query.getVariables().get("charter-id"), CHARTER_ID);
+        assertFalse(query.getTemplate().contains(CHARTER_ID));
+
+    }
+
+    @Test
+    public void testQueryChartersSharesTemplate() throws Exception {
+
+        ExistQuery query1 = QUERY_FACTORY.queryCharters(PATH, CHARTER_ID);
+        ExistQuery query2 = QUERY_FACTORY.queryCharters(PATH, "KAE_Urkunde_Nr_2");
+
+        assertEquals(query1.getTemplate(), query2.getTemplate());
+        assertNotEquals(query1, query2);
+
+    }
+
+    @Test
+    public void testQueryPrivateChartersOfAllUsers() throws Exception {
+
+        ExistQuery query = QUERY_FACTORY.queryPrivateChartersOfAllUsers(CHARTER_ID);
+
+        assertEquals(query.getVariables().get("path"), "/db/mom-data/xrx.user");
+        assertEquals(query.getVariables().get("charter-id"), CHARTER_ID);
+        assertTrue(query.getTemplate().contains("'/metadata.charter'"));
+        assertFalse(query.getTemplate().contains(CHARTER_ID));
+
+    }
+
+    @Test
+    public void testQueryUserModeratorWithQuote() throws Exception {
+        String userName = "o'brien@dev.monasterium.net";
+        ExistQuery query = QUERY_FACTORY.queryUserModerator(userName);
+        assertEquals(query.getVariables().get("user-name"), userName);
+        assertFalse(query.getTemplate().contains(userName));
+    }
+
+}
@@ -0,0 +1,114 @@
+package eu.icarus.momca.momcapi;
+
+import nu.xom.Builder;
+import nu.xom.Document;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.testng.Assert.*;
+
+public class IndexDefinitionTest {
+
+    private static final String LUCENE_XCONF = "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+            "<index xmlns:cei=\"http://www.monasterium.net/NS/cei\">" +
+            "<lucene><analyzer class=\"org.apache.lucene.analysis.standard.StandardAnalyzer\"/><text qname=\"cei:abstract\"/></lucene>" +
+            "<create path=\"//cei:idno/@id\" type=\"xs:string\"/>" +
+            "</index></collection>";
+    private static final String QNAME_XCONF = "<collection xmlns=\"http://exist-db.org/collection-config/1.0\">" +
+            "<index xmlns:a=\"http://www.w3.org/2005/Atom\" xmlns:cei=\"http://www.monasterium.net/NS/cei\">" +
+            "<create qname=\"a:id\" type=\"xs:string\"/>" +
+            "<range><create qname=\"@id\" type=\"xs:string\"/>" +
+            "<create qname=\"cei:date\"><field name=\"date-value\" match=\"@value\" type=\"xs:string\"/></create></range>" +
+            "</index></collection>";
+
+    @Test
+    public void testAddToCollectionConfiguration() throws Exception {
+
+        Document xconf = new Builder().build(LUCENE_XCONF, null);
+
+        assertTrue(IndexDefinition.addToCollectionConfiguration(xconf, EnumSet.of(IndexDefinition.ATOM_ID, IndexDefinition.CEI_IDNO_ID)));
+
+        String result = xconf.toXML();
+        assertTrue(result.contains("<text qname=\"cei:abstract\" />") || result.contains("<text qname=\"cei:abstract\"/>"), result);
+        assertTrue(result.contains("xmlns:atom=\"http://www.w3.org/2005/Atom\""), result);
+        assertTrue(result.contains("path=\"//atom:id\""), result);
+        assertEquals(result.split("path=\"//cei:idno/@id\"", -1).length, 2, result);
+
+    }
+
+    @Test
+    public void testAddToCollectionConfigurationWithAllIndexesDefined() throws Exception {
+
+        Document xconf = new Builder().build(LUCENE_XCONF, null);
+        String before = xconf.toXML();
+
+        assertFalse(IndexDefinition.addToCollectionConfiguration(xconf, EnumSet.of(IndexDefinition.CEI_IDNO_ID)));
+        assertEquals(xconf.toXML(), before);
+
+    }
+
+    @Test
+    public void testAddToCollectionConfigurationWithoutIndexElement() throws Exception {
+
+        Document xconf = new Builder().build("<collection xmlns=\"http://exist-db.org/collection-config/1.0\"/>", null);
+
+        assertTrue(IndexDefinition.addToCollectionConfiguration(xconf, EnumSet.of(IndexDefinition.XRX_EMAIL)));
+        assertTrue(xconf.toXML().contains("path=\"//xrx:email\""));
+
+    }
+
+    @Test
+    public void testAddToCollectionConfigurationWithQNameIndexes() throws Exception {
+
+        Document xconf = new Builder().build(QNAME_XCONF, null);
+
+        assertTrue(IndexDefinition.addToCollectionConfiguration(xconf, EnumSet.of(IndexDefinition.ATOM_ID, IndexDefinition.CEI_DATE_VALUE, IndexDefinition.CEI_IDNO_ID)));
+
+        String result = xconf.toXML();
+        assertFalse(result.contains("path=\"//atom:id\""), result);
+        assertFalse(result.contains("path=\"//cei:idno/@id\""), result);
+        // the field of the new range index doesn't index the date itself
+        assertTrue(result.contains("path=\"//cei:date/@value\""), result);
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddToCollectionConfigurationWithOtherDocument() throws Exception {
+        IndexDefinition.addToCollectionConfiguration(new Builder().build("<index/>", null), EnumSet.of(IndexDefinition.XRX_EMAIL));
+    }
+
+    @Test
+    public void testForCollection() throws Exception {
+        assertTrue(IndexDefinition.forCollection(MetadataCollectionName.METADATA_CHARTER_PUBLIC).contains(IndexDefinition.CEI_IDNO_ID));
+        assertFalse(IndexDefinition.forCollection(MetadataCollectionName.METADATA_CHARTER_PUBLIC).contains(IndexDefinition.XRX_EMAIL));
+        assertEquals(IndexDefinition.forCollection(MetadataCollectionName.XRX_USER), EnumSet.allOf(IndexDefinition.class));
+    }
+
+    @Test
+    public void testGetQName() throws Exception {
+        assertEquals(IndexDefinition.ATOM_ID.getQName(), "{http://www.w3.org/2005/Atom}id");
+        assertEquals(IndexDefinition.CEI_IDNO_ID.getQName(), "@id");
+    }
+
+    @Test
+    public void testIsDefinedBy() throws Exception {
+        assertTrue(IndexDefinition.CEI_IDNO_ID.isDefinedBy(Collections.singleton("//cei:idno/@id")));
+        assertTrue(IndexDefinition.CEI_IDNO_ID.isDefinedBy(Collections.singleton("@id")));
+        assertTrue(IndexDefinition.XRX_EMAIL.isDefinedBy(Collections.singleton("{http://www.monasterium.net/NS/xrx}email")));
+        assertFalse(IndexDefinition.XRX_EMAIL.isDefinedBy(Collections.singleton("xrx:email")));
+    }
+
+    @Test
+    public void testToCollectionConfiguration() throws Exception {
+
+        String xconf = IndexDefinition.toCollectionConfiguration(EnumSet.of(IndexDefinition.CEI_IDNO_ID));
+
+        assertTrue(xconf.startsWith("<collection xmlns=\"http://exist-db.org/collection-config/1.0\">"));
+        assertTrue(xconf.contains("xmlns:cei=\"http://www.monasterium.net/NS/cei\""));
+        assertTrue(xconf.contains("<create path=\"//cei:idno/@id\" type=\"xs:string\"/>"));
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.MetricsRecorder.Stage;
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.*;
+
+public class InstrumentationTest {
+
+    private Instrumentation instrumentation;
+    private FakeRecorder recorder;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        recorder = new FakeRecorder();
+        instrumentation = new Instrumentation(recorder);
+    }
+
+    @Test
+    public void testCall() throws Exception {
+
+        String result = instrumentation.call("getUser", () -> {
+            instrumentation.stage(Stage.RESOURCE_LOOKUP, () -> "handle");
+            instrumentation.stage(Stage.CONTENT_TRANSFER, () -> "<user/>", Instrumentation::utf8Length);
+            return instrumentation.stage(Stage.PARSE, () -> "user");
+        });
+
+        assertEquals(result, "user");
+        assertEquals(recorder.calls.size(), 1);
+        assertEquals(recorder.calls.get(0), "getUser:2:false");
+        assertEquals(recorder.stages.size(), 3);
+        assertTrue(recorder.stages.contains("CONTENT_TRANSFER:7:false"));
+
+    }
+
+    @Test
+    public void testCallWithFailure() throws Exception {
+
+        try {
+            instrumentation.call("getUser", () -> instrumentation.stage(Stage.QUERY, () -> {
+                throw new MomCAException("Failed to execute query.");
+            }));
+            fail("Exception expected.");
+        } catch (MomCAException expected) {
+            // expected
+        }
+
+        assertEquals(recorder.calls.get(0), "getUser:1:true");
+        assertEquals(recorder.stages.get(0), "QUERY:0:true");
+
+    }
+
+    @Test
+    public void testCallWithNestedCall() throws Exception {
+
+        instrumentation.call("storeUsers", () -> instrumentation.call("storeUsers", () -> instrumentation.stage(Stage.STORE, () -> "")));
+
+        assertEquals(recorder.calls.size(), 1);
+        assertEquals(recorder.calls.get(0), "storeUsers:1:false");
+
+    }
+
+    @Test
+    public void testCallWithWorkerThread() throws Exception {
+
+        instrumentation.call("exportCharters", () -> {
+
+            Thread worker = new Thread(() -> instrumentation.stage(Stage.CONTENT_TRANSFER, () -> ""));
+            worker.start();
+            worker.join();
+
+            return null;
+
+        });
+
+        assertEquals(recorder.calls.get(0), "exportCharters:1:false");
+
+    }
+
+    @Test
+    public void testInCurrentCall() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+
+            // the pool's thread is started by another call, so it inherits that call
+            instrumentation.call("getUser", () -> executor.submit(() -> "").get());
+
+            instrumentation.call("findCharterEverywhere", () ->
+                    executor.submit(instrumentation.inCurrentCall(() -> instrumentation.stage(Stage.CONTENT_TRANSFER, () -> ""))).get());
+
+            assertEquals(recorder.calls.get(1), "findCharterEverywhere:1:false");
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testStageWithoutCall() throws Exception {
+
+        instrumentation.stage(Stage.CONNECT, () -> "collection");
+
+        assertTrue(recorder.calls.isEmpty());
+        assertEquals(recorder.stages.get(0), "CONNECT:0:false");
+
+    }
+
+    @Test
+    public void testUtf8Length() throws Exception {
+        assertEquals(Instrumentation.utf8Length("abc"), 3);
+        assertEquals(Instrumentation.utf8Length("Ü"), 2);
+        assertEquals(Instrumentation.utf8Length("€"), 3);
+        assertEquals(Instrumentation.utf8Length("𝄞"), 4);
+        assertEquals(Instrumentation.utf8Length(null), 0);
+    }
+
+    private static class FakeRecorder implements MetricsRecorder {
+
+        private final List<String> calls = new ArrayList<>();
+        private final List<String> stages = new ArrayList<>();
+
+        @Override
+        public synchronized void recordCall(@NotNull String operation, long latencyNanos, int roundTrips, boolean failed) {
+            calls.add(operation + ":" + roundTrips + ":" + failed);
+        }
+
+        @Override
+        public synchronized void recordStage(@NotNull Stage stage, long latencyNanos, long bytes, boolean failed) {
+            stages.add(stage + ":" + bytes + ":" + failed);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.MetricsRecorder.Stage;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import static org.testng.Assert.*;
+
+public class JmxMetricsRecorderTest {
+
+    private MBeanServer mBeanServer;
+    private JmxMetricsRecorder recorder;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        mBeanServer = MBeanServerFactory.newMBeanServer();
+        recorder = new JmxMetricsRecorder("test", mBeanServer);
+    }
+
+    @Test
+    public void testRecordCall() throws Exception {
+
+        recorder.recordCall("getUser", 2_000_000, 3, false);
+        recorder.recordCall("getUser", 4_000_000, 1, true);
+
+        OperationMetrics metrics = recorder.getOperationMetrics("getUser").get();
+        assertEquals(metrics.getCount(), 2);
+        assertEquals(metrics.getErrorCount(), 1);
+        assertEquals(metrics.getRoundTrips(), 4);
+        assertEquals(metrics.getMeanRoundTrips(), 2.0);
+        assertEquals(metrics.getMaxMicros(), 4_000.0);
+
+        ObjectName objectName = new ObjectName("eu.icarus.momca.momcapi:type=MomCA,name=\"test\",operation=\"getUser\"");
+        assertEquals(mBeanServer.getAttribute(objectName, "Count"), 2L);
+        assertEquals(mBeanServer.getAttribute(objectName, "ErrorCount"), 1L);
+
+    }
+
+    @Test
+    public void testRecordStage() throws Exception {
+
+        recorder.recordStage(Stage.CONTENT_TRANSFER, 1_000, 512, false);
+        recorder.recordStage(Stage.PARSE, 1_000, 0, false);
+
+        assertEquals(recorder.getStageMetrics(Stage.CONTENT_TRANSFER).getBytesTransferred(), 512);
+        assertEquals(recorder.getStageMetrics(Stage.CONTENT_TRANSFER).getRoundTrips(), 1);
+        assertEquals(recorder.getStageMetrics(Stage.PARSE).getRoundTrips(), 0);
+
+        ObjectName objectName = new ObjectName("eu.icarus.momca.momcapi:type=MomCA,name=\"test\",stage=\"CONTENT_TRANSFER\"");
+        assertEquals(mBeanServer.getAttribute(objectName, "BytesTransferred"), 512L);
+
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        recorder.recordStage(Stage.QUERY, 1_000, 0, true);
+        recorder.getStageMetrics(Stage.QUERY).reset();
+
+        assertEquals(recorder.getStageMetrics(Stage.QUERY).getCount(), 0);
+        assertEquals(recorder.getStageMetrics(Stage.QUERY).getErrorCount(), 0);
+
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+
+        recorder.recordCall("getUser", 1_000, 1, false);
+        recorder.unregister();
+
+        assertTrue(mBeanServer.queryNames(new ObjectName("eu.icarus.momca.momcapi:*"), null).isEmpty());
+
+    }
+
+}
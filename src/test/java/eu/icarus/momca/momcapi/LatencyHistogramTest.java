@@ -0,0 +1,119 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testAdd() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+
+        LatencyHistogram other = new LatencyHistogram();
+        other.record(1_000);
+        other.record(2_000);
+
+        histogram.add(other);
+
+        assertEquals(histogram.getCount(), 3);
+        assertEquals(histogram.getMax(), 2_000);
+        assertEquals(histogram.getValueAtPercentile(0), 10);
+
+    }
+
+    @Test
+    public void testGetMean() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getMean(), 0.0);
+
+        histogram.record(100);
+        histogram.record(300);
+        assertEquals(histogram.getMean(), 200.0);
+
+    }
+
+    @Test
+    public void testGetValueAtPercentile() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        assertRelativeError(histogram.getValueAtPercentile(50), 500_000_000L);
+        assertRelativeError(histogram.getValueAtPercentile(99), 990_000_000L);
+        assertRelativeError(histogram.getValueAtPercentile(99.9), 999_000_000L);
+        assertEquals(histogram.getValueAtPercentile(100), 1_000_000_000L);
+
+    }
+
+    @Test
+    public void testGetValueAtPercentileWithoutValues() throws Exception {
+        assertEquals(new LatencyHistogram().getValueAtPercentile(99), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testGetValueAtPercentileWithInvalidPercentile() throws Exception {
+        new LatencyHistogram().getValueAtPercentile(101);
+    }
+
+    @Test
+    public void testRecordCorrected() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordCorrected(10, 0);
+        histogram.recordCorrected(10, 10);
+        histogram.recordCorrected(25, 10);
+
+        assertEquals(histogram.getCount(), 4);
+        assertEquals(histogram.getMax(), 25);
+        assertEquals(histogram.getMean(), 15.0);
+
+    }
+
+    @Test
+    public void testRecordWithExtremeValues() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(histogram.getValueAtPercentile(50), 0);
+        assertEquals(histogram.getValueAtPercentile(100), Long.MAX_VALUE);
+
+    }
+
+    @Test
+    public void testRecordWithSmallValues() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 32; value++) {
+            histogram.record(value);
+        }
+
+        // small values are recorded exactly
+        assertEquals(histogram.getValueAtPercentile(50), 15);
+
+    }
+
+    @Test
+    public void testReset() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMax(), 0);
+
+    }
+
+    private static void assertRelativeError(long actual, long expected) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, String.format("%d is not close to %d", actual, expected));
+    }
+
+}
@@ -0,0 +1,38 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class MomCAAsyncTest {
+
+    @Test
+    public void testNewVirtualThreadExecutor() throws Exception {
+
+        boolean supported;
+        try {
+            Thread.class.getMethod("isVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+
+        Optional<ExecutorService> executor = MomCAAsync.newVirtualThreadExecutor();
+        assertEquals(executor.isPresent(), supported);
+
+        if (executor.isPresent()) {
+            try {
+                Object virtual = executor.get().submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+                assertEquals(virtual, Boolean.TRUE);
+            } finally {
+                executor.get().shutdown();
+            }
+        }
+
+    }
+
+}
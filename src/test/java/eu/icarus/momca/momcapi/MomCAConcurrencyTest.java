@@ -0,0 +1,165 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.User;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * Shares one {@link MomCA} between hundreds of threads calling it against an embedded database.
+ */
+public class MomCAConcurrencyTest {
+
+    private static final int SCALING_CALLS = 400;
+    private final SyntheticCorpus corpus = new SyntheticCorpus(1000);
+    private EmbeddedExist exist;
+    private MomCA momCA;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+
+        exist = EmbeddedExist.start();
+        exist.load(corpus);
+        momCA = exist.connect();
+
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+
+        momCA.closeConnection();
+        exist.close();
+
+    }
+
+    /**
+     * Every thread checks that each call returned the documents it asked for, not those of another thread's call.
+     */
+    @Test
+    public void testConcurrentCalls() throws Exception {
+
+        long callsPerSecond = runCalls(200, 20);
+
+        QueryServicePool pool = momCA.getQueryServicePool();
+
+        assertTrue(callsPerSecond > 0);
+        assertTrue(pool.getOpenCount() <= pool.getSize());
+        assertEquals(pool.getInUseCount(), 0);
+
+    }
+
+    /**
+     * More threads than a single one have to get more calls done, as the pool runs queries in parallel. The result
+     * depends on the load of the machine, so the test is excluded from the default build.
+     */
+    @Test(groups = "performance")
+    public void testThroughputScaling() throws Exception {
+
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            return;
+        }
+
+        int threadCount = Runtime.getRuntime().availableProcessors();
+
+        // warms up the compiled query caches and the JIT
+        runCalls(threadCount, SCALING_CALLS / threadCount);
+
+        long singleThreaded = runCalls(1, SCALING_CALLS);
+        long multiThreaded = runCalls(threadCount, SCALING_CALLS / threadCount);
+
+        assertTrue(multiThreaded > singleThreaded, String.format("%d calls/s on one thread, %d calls/s on %d threads",
+                singleThreaded, multiThreaded, threadCount));
+
+    }
+
+    private void call(Random random) throws Exception {
+
+        switch (random.nextInt(4)) {
+
+            case 0: {
+                CharterAtomId atomId = corpus.getAtomId(CharterStatus.PUBLIC, random.nextInt(corpus.getCharterCount(CharterStatus.PUBLIC)));
+                List<Charter> charters = momCA.getPublishedCharters(atomId);
+                assertEquals(charters.size(), 1);
+                assertEquals(charters.get(0).getAtomId(), atomId);
+                break;
+            }
+            case 1: {
+                int index = random.nextInt(corpus.getCharterCount(CharterStatus.PRIVATE));
+                CharterAtomId atomId = corpus.getAtomId(CharterStatus.PRIVATE, index);
+                List<Charter> charters = momCA.getPrivateCharters(atomId, corpus.getPrivateCharterOwner(index));
+                assertEquals(charters.size(), 1);
+                assertEquals(charters.get(0).getAtomId(), atomId);
+                break;
+            }
+            case 2: {
+                int index = random.nextInt(corpus.getUserCount());
+                Optional<User> user = momCA.getUser(corpus.getUserId(index));
+                assertTrue(user.isPresent());
+                assertEquals(user.get().listSavedCharterIds(), corpus.getSavedCharters(index));
+                break;
+            }
+            default:
+                assertEquals(momCA.listUsers().size(), corpus.getUserCount());
+                break;
+
+        }
+
+    }
+
+    /**
+     * @return The calls per second of all threads.
+     */
+    private long runCalls(int threadCount, int callsPerThread) throws Exception {
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        try {
+
+            List<Future<?>> workers = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+
+                Random random = new Random(i);
+                workers.add(executor.submit(() -> {
+
+                    start.await();
+                    for (int call = 0; call < callsPerThread; call++) {
+                        call(random);
+                    }
+                    return null;
+
+                }));
+
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+
+            for (Future<?> worker : workers) {
+                worker.get(5, TimeUnit.MINUTES);
+            }
+
+            return threadCount * callsPerThread * TimeUnit.SECONDS.toNanos(1) / Math.max(1, System.nanoTime() - startNanos);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+}
@@ -16,6 +16,8 @@ import java.net.URL;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.testng.Assert.*;
 
@@ -150,11 +152,31 @@ public class MomCATest {
         assertTrue(db.listUsers().size() == 3);
     }
 
+    @Test
+    public void testStreamPublishedCharter() throws Exception {
+
+        CharterAtomId id = new CharterAtomId("CH-KAE", "Urkunden", "KAE_Urkunde_Nr_1");
+        try (Stream<Charter> charters = db.streamPublishedCharters(id)) {
+            List<Charter> charterList = charters.collect(Collectors.toList());
+            assertEquals(charterList.size(), 1);
+            assertEquals(charterList.get(0).getAtomId(), id);
+        }
+
+    }
+
+    @Test
+    public void testStreamPublishedCharterNotExisting() throws Exception {
+        CharterAtomId id = new CharterAtomId("CH-KA", "Urkunden", "NotExisting");
+        try (Stream<Charter> charters = db.streamPublishedCharters(id)) {
+            assertFalse(charters.findAny().isPresent());
+        }
+    }
+
     @Test
     public void testQueryDatabase() throws Exception {
 
         Class<?> cl = db.getClass();
-        Method method = cl.getDeclaredMethod("queryDatabase", String.class);
+        Method method = cl.getDeclaredMethod("queryDatabase", ExistQuery.class);
         method.setAccessible(true);
         List<String> queryResults = (List<String>) method.invoke(db, QUERY_FACTORY.queryUserModerator("user1.testuser@dev.monasterium.net"));
         assertEquals(queryResults.get(0), "admin");
@@ -0,0 +1,86 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+
+public class PageRequestTest {
+
+    private static final String LAST_URI = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden/KAE_Urkunde_Nr_1.cei.xml";
+    private static final String QUERY_KEY = "/db/mom-data/metadata.charter.public/CH-KAE/Urkunden";
+
+    @Test
+    public void testAfter() throws Exception {
+
+        String cursor = PageRequest.createCursor(QUERY_KEY, LAST_URI);
+        PageRequest request = PageRequest.after(cursor, 20);
+
+        assertEquals(request.getCursor(), Optional.of(cursor));
+        assertEquals(request.getLimit(), 20);
+        assertEquals(request.getLastUri(QUERY_KEY), Optional.of(LAST_URI));
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAfterWithCursorOfOtherQuery() throws Exception {
+        PageRequest.after(PageRequest.createCursor(QUERY_KEY, LAST_URI), 20).getLastUri("/db/mom-data/metadata.charter.public/CH-KAE");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAfterWithMalformedCursor() throws Exception {
+        PageRequest.after("40", 20).getLastUri(QUERY_KEY);
+    }
+
+    @Test
+    public void testCreateCursorIsOpaque() throws Exception {
+
+        String cursor = PageRequest.createCursor(QUERY_KEY, LAST_URI);
+
+        assertFalse(cursor.contains("Urkunde"));
+        assertTrue(cursor.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '-' || c == '_'), cursor);
+
+    }
+
+    @Test
+    public void testFirst() throws Exception {
+
+        PageRequest request = PageRequest.first(20);
+
+        assertFalse(request.getCursor().isPresent());
+        assertEquals(request.getLimit(), 20);
+        assertFalse(request.getLastUri(QUERY_KEY).isPresent());
+        assertFalse(request.isTotalCountRequested());
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFirstWithZeroLimit() throws Exception {
+        PageRequest.first(0);
+    }
+
+    @Test
+    public void testPage() throws Exception {
+
+        Page<String> page = new Page<>(Arrays.asList("a", "b"), "cursor", null);
+
+        assertEquals(page.getItems(), Arrays.asList("a", "b"));
+        assertEquals(page.getNextCursor(), Optional.of("cursor"));
+        assertFalse(page.getTotalCount().isPresent());
+        assertTrue(page.hasNext());
+
+    }
+
+    @Test
+    public void testWithTotalCount() throws Exception {
+
+        PageRequest request = PageRequest.first(20).withTotalCount();
+
+        assertEquals(request.getLimit(), 20);
+        assertTrue(request.isTotalCountRequested());
+
+    }
+
+}
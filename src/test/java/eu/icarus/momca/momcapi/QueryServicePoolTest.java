@@ -0,0 +1,234 @@
+package eu.icarus.momca.momcapi;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xmldb.api.base.Collection;
+import org.xmldb.api.base.ErrorCodes;
+import org.xmldb.api.base.XMLDBException;
+import org.xmldb.api.modules.XQueryService;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class QueryServicePoolTest {
+
+    private static final int SIZE = 2;
+    private Set<Collection> closedHandles;
+    private AtomicBoolean failOpening;
+    private AtomicInteger openCount;
+    private QueryServicePool pool;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        closedHandles = ConcurrentHashMap.newKeySet();
+        failOpening = new AtomicBoolean(false);
+        openCount = new AtomicInteger();
+
+        pool = new QueryServicePool(SIZE, () -> {
+            if (failOpening.get()) {
+                throw new XMLDBException(ErrorCodes.VENDOR_ERROR, "Connection refused");
+            }
+            openCount.incrementAndGet();
+            return createCollection();
+        });
+
+    }
+
+    @Test
+    public void testAcquire() throws Exception {
+
+        QueryServicePool.PooledQueryService service = pool.acquire();
+
+        assertNotNull(service.getService());
+        assertEquals(pool.getInUseCount(), 1);
+        assertEquals(pool.getOpenCount(), 1);
+        assertEquals(pool.getCompiledQueryCaches().size(), 1);
+
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAcquireFromClosedPool() throws Exception {
+        pool.close();
+        pool.acquire();
+    }
+
+    @Test
+    public void testAcquireReusesReleasedService() throws Exception {
+
+        QueryServicePool.PooledQueryService first = pool.acquire();
+        pool.release(first);
+        QueryServicePool.PooledQueryService second = pool.acquire();
+
+        assertSame(second, first);
+        assertEquals(openCount.get(), 1);
+        assertEquals(pool.getAcquireCount(), 2);
+        assertEquals(pool.getContendedCount(), 0);
+
+    }
+
+    @Test
+    public void testAcquireWaitsForReleasedService() throws Exception {
+
+        QueryServicePool.PooledQueryService first = pool.acquire();
+        pool.acquire();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+
+            Future<QueryServicePool.PooledQueryService> waiting = executor.submit(pool::acquire);
+
+            while (pool.getWaitingCount() == 0) {
+                Thread.sleep(1);
+            }
+            pool.release(first);
+
+            assertSame(waiting.get(5, TimeUnit.SECONDS), first);
+            assertEquals(pool.getContendedCount(), 1);
+            assertEquals(openCount.get(), SIZE);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void testAcquireWithFailingConnection() throws Exception {
+
+        failOpening.set(true);
+
+        try {
+            pool.acquire();
+            fail("Expected the connection to fail.");
+        } catch (XMLDBException expected) {
+            // the permit of the failed service has to be given back
+        }
+
+        failOpening.set(false);
+        pool.acquire();
+        pool.acquire();
+
+        assertEquals(pool.getInUseCount(), SIZE);
+
+    }
+
+    @Test
+    public void testClose() throws Exception {
+
+        QueryServicePool.PooledQueryService idle = pool.acquire();
+        QueryServicePool.PooledQueryService inUse = pool.acquire();
+        pool.release(idle);
+
+        pool.close();
+        assertEquals(closedHandles.size(), 1);
+
+        pool.release(inUse);
+        assertEquals(closedHandles.size(), 2);
+        assertEquals(pool.getOpenCount(), 0);
+        assertEquals(pool.getInUseCount(), 0);
+
+    }
+
+    /**
+     * Hundreds of threads share the pool; no service may ever be used by two threads at the same time.
+     */
+    @Test
+    public void testConcurrentUse() throws Exception {
+
+        int threadCount = 200;
+        int callsPerThread = 50;
+
+        Set<QueryServicePool.PooledQueryService> inUse = ConcurrentHashMap.newKeySet();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+
+            List<Future<?>> workers = new ArrayList<>(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+
+                workers.add(executor.submit(() -> {
+
+                    start.await();
+
+                    for (int call = 0; call < callsPerThread; call++) {
+
+                        QueryServicePool.PooledQueryService service = pool.acquire();
+                        if (!inUse.add(service)) {
+                            overlaps.incrementAndGet();
+                        }
+
+                        Thread.yield();
+
+                        inUse.remove(service);
+                        pool.release(service);
+
+                    }
+
+                    return null;
+
+                }));
+
+            }
+
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(overlaps.get(), 0);
+        assertEquals(pool.getAcquireCount(), threadCount * callsPerThread);
+        assertEquals(pool.getWaitTimes().getCount(), threadCount * callsPerThread);
+        assertTrue(pool.getOpenCount() <= SIZE);
+        assertEquals(pool.getInUseCount(), 0);
+
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConstructorWithInvalidSize() throws Exception {
+        new QueryServicePool(0, this::createCollection);
+    }
+
+    private Collection createCollection() {
+
+        XQueryService service = (XQueryService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{XQueryService.class}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+
+        return (Collection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Collection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    closedHandles.add((Collection) proxy);
+                    return null;
+                case "getService":
+                    return service;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+    }
+
+}
@@ -0,0 +1,309 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import eu.icarus.momca.momcapi.resource.User;
+import nu.xom.ParsingException;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The layout of a synthetic MOM-CA database with charters of all statuses and users, generated on the fly, so corpora
+ * from a thousand up to millions of charters can be created without keeping them in memory.
+ * <ul>
+ * <li>The published charters belong to fonds of archives, every {@value #COLLECTION_SHARE}th charter to a
+ * collection.</li>
+ * <li>Every {@value #IMPORT_SHARE}th published charter was imported as well.</li>
+ * <li>Every user saved {@value #SAVED_PER_USER} published charters, owns {@value #PRIVATE_PER_USER} private charters
+ * and bookmarked {@value #BOOKMARKS_PER_USER} published charters. The first user is everybody's moderator.</li>
+ * </ul>
+ * The documents depend only on the seed and the sizes, so the same corpus can be generated again, e.g. to look up the
+ * atom ids of the charters stored in the database.
+ */
+public class SyntheticCorpus {
+
+    public static final int DEFAULT_PARAGRAPHS = 10;
+    private static final int BOOKMARKS_PER_USER = 3;
+    private static final int COLLECTION_SHARE = 10;
+    private static final int IMPORT_SHARE = 10;
+    private static final int PRIVATE_PER_USER = 2;
+    private static final String ROOT_COLLECTION = "/db/mom-data";
+    private static final int SAVED_PER_USER = 2;
+    private final int charterCount;
+    private final int paragraphs;
+    private final long seed;
+    private final int userCount;
+
+    /**
+     * Creates a corpus with one user per hundred published charters, but at least ten users.
+     *
+     * @param charterCount The number of published charters.
+     */
+    public SyntheticCorpus(int charterCount) {
+        this(charterCount, Math.max(10, charterCount / 100), DEFAULT_PARAGRAPHS, CorpusGenerator.DEFAULT_SEED);
+    }
+
+    /**
+     * @param charterCount The number of published charters.
+     * @param paragraphs   The size of the charters, see {@link CorpusGenerator}.
+     */
+    public SyntheticCorpus(int charterCount, int userCount, int paragraphs, long seed) {
+
+        if (charterCount < 1 || userCount < 1) {
+            throw new IllegalArgumentException("A corpus needs at least one charter and one user.");
+        }
+
+        this.charterCount = charterCount;
+        this.userCount = userCount;
+        this.paragraphs = paragraphs;
+        this.seed = seed;
+
+    }
+
+    /**
+     * Writes the corpus in the collection layout of the database to a directory, e.g.
+     * {@code metadata.charter.public/ARCHIVE-0000/Fond_00/Charter_0000000.cei.xml}.
+     * <p>
+     * Usage: {@code SyntheticCorpus <directory> [charterCount]}
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticCorpus <directory> [charterCount]");
+            System.exit(1);
+        }
+
+        int charterCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        new SyntheticCorpus(charterCount).write(Paths.get(args[0]));
+
+    }
+
+    /**
+     * @param index The number of the charter among the charters of the status, starting with {@code 0}.
+     */
+    @NotNull
+    public CharterAtomId getAtomId(@NotNull CharterStatus status, int index) {
+
+        CharterAtomId atomId;
+
+        switch (status) {
+
+            case IMPORTED:
+                atomId = getAtomId(CharterStatus.PUBLIC, index * IMPORT_SHARE);
+                break;
+            case PRIVATE:
+                atomId = new CharterAtomId(String.format("private-%05d", index / PRIVATE_PER_USER), String.format("Private_%07d", index));
+                break;
+            case SAVED:
+                // spread evenly over the published charters, so every saved charter is a different one
+                atomId = getAtomId(CharterStatus.PUBLIC, index * (charterCount / getCharterCount(CharterStatus.SAVED)));
+                break;
+            default:
+                atomId = index % COLLECTION_SHARE == COLLECTION_SHARE - 1 ? CorpusGenerator.createCollectionAtomId(index) : CorpusGenerator.createAtomId(index);
+                break;
+
+        }
+
+        return atomId;
+
+    }
+
+    @NotNull
+    public List<CharterAtomId> getBookmarkedCharters(int userIndex) {
+
+        List<CharterAtomId> atomIds = new ArrayList<>(BOOKMARKS_PER_USER);
+
+        for (int i = 0; i < BOOKMARKS_PER_USER; i++) {
+            atomIds.add(getAtomId(CharterStatus.PUBLIC, (int) ((userIndex * 31L + i * 997L) % charterCount)));
+        }
+
+        return atomIds;
+
+    }
+
+    public int getCharterCount(@NotNull CharterStatus status) {
+
+        int count;
+
+        switch (status) {
+
+            case IMPORTED:
+                count = (charterCount + IMPORT_SHARE - 1) / IMPORT_SHARE;
+                break;
+            case PRIVATE:
+                count = userCount * PRIVATE_PER_USER;
+                break;
+            case SAVED:
+                count = Math.min(userCount * SAVED_PER_USER, charterCount);
+                break;
+            default:
+                count = charterCount;
+                break;
+
+        }
+
+        return count;
+
+    }
+
+    /**
+     * @return The name of the user owning the private charter.
+     */
+    @NotNull
+    public String getPrivateCharterOwner(int index) {
+        return getUserId(index / PRIVATE_PER_USER);
+    }
+
+    @NotNull
+    public List<CharterAtomId> getSavedCharters(int userIndex) {
+
+        List<CharterAtomId> atomIds = new ArrayList<>(SAVED_PER_USER);
+
+        for (int i = userIndex * SAVED_PER_USER; i < (userIndex + 1) * SAVED_PER_USER && i < getCharterCount(CharterStatus.SAVED); i++) {
+            atomIds.add(getAtomId(CharterStatus.SAVED, i));
+        }
+
+        return atomIds;
+
+    }
+
+    public int getTotalCharterCount() {
+        return Stream.of(CharterStatus.values()).mapToInt(this::getCharterCount).sum();
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    @NotNull
+    public String getUserId(int index) {
+        return CorpusGenerator.createUserId(index);
+    }
+
+    /**
+     * Generates the charters of the status one by one while the stream is consumed. The charters are created lazily,
+     * so generating them doesn't parse them.
+     */
+    @NotNull
+    public Stream<Charter> streamCharters(@NotNull CharterStatus status) {
+
+        CorpusGenerator generator = new CorpusGenerator(seed + status.ordinal());
+
+        return IntStream.range(0, getCharterCount(status)).mapToObj(index -> {
+
+            CharterAtomId atomId = getAtomId(status, index);
+            String content = generator.createCharter(atomId, paragraphs);
+            ExistResource resource = ExistResource.createLazily(atomId.getCharterId() + ".cei.xml", getParentUri(status, index, atomId), content);
+
+            return Charter.createFromHeader(resource);
+
+        });
+
+    }
+
+    /**
+     * Generates the users one by one while the stream is consumed.
+     */
+    @NotNull
+    public Stream<User> streamUsers() {
+
+        CorpusGenerator generator = new CorpusGenerator(seed + CharterStatus.values().length);
+
+        return IntStream.range(0, userCount).mapToObj(index -> {
+
+            String userId = getUserId(index);
+            String content = generator.createUser(userId, getUserId(0), getSavedCharters(index), getBookmarkedCharters(index));
+
+            try {
+                return new User(new ExistResource(userId + ".xml", ROOT_COLLECTION + "/xrx.user", content));
+            } catch (ParsingException | IOException e) {
+                throw new IllegalStateException(String.format("Generated user '%s' is not well-formed.", userId), e);
+            }
+
+        });
+
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticCorpus{" +
+                "charterCount=" + charterCount +
+                ", userCount=" + userCount +
+                ", paragraphs=" + paragraphs +
+                ", seed=" + seed +
+                '}';
+    }
+
+    /**
+     * Writes the corpus in the collection layout of the database to a directory.
+     */
+    public void write(@NotNull Path directory) throws IOException {
+
+        try {
+
+            for (CharterStatus status : CharterStatus.values()) {
+                try (Stream<Charter> charters = streamCharters(status)) {
+                    Iterator<Charter> iterator = charters.iterator();
+                    while (iterator.hasNext()) {
+                        writeResource(directory, iterator.next());
+                    }
+                }
+            }
+
+            try (Stream<User> users = streamUsers()) {
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    writeResource(directory, iterator.next());
+                }
+            }
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+    }
+
+    @NotNull
+    private String getParentUri(@NotNull CharterStatus status, int index, @NotNull CharterAtomId atomId) {
+
+        String parentUri;
+
+        switch (status) {
+
+            case PRIVATE:
+                parentUri = String.join("/", ROOT_COLLECTION, status.getParentCollection(), getPrivateCharterOwner(index), "metadata.charter");
+                break;
+            case SAVED:
+                parentUri = String.join("/", ROOT_COLLECTION, status.getParentCollection());
+                break;
+            default:
+                parentUri = String.join("/", ROOT_COLLECTION, status.getParentCollection(), atomId.getBasePath());
+                break;
+
+        }
+
+        return parentUri;
+
+    }
+
+    private void writeResource(@NotNull Path directory, @NotNull ExistResource resource) throws IOException {
+
+        Path parent = Files.createDirectories(directory.resolve(resource.getParentUri().substring(ROOT_COLLECTION.length() + 1)));
+        Files.write(parent.resolve(resource.getName()), resource.getXmlAsString().getBytes(StandardCharsets.UTF_8));
+
+    }
+
+}
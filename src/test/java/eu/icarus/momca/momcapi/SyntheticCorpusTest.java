@@ -0,0 +1,108 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.atomid.CharterAtomId;
+import eu.icarus.momca.momcapi.resource.Charter;
+import eu.icarus.momca.momcapi.resource.CharterStatus;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+public class SyntheticCorpusTest {
+
+    private final SyntheticCorpus corpus = new SyntheticCorpus(1000);
+
+    @Test
+    public void testGetAtomIdOfPrivateCharter() throws Exception {
+
+        CharterAtomId atomId = corpus.getAtomId(CharterStatus.PRIVATE, 3);
+
+        assertEquals(atomId.getCharterId(), "Private_0000003");
+        assertEquals(corpus.getPrivateCharterOwner(3), corpus.getUserId(1));
+
+    }
+
+    @Test
+    public void testGetAtomIdOfPublishedCharter() throws Exception {
+
+        assertEquals(corpus.getAtomId(CharterStatus.PUBLIC, 0).getAtomId(), "tag:www.monasterium.net,2011:/charter/ARCHIVE-0000/Fond_00/Charter_0000000");
+        assertEquals(corpus.getAtomId(CharterStatus.PUBLIC, 9).getAtomId(), "tag:www.monasterium.net,2011:/charter/COLLECTION-0000/Charter_0000009");
+
+    }
+
+    @Test
+    public void testGetAtomIdsAreUnique() throws Exception {
+
+        for (CharterStatus status : CharterStatus.values()) {
+
+            Set<String> atomIds = IntStream.range(0, corpus.getCharterCount(status))
+                    .mapToObj(index -> corpus.getAtomId(status, index).getAtomId())
+                    .collect(Collectors.toSet());
+
+            assertEquals(atomIds.size(), corpus.getCharterCount(status), status.toString());
+
+        }
+
+    }
+
+    @Test
+    public void testGetCharterCount() throws Exception {
+
+        assertEquals(corpus.getUserCount(), 10);
+        assertEquals(corpus.getCharterCount(CharterStatus.PUBLIC), 1000);
+        assertEquals(corpus.getCharterCount(CharterStatus.IMPORTED), 100);
+        assertEquals(corpus.getCharterCount(CharterStatus.SAVED), 20);
+        assertEquals(corpus.getCharterCount(CharterStatus.PRIVATE), 20);
+        assertEquals(corpus.getTotalCharterCount(), 1140);
+
+    }
+
+    @Test
+    public void testGetCharterCountOfLargeCorpus() throws Exception {
+
+        SyntheticCorpus largeCorpus = new SyntheticCorpus(1000000);
+
+        assertEquals(largeCorpus.getUserCount(), 10000);
+        assertEquals(largeCorpus.getCharterCount(CharterStatus.SAVED), 20000);
+        assertEquals(largeCorpus.getAtomId(CharterStatus.PUBLIC, 999998).getAtomId(), "tag:www.monasterium.net,2011:/charter/ARCHIVE-0099/Fond_09/Charter_0999998");
+
+    }
+
+    @Test
+    public void testGetSavedCharters() throws Exception {
+
+        List<CharterAtomId> savedCharters = corpus.getSavedCharters(1);
+
+        assertEquals(savedCharters.size(), 2);
+        assertEquals(savedCharters.get(0), corpus.getAtomId(CharterStatus.SAVED, 2));
+        assertEquals(savedCharters.get(1), corpus.getAtomId(CharterStatus.SAVED, 3));
+
+    }
+
+    @Test
+    public void testStreamCharters() throws Exception {
+
+        List<Charter> charters = corpus.streamCharters(CharterStatus.PRIVATE).collect(Collectors.toList());
+
+        assertEquals(charters.size(), 20);
+        assertEquals(charters.get(3).getParentUri(), "/db/mom-data/xrx.user/user00001@example.org/metadata.charter");
+        assertEquals(charters.get(3).getName(), "Private_0000003.cei.xml");
+        assertEquals(charters.get(3).getStatus(), CharterStatus.PRIVATE);
+
+    }
+
+    @Test
+    public void testStreamChartersIsDeterministic() throws Exception {
+
+        List<String> first = corpus.streamCharters(CharterStatus.PUBLIC).limit(5).map(Charter::getXmlAsString).collect(Collectors.toList());
+        List<String> second = new SyntheticCorpus(1000).streamCharters(CharterStatus.PUBLIC).limit(5).map(Charter::getXmlAsString).collect(Collectors.toList());
+
+        assertEquals(first, second);
+
+    }
+
+}
@@ -0,0 +1,174 @@
+package eu.icarus.momca.momcapi;
+
+import eu.icarus.momca.momcapi.exception.MomCAException;
+import eu.icarus.momca.momcapi.resource.ExistResource;
+import eu.icarus.momca.momcapi.resource.User;
+import org.jetbrains.annotations.NotNull;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+
+public class UserDirectoryTest {
+
+    private static final String PARENT_URI = "/db/mom-data/xrx.user";
+    private static final String USER_NAME = "admin";
+    private static final String XML_CONTENT = "<xrx:user xmlns:xrx=\"http://www.monasterium.net/NS/xrx\"> <xrx:email>admin</xrx:email> <xrx:moderator>moderator</xrx:moderator> </xrx:user>";
+    private UserDirectory directory;
+    private FakeUserSource source;
+    private long time;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        time = 0;
+        source = new FakeUserSource();
+        source.lastModified.put(USER_NAME, 1L);
+        directory = new UserDirectory(source, () -> time);
+        directory.setTimeToLive(Duration.ofMillis(100));
+    }
+
+    @Test
+    public void testGetModerator() throws Exception {
+        assertEquals(directory.getModerator(USER_NAME), Optional.of("moderator"));
+    }
+
+    @Test
+    public void testGetUser() throws Exception {
+
+        assertEquals(directory.getUser(USER_NAME).get().getUserId(), USER_NAME);
+        assertEquals(directory.getUser(USER_NAME).get().getUserId(), USER_NAME);
+
+        assertEquals(source.loadCount, 1);
+        assertEquals(directory.getHitCount(), 1);
+        assertEquals(directory.getMissCount(), 1);
+
+    }
+
+    @Test
+    public void testGetUserAfterModification() throws Exception {
+
+        directory.getUser(USER_NAME);
+        source.lastModified.put(USER_NAME, 2L);
+        time = 200;
+        directory.getUser(USER_NAME);
+
+        assertEquals(source.loadCount, 2);
+        assertEquals(directory.getStaleCount(), 1);
+
+    }
+
+    @Test
+    public void testGetUserAfterRemoval() throws Exception {
+
+        directory.getUser(USER_NAME);
+        source.lastModified.remove(USER_NAME);
+        time = 200;
+
+        assertFalse(directory.getUser(USER_NAME).isPresent());
+        assertEquals(directory.getSize(), 0);
+
+    }
+
+    @Test
+    public void testGetUserWithExpiredEntry() throws Exception {
+
+        directory.getUser(USER_NAME);
+        time = 200;
+        directory.getUser(USER_NAME);
+
+        assertEquals(source.loadCount, 1);
+        assertEquals(directory.getRevalidationCount(), 1);
+        assertEquals(directory.getHitRatio(), 0.5, 0.001);
+
+    }
+
+    @Test
+    public void testGetUserWithNotExistingUser() throws Exception {
+        assertFalse(directory.getUser("notExisting").isPresent());
+    }
+
+    @Test
+    public void testListUsers() throws Exception {
+
+        directory.listUsers();
+        directory.listUsers();
+        assertEquals(source.listCount, 1);
+
+        time = 200;
+        directory.listUsers();
+        assertEquals(source.listCount, 2);
+
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+
+        assertEquals(directory.preload(), 1);
+        directory.getUser(USER_NAME);
+
+        assertEquals(source.loadCount, 0);
+        assertEquals(directory.getHitCount(), 1);
+
+    }
+
+    private class FakeUserSource implements UserDirectory.UserSource {
+
+        private final Map<String, Long> lastModified = new HashMap<>();
+        private int listCount = 0;
+        private int loadCount = 0;
+
+        @NotNull
+        @Override
+        public Optional<Long> getLastModified(@NotNull String userName) {
+            return Optional.ofNullable(lastModified.get(userName));
+        }
+
+        @NotNull
+        @Override
+        public List<String> listUserNames() {
+            listCount++;
+            return new ArrayList<>(lastModified.keySet());
+        }
+
+        @NotNull
+        @Override
+        public Optional<UserDirectory.Entry> load(@NotNull String userName) throws MomCAException {
+
+            if (!lastModified.containsKey(userName)) {
+                return Optional.empty();
+            }
+
+            loadCount++;
+            return Optional.of(createEntry(userName));
+
+        }
+
+        @NotNull
+        @Override
+        public Map<String, UserDirectory.Entry> loadAll() throws MomCAException {
+            Map<String, UserDirectory.Entry> entries = new HashMap<>();
+            for (String userName : lastModified.keySet()) {
+                entries.put(userName, createEntry(userName));
+            }
+            return entries;
+        }
+
+        private UserDirectory.Entry createEntry(String userName) throws MomCAException {
+            try {
+                User user = new User(new ExistResource(userName + ".xml", PARENT_URI, XML_CONTENT));
+                return new UserDirectory.Entry(user, lastModified.get(userName));
+            } catch (Exception e) {
+                throw new MomCAException("Failed to create user.", e);
+            }
+        }
+
+    }
+
+}
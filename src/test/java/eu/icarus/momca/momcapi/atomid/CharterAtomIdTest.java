@@ -38,6 +38,31 @@ public class CharterAtomIdTest {
         assertEquals(id.getAtomId(), FOND_CHARTER_ATOM_ID);
     }
 
+    @Test
+    public void testConstructorWithTrailingSlash() throws Exception {
+        CharterAtomId id = new CharterAtomId(FOND_CHARTER_ATOM_ID + "/");
+        assertEquals(id.getCharterId(), FOND_CHARTER_ID);
+        assertEquals(id.getBasePath(), BASE_PATH);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConstructorWithTooManyTokens() throws Exception {
+        new CharterAtomId(FOND_CHARTER_ATOM_ID + "/additional");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConstructorWithWrongType() throws Exception {
+        new CharterAtomId("tag:www.monasterium.net,2011:/fond/RS-IAGNS/Charters");
+    }
+
+    @Test
+    public void testEquals() throws Exception {
+        CharterAtomId parsed = new CharterAtomId(FOND_CHARTER_ATOM_ID);
+        CharterAtomId created = new CharterAtomId(ARCHIVE_ID, FOND_ID, FOND_CHARTER_ID);
+        assertEquals(parsed, created);
+        assertEquals(parsed.hashCode(), created.hashCode());
+    }
+
     @Test
     public void testGetArchiveId() throws Exception {
         CharterAtomId id = new CharterAtomId(FOND_CHARTER_ATOM_ID);
@@ -68,6 +93,16 @@ public class CharterAtomIdTest {
         assertEquals(id.getFondId(), Optional.of(FOND_ID));
     }
 
+    @Test
+    public void testIntern() throws Exception {
+
+        CharterAtomId first = new CharterAtomId(COLLECTION_CHARTER_ATOM_ID).intern();
+        CharterAtomId second = new CharterAtomId(COLLECTION_ID, COLLECTION_CHARTER_ID).intern();
+
+        assertSame(first, second);
+
+    }
+
     @Test
     public void testIsPartOfArchiveFond() throws Exception {
         CharterAtomId id = new CharterAtomId(FOND_CHARTER_ATOM_ID);
@@ -0,0 +1,65 @@
+package eu.icarus.momca.momcapi.atomid;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class WeakInternerTest {
+
+    private static final String VALUE = "tag:www.monasterium.net,2011:/charter/MedDocBulgEmp/1192-02-02_sic%21_Ioan_Kaliman";
+
+    @Test
+    public void testIntern() throws Exception {
+
+        WeakInterner<String> interner = new WeakInterner<>();
+        String first = new String(VALUE);
+        String second = new String(VALUE);
+
+        assertSame(interner.intern(first), first);
+        assertSame(interner.intern(second), first);
+        assertEquals(interner.size(), 1);
+
+    }
+
+    @Test
+    public void testInternConcurrently() throws Exception {
+
+        WeakInterner<String> interner = new WeakInterner<>();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+
+            List<Future<String>> results = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                Callable<String> task = () -> {
+                    assertTrue(start.await(10, TimeUnit.SECONDS));
+                    return interner.intern(new String(VALUE));
+                };
+                results.add(executor.submit(task));
+            }
+
+            start.countDown();
+
+            String interned = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<String> result : results) {
+                assertSame(result.get(10, TimeUnit.SECONDS), interned);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+}
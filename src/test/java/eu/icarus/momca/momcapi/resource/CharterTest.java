@@ -5,6 +5,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 
 /**
  * Created by daniel on 27.06.2015.
@@ -37,6 +38,28 @@ public class CharterTest {
         assertEquals(charter.getAtomId(), CHARTER_ATOM_ID);
     }
 
+    @Test
+    public void testCreateFromHeader() throws Exception {
+
+        Charter charter = Charter.createFromHeader(ExistResource.createLazily(NAME, PARENT_URI, XML_CONTENT));
+
+        assertEquals(charter.getAtomId(), CHARTER_ATOM_ID);
+        assertEquals(charter.getStatus(), STATUS);
+        assertFalse(charter.isParsed());
+
+    }
+
+    @Test
+    public void testCreateFromHeaderWithParsedResource() throws Exception {
+        Charter charter = Charter.createFromHeader(resource);
+        assertEquals(charter.getAtomId(), CHARTER_ATOM_ID);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateFromHeaderWithWrongResource() throws Exception {
+        Charter.createFromHeader(ExistResource.createLazily(NAME, PARENT_URI, WRONG_XML_CONTENT));
+    }
+
     @Test
     public void testGetAtomId() throws Exception {
         Charter charter = new Charter(resource);
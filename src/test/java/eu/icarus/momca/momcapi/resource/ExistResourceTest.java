@@ -1,9 +1,10 @@
 package eu.icarus.momca.momcapi.resource;
 
 import nu.xom.Builder;
+import nu.xom.Element;
 import org.testng.annotations.Test;
 
-import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.*;
 
 /**
  * Created by daniel on 27.06.2015.
@@ -30,6 +31,28 @@ public class ExistResourceTest {
         assertEquals(res.getUri(), URI);
     }
 
+    @Test
+    public void testCreateLazily() throws Exception {
+        ExistResource res = ExistResource.createLazily(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
+        assertEquals(res.getUri(), URI);
+        assertFalse(res.isParsed());
+    }
+
+    @Test
+    public void testCreateLazilyGetXmlAsDocument() throws Exception {
+        Builder parser = new Builder();
+        String origXml = parser.build(XML_CONTENT_WITH_NAMESPACE, null).toXML();
+        ExistResource res = ExistResource.createLazily(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
+        assertEquals(res.getXmlAsDocument().toXML(), origXml);
+        assertTrue(res.isParsed());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCreateLazilyWithMalformedXml() throws Exception {
+        ExistResource res = ExistResource.createLazily(NAME, PARENT_URI, "<user><name>Mustermann</user>");
+        res.getXmlAsDocument();
+    }
+
     @Test
     public void testGetParentCollectionUri() throws Exception {
         ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
@@ -56,6 +79,21 @@ public class ExistResourceTest {
         assertEquals(res.getXmlAsDocument().toXML(), origXml);
     }
 
+    @Test
+    public void testGetXmlAsString() throws Exception {
+        Builder parser = new Builder();
+        String origXml = parser.build(XML_CONTENT_WITH_NAMESPACE, null).toXML();
+        ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
+        assertEquals(res.getXmlAsString(), origXml);
+    }
+
+    @Test
+    public void testGetXmlAsStringWithLazilyCreatedResource() throws Exception {
+        ExistResource res = ExistResource.createLazily(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
+        assertEquals(res.getXmlAsString(), XML_CONTENT_WITH_NAMESPACE);
+        assertFalse(res.isParsed());
+    }
+
     @Test
     public void testQueryContentXmlWithNamespace() throws Exception {
         ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
@@ -63,6 +101,26 @@ public class ExistResourceTest {
 
     }
 
+    @Test
+    public void testQueryContentXmlIsMemoized() throws Exception {
+        ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITH_NAMESPACE);
+        assertSame(res.queryContentXml(XpathQuery.QUERY_XRX_NAME), res.queryContentXml(XpathQuery.QUERY_XRX_NAME));
+    }
+
+    @Test
+    public void testQueryContentXmlAfterModification() throws Exception {
+
+        ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITHOUT_NAMESPACE);
+        res.queryContentXml(XpathQuery.QUERY_NAME);
+
+        Element name = new Element("name");
+        name.appendChild("Musterfrau");
+        res.getXmlAsDocument().getRootElement().appendChild(name);
+
+        assertEquals(res.queryContentXml(XpathQuery.QUERY_NAME).size(), 2);
+
+    }
+
     @Test
     public void testQueryContentXmlWithoutNamespace() throws Exception {
         ExistResource res = new ExistResource(NAME, PARENT_URI, XML_CONTENT_WITHOUT_NAMESPACE);
@@ -6,6 +6,7 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.testng.Assert.assertEquals;
 
@@ -43,6 +44,12 @@ public class UserTest {
         User user = new User(wrongResource);
     }
 
+    @Test
+    public void testGetModeratorId() throws Exception {
+        User user = new User(resource);
+        assertEquals(user.getModeratorId(), Optional.of("admin"));
+    }
+
     @Test
     public void testGetUserId() throws Exception {
         User user = new User(resource);
@@ -0,0 +1,63 @@
+package eu.icarus.momca.momcapi.resource;
+
+import nu.xom.Builder;
+import nu.xom.NodeFactory;
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.*;
+
+public class XmlParserPoolTest {
+
+    private static final String XML_CONTENT = "<user><name>Mustermann</name></user>";
+    private static final String XML_CONTENT_WITH_EXTERNAL_DTD = "<!DOCTYPE user SYSTEM \"http://notexisting.invalid/user.dtd\"><user><name>Mustermann</name></user>";
+
+    @Test
+    public void testGetBuilderIsReusedByThread() throws Exception {
+        XmlParserPool pool = new XmlParserPool(NodeFactory::new);
+        assertSame(pool.getBuilder(), pool.getBuilder());
+    }
+
+    @Test
+    public void testGetBuilderIsConfinedToThread() throws Exception {
+
+        XmlParserPool pool = new XmlParserPool(NodeFactory::new);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Builder otherBuilder = executor.submit(pool::getBuilder).get();
+            assertNotSame(pool.getBuilder(), otherBuilder);
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        XmlParserPool pool = new XmlParserPool(NodeFactory::new);
+        assertEquals(pool.parse(new StringReader(XML_CONTENT)).getRootElement().getValue(), "Mustermann");
+        assertEquals(pool.getDocumentCount(), 1);
+    }
+
+    @Test
+    public void testParseIgnoresExternalDtd() throws Exception {
+        XmlParserPool pool = new XmlParserPool(NodeFactory::new);
+        assertEquals(pool.parse(new StringReader(XML_CONTENT_WITH_EXTERNAL_DTD)).getRootElement().getValue(), "Mustermann");
+    }
+
+    @Test
+    public void testGetDocumentsPerSecondByThread() throws Exception {
+
+        XmlParserPool pool = new XmlParserPool(NodeFactory::new);
+        pool.parse(new StringReader(XML_CONTENT));
+
+        assertTrue(pool.getDocumentsPerSecondByThread().containsKey(Thread.currentThread().getName()));
+        assertTrue(pool.getDocumentsPerSecond() > 0);
+
+    }
+
+}